@@ -0,0 +1,92 @@
+package de.cyberport.benchmarks;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.catalog.FilmQueryEngine;
+import org.apache.sling.api.resource.PersistenceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The queries of one listing page, executed one by one and as a batch, which shares the walks
+ * of the queries sorted by the same permutation.
+ *
+ * @author ritendra_singh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BatchBenchmark {
+
+    private static final String[] PAGE = {
+            "isBestPicture=true&sortBy=year&limit=10",
+            "minYear=2000&sortBy=year&limit=10",
+            "maxAwards=0&sortBy=year&limit=10",
+            "minAwards=1&limit=20",
+            "maxYear=1990&limit=20",
+            "minYear=2010&maxYear=2019&sortBy=-numberOfReferences&limit=20",
+            "title=Spider-Man 2"
+    };
+
+    @Param({"1316", "100000"})
+    private int size;
+
+    private BenchmarkContext context;
+    private FilmCatalog catalog;
+    private FilmQuery[] queries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws PersistenceException {
+        context = BenchmarkContext.start(size);
+        catalog = context.catalogService().getCatalog(context.container());
+        queries = new FilmQuery[PAGE.length];
+        for (int i = 0; i < PAGE.length; i++) {
+            final Map<String, String> params = new HashMap<>();
+            for (String pair : PAGE[i].split("&")) {
+                params.put(pair.substring(0, pair.indexOf('=')), pair.substring(pair.indexOf('=') + 1));
+            }
+            queries[i] = FilmQuery.parse(params::get);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public int separate() {
+        int rows = 0;
+        for (FilmQuery query : queries) {
+            rows += FilmQueryEngine.execute(catalog, query).length;
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public int batch() {
+        int rows = 0;
+        for (int[] result : FilmQueryEngine.executeAll(catalog, queries)) {
+            rows += result.length;
+        }
+        return rows;
+    }
+}
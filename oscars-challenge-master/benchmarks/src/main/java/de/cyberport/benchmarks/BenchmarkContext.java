@@ -0,0 +1,121 @@
+package de.cyberport.benchmarks;
+
+import de.cyberport.core.services.FilmCatalogService;
+import de.cyberport.core.services.impl.FilmCatalogServiceImpl;
+import de.cyberport.core.services.impl.FilmResultCacheImpl;
+import de.cyberport.core.servlets.OscarFilmContainerServlet;
+import de.cyberport.core.testing.FilmGenerator;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * In-memory repository of the unit tests, set up outside of JUnit for the benchmarks.
+ *
+ * The container below {@link #CONTAINER_PATH} holds the films of oscars.json. Other sizes are
+ * synthetic films of the {@link FilmGenerator}, so the value distributions stay the ones of the
+ * real data.
+ *
+ * @author ritendra_singh
+ */
+public final class BenchmarkContext extends AemContext {
+
+    public static final String CONTAINER_PATH = "/content/oscars";
+
+    /**
+     * Number of films in oscars.json
+     */
+    public static final int OSCARS_SIZE = 1316;
+
+    private Resource container;
+    private FilmCatalogService catalogService;
+    private OscarFilmContainerServlet servlet;
+
+    /**
+     * Seed of the generated films, fixed so every run benchmarks the same container
+     */
+    private static final long SEED = 1316;
+
+    /**
+     * Sets up the repository with a container of the given number of films and registers the
+     * services, the result cache is disabled so every request runs the query
+     * @param size number of films, {@link #OSCARS_SIZE} for the real ones
+     * @return started context, to be stopped with {@link #stop()}
+     * @throws PersistenceException if the generated films cannot be stored
+     */
+    public static BenchmarkContext start(final int size) throws PersistenceException {
+        return start(size, false);
+    }
+
+    /**
+     * Sets up the repository with a container of the given number of films and registers the services
+     * @param size number of films, {@link #OSCARS_SIZE} for the real ones
+     * @param resultCache true to serve repeated queries from the result cache
+     * @return started context, to be stopped with {@link #stop()}
+     * @throws PersistenceException if the generated films cannot be stored
+     */
+    public static BenchmarkContext start(final int size, final boolean resultCache) throws PersistenceException {
+        final BenchmarkContext context = new BenchmarkContext();
+        context.setUpContext();
+        if (size == OSCARS_SIZE) {
+            context.load().json("/oscars.json", CONTAINER_PATH);
+        } else {
+            FilmGenerator.fromOscars(SEED).load(context.resourceResolver(), CONTAINER_PATH, size,
+                    FilmGenerator.Layout.FLAT);
+        }
+        context.container = context.resourceResolver().getResource(CONTAINER_PATH);
+        context.catalogService = context.registerInjectActivateService(new FilmCatalogServiceImpl());
+        context.registerInjectActivateService(new FilmResultCacheImpl(), "max.entries", resultCache ? 1000 : 0);
+        context.servlet = context.registerInjectActivateService(new OscarFilmContainerServlet());
+        return context;
+    }
+
+    public void stop() {
+        tearDownContext();
+    }
+
+    public Resource container() {
+        return container;
+    }
+
+    public FilmCatalogService catalogService() {
+        return catalogService;
+    }
+
+    public OscarFilmContainerServlet servlet() {
+        return servlet;
+    }
+
+    /**
+     * Runs the full request path of the servlet with its own request and response
+     * @param parameters request parameters
+     * @return response, its body is only counted
+     * @throws IOException if the servlet fails
+     */
+    public BenchmarkResponse doGet(final Map<String, Object> parameters) throws IOException {
+        return doGet(parameters, Collections.emptyMap());
+    }
+
+    /**
+     * Runs the full request path of the servlet with its own request and response
+     * @param parameters request parameters
+     * @param headers request headers
+     * @return response, its body is only counted
+     * @throws IOException if the servlet fails
+     */
+    public BenchmarkResponse doGet(final Map<String, Object> parameters, final Map<String, String> headers)
+            throws IOException {
+        final MockSlingHttpServletRequest request = new MockSlingHttpServletRequest(resourceResolver(), bundleContext());
+        request.setResource(container);
+        request.setParameterMap(parameters);
+        headers.forEach(request::addHeader);
+        final BenchmarkResponse response = new BenchmarkResponse();
+        servlet.doGet(request, response);
+        return response;
+    }
+}
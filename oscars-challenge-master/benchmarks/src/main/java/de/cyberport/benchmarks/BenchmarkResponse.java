@@ -0,0 +1,70 @@
+package de.cyberport.benchmarks;
+
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Response discarding its body and only counting the written bytes.
+ *
+ * The mock response writes its body byte by byte into memory, which would dominate every
+ * benchmark with a large result. A servlet container hands bulk writes on to its buffer.
+ *
+ * @author ritendra_singh
+ */
+public final class BenchmarkResponse extends MockSlingHttpServletResponse {
+
+    private long bytesWritten;
+
+    private final ServletOutputStream outputStream = new ServletOutputStream() {
+
+        @Override
+        public void write(final int b) {
+            bytesWritten++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            bytesWritten += len;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(final WriteListener writeListener) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private PrintWriter writer;
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        }
+        return writer;
+    }
+
+    /**
+     * @return number of body bytes written so far, characters of the writer once flushed
+     */
+    public long bytesWritten() {
+        if (writer != null) {
+            writer.flush();
+        }
+        return bytesWritten;
+    }
+}
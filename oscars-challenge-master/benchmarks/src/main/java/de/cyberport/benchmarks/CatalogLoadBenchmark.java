@@ -0,0 +1,71 @@
+package de.cyberport.benchmarks;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.models.Film;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading of a container: reading and adapting its children and building the catalog with all
+ * its indexes, as done on the first request and after every invalidating change.
+ *
+ * @author ritendra_singh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CatalogLoadBenchmark {
+
+    @Param({"1316", "100000"})
+    private int size;
+
+    private BenchmarkContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws PersistenceException {
+        context = BenchmarkContext.start(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.stop();
+    }
+
+    /**
+     * Only the iteration and Sling model adaptation of the children
+     */
+    @Benchmark
+    public void adaptChildren(final Blackhole blackhole) {
+        for (Resource child : context.container().getChildren()) {
+            blackhole.consume(child.adaptTo(Film.class));
+        }
+    }
+
+    /**
+     * Adaptation plus building columns, indexes, sort permutations and json fragments
+     */
+    @Benchmark
+    public FilmCatalog loadCatalog() {
+        context.catalogService().invalidate(BenchmarkContext.CONTAINER_PATH);
+        return context.catalogService().getCatalog(context.container());
+    }
+}
@@ -0,0 +1,119 @@
+package de.cyberport.benchmarks;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmCursor;
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.catalog.FilmQueryEngine;
+import org.apache.sling.api.resource.PersistenceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The query engine in isolation per query shape, through its public API only: the complete
+ * execution, all matches in the requested order without limit, the first page of ten rows,
+ * either walked along the sort permutation or selected from a heap, the page after its cursor
+ * and the streamed rows.
+ *
+ * @author ritendra_singh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FilmQueryEngineBenchmark {
+
+    private static final String PAGE_SIZE = "10";
+
+    @Param({"1316", "100000"})
+    private int size;
+
+    @Param
+    private QueryShape shape;
+
+    private BenchmarkContext context;
+    private FilmCatalog catalog;
+    private FilmQuery query;
+    private FilmQuery unlimited;
+    private FilmQuery firstPage;
+    private FilmQuery nextPage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws PersistenceException {
+        context = BenchmarkContext.start(size);
+        catalog = context.catalogService().getCatalog(context.container());
+        query = FilmQuery.parse(shape::parameter);
+        final Map<String, String> parameters = new HashMap<>();
+        shape.parameters().forEach((name, value) -> parameters.put(name, (String) value));
+        parameters.remove("limit");
+        unlimited = FilmQuery.parse(parameters::get);
+        parameters.put("limit", PAGE_SIZE);
+        firstPage = FilmQuery.parse(parameters::get);
+        final FilmCursor cursor = FilmQueryEngine.nextCursor(catalog, firstPage,
+                FilmQueryEngine.execute(catalog, firstPage));
+        if (cursor != null) {
+            parameters.put("cursor", cursor.toToken());
+        }
+        nextPage = FilmQuery.parse(parameters::get);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public int[] execute() {
+        return FilmQueryEngine.execute(catalog, query);
+    }
+
+    /**
+     * Filter evaluation and sorting of all matches
+     */
+    @Benchmark
+    public int[] unlimited() {
+        return FilmQueryEngine.execute(catalog, unlimited);
+    }
+
+    /**
+     * The first rows of the requested order, either walking the sort permutation or from the heap
+     */
+    @Benchmark
+    public int[] firstPage() {
+        return FilmQueryEngine.execute(catalog, firstPage);
+    }
+
+    /**
+     * The rows after the cursor of the first page
+     */
+    @Benchmark
+    public int[] nextPage() {
+        return FilmQueryEngine.execute(catalog, nextPage);
+    }
+
+    /**
+     * The rows of the query as the ndjson export finds them, without collecting them
+     */
+    @Benchmark
+    public long stream() {
+        final long[] sum = new long[1];
+        FilmQueryEngine.forEach(catalog, query, row -> sum[0] += row);
+        return sum[0];
+    }
+}
@@ -0,0 +1,54 @@
+package de.cyberport.benchmarks;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Typical request parameter combinations of the film container servlet.
+ *
+ * @author ritendra_singh
+ */
+public enum QueryShape {
+
+    /** No parameters, every film sorted by title */
+    ALL(""),
+    /** Documented example 1, exact year and awards range */
+    EXACT_YEAR("year=2019&minAwards=4"),
+    /** Documented example 2, ranges sorted by nominations with a small limit */
+    RANGE_SORTED_LIMIT("minYear=2018&minAwards=3&sortBy=nominations&limit=4"),
+    /** Exact title */
+    TITLE("title=Spider-Man 2"),
+    /** Wide range sorted by a small-domain column without limit */
+    WIDE_RANGE_SORTED("minYear=1950&sortBy=awards"),
+    /** Best picture winners sorted by year, small limit */
+    BEST_PICTURE_LIMIT("isBestPicture=true&sortBy=year&limit=10"),
+    /** Most referenced films of a decade, popularity page */
+    POPULAR_LIMIT("minYear=2010&maxYear=2019&sortBy=-numberOfReferences&limit=20"),
+    /** Multi-key sort of a wide range without limit */
+    MULTI_KEY_SORTED("minYear=1950&sortBy=year,-awards,title");
+
+    private final Map<String, Object> parameters;
+
+    QueryShape(final String query) {
+        final Map<String, Object> params = new HashMap<>();
+        for (String pair : query.split("&")) {
+            final int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(pair.substring(0, separator), pair.substring(separator + 1));
+            }
+        }
+        this.parameters = Collections.unmodifiableMap(params);
+    }
+
+    public Map<String, Object> parameters() {
+        return parameters;
+    }
+
+    /**
+     * @return single valued parameter lookup, as {@code request::getParameter}
+     */
+    public String parameter(final String name) {
+        return (String) parameters.get(name);
+    }
+}
@@ -0,0 +1,140 @@
+package de.cyberport.benchmarks;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmProjection;
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.catalog.FilmQueryEngine;
+import de.cyberport.core.utils.FilmBinaryReader;
+import de.cyberport.core.utils.FilmBinaryWriter;
+import de.cyberport.core.utils.FilmJsonWriter;
+import org.apache.sling.api.resource.PersistenceException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing the result rows of a query shape as json, with the pre-encoded fragments of the
+ * catalog, projected to the title and year of a listing page and, as baseline, with the
+ * JSONObject reflection the servlet started with.
+ *
+ * The binary format of service to service calls is compared with the json path both ways:
+ * encoding the rows and decoding the response into the values of every film on the client.
+ * The sizes of both responses are printed once per trial.
+ *
+ * @author ritendra_singh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SerializationBenchmark {
+
+    @Param({"1316", "100000"})
+    private int size;
+
+    @Param({"ALL", "RANGE_SORTED_LIMIT", "WIDE_RANGE_SORTED"})
+    private QueryShape shape;
+
+    private static final FilmProjection LISTING = FilmProjection.parse("title,year");
+
+    private BenchmarkContext context;
+    private FilmCatalog catalog;
+    private int[] rows;
+    private ByteArrayOutputStream out;
+    private byte[] jsonResponse;
+    private byte[] binaryResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() throws PersistenceException, IOException {
+        context = BenchmarkContext.start(size);
+        catalog = context.catalogService().getCatalog(context.container());
+        rows = FilmQueryEngine.execute(catalog, FilmQuery.parse(shape::parameter));
+        out = new ByteArrayOutputStream(1 << 20);
+
+        fragments();
+        jsonResponse = out.toByteArray();
+        binary();
+        binaryResponse = out.toByteArray();
+        System.out.printf("%n%d rows: %d bytes json, %d bytes binary%n", rows.length, jsonResponse.length, binaryResponse.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public int fragments() throws IOException {
+        out.reset();
+        new FilmJsonWriter(out).writeResult(catalog, rows);
+        return out.size();
+    }
+
+    @Benchmark
+    public int projectedFragments() throws IOException {
+        out.reset();
+        new FilmJsonWriter(out).writeResult(catalog, rows, LISTING, null);
+        return out.size();
+    }
+
+    @Benchmark
+    public int binary() throws IOException {
+        out.reset();
+        new FilmBinaryWriter(out).writeResult(catalog, rows, FilmProjection.ALL, null);
+        return out.size();
+    }
+
+    @Benchmark
+    public long decodeJson() throws JSONException {
+        final JSONArray films = new JSONObject(new String(jsonResponse, StandardCharsets.UTF_8)).getJSONArray("result");
+        long checksum = 0;
+        for (int i = 0; i < films.length(); i++) {
+            final JSONObject film = films.getJSONObject(i);
+            checksum += film.getString("title").length() + Integer.parseInt(film.getString("year"))
+                    + film.getInt("awards") + film.getInt("nominations")
+                    + (film.getBoolean("isBestPicture") ? 1 : 0) + film.getInt("numberOfReferences");
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long decodeBinary() throws IOException {
+        final FilmBinaryReader.Result films = new FilmBinaryReader(new ByteArrayInputStream(binaryResponse)).read();
+        long checksum = 0;
+        for (int i = 0; i < films.size(); i++) {
+            checksum += films.getTitle(i).length() + films.getYear(i)
+                    + films.getAwards(i) + films.getNominations(i)
+                    + (films.isBestPicture(i) ? 1 : 0) + films.getNumberOfReferences(i);
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int jsonObject() throws JSONException {
+        final JSONObject result = new JSONObject();
+        result.put("result", Arrays.stream(rows).mapToObj(catalog::getFilm).toArray());
+        return result.toString().length();
+    }
+}
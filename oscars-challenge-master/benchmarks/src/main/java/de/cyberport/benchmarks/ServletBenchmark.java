@@ -0,0 +1,71 @@
+package de.cyberport.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full request path of the film container servlet per query shape: parameter parsing,
+ * catalog lookup, filter, sort, limit and writing the response. With {@code cached} the
+ * repeated query is served from the result cache, with {@code gzip} the client accepts a
+ * compressed response, which the cache then keeps as well.
+ *
+ * @author ritendra_singh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ServletBenchmark {
+
+    @Param({"1316", "100000"})
+    private int size;
+
+    @Param
+    private QueryShape shape;
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private Map<String, String> headers;
+
+    private BenchmarkContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkContext.start(size, cached);
+        headers = gzip ? Collections.singletonMap("Accept-Encoding", "gzip") : Collections.emptyMap();
+        // Load the catalog, the first request is not part of the measurement
+        context.doGet(shape.parameters(), headers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public long doGet() throws IOException {
+        return context.doGet(shape.parameters(), headers).bytesWritten();
+    }
+}
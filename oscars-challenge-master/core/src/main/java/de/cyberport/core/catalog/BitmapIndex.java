@@ -0,0 +1,86 @@
+package de.cyberport.core.catalog;
+
+import java.util.BitSet;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Exact match index over a small, dense integer column: one bitmap of row ids per value.
+ * Bitmaps handed out by this index are shared and must never be modified.
+ *
+ * @author ritendra_singh
+ */
+final class BitmapIndex {
+
+    private final int minValue;
+    private final BitSet[] bitmaps;
+    private final int[] cardinalities;
+
+    private BitmapIndex(final int minValue, final BitSet[] bitmaps, final int[] cardinalities) {
+        this.minValue = minValue;
+        this.bitmaps = bitmaps;
+        this.cardinalities = cardinalities;
+    }
+
+    /**
+     * Builds the index of a column.
+     * @param size number of rows
+     * @param column value of the column per row id
+     * @return
+     */
+    static BitmapIndex build(final int size, final IntUnaryOperator column) {
+        if (size == 0) {
+            return new BitmapIndex(0, new BitSet[0], new int[0]);
+        }
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int row = 0; row < size; row++) {
+            final int value = column.applyAsInt(row);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        final BitSet[] bitmaps = new BitSet[max - min + 1];
+        final int[] cardinalities = new int[bitmaps.length];
+        for (int row = 0; row < size; row++) {
+            final int slot = column.applyAsInt(row) - min;
+            if (bitmaps[slot] == null) {
+                bitmaps[slot] = new BitSet(size);
+            }
+            bitmaps[slot].set(row);
+            cardinalities[slot]++;
+        }
+        return new BitmapIndex(min, bitmaps, cardinalities);
+    }
+
+    /**
+     * @param value column value
+     * @return shared bitmap of the rows having the value, null if there is none
+     */
+    BitSet get(final int value) {
+        final int slot = value - minValue;
+        return slot < 0 || slot >= bitmaps.length ? null : bitmaps[slot];
+    }
+
+    /**
+     * @return smallest value of the column
+     */
+    int minValue() {
+        return minValue;
+    }
+
+    /**
+     * @return largest value of the column, smaller than {@link #minValue()} if there are no rows
+     */
+    int maxValue() {
+        return minValue + bitmaps.length - 1;
+    }
+
+    /**
+     * @param value column value
+     * @return number of rows having the value
+     */
+    int cardinality(final int value) {
+        final int slot = value - minValue;
+        return slot < 0 || slot >= cardinalities.length ? 0 : cardinalities[slot];
+    }
+}
@@ -0,0 +1,72 @@
+package de.cyberport.core.catalog;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the {@code capacity} smallest of all offered keys, without boxing.
+ * Internally a max-heap, so a key larger than the current maximum is rejected in O(1).
+ *
+ * @author ritendra_singh
+ */
+final class BoundedLongHeap {
+
+    private final long[] heap;
+    private int size;
+
+    BoundedLongHeap(final int capacity) {
+        this.heap = new long[capacity];
+    }
+
+    void offer(final long key) {
+        if (size < heap.length) {
+            heap[size] = key;
+            siftUp(size++);
+        } else if (size > 0 && key < heap[0]) {
+            heap[0] = key;
+            siftDown(0);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the kept keys in ascending order
+     */
+    long[] toSortedArray() {
+        final long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private void siftUp(int index) {
+        final long key = heap[index];
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (heap[parent] >= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private void siftDown(int index) {
+        final long key = heap[index];
+        final int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (key >= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+}
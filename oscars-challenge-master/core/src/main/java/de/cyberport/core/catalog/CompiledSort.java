@@ -0,0 +1,205 @@
+package de.cyberport.core.catalog;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A {@link FilmSort} compiled against a set of rows of one catalog, so rows are only compared as primitives.
+ *
+ * Every numeric key is reduced to a non negative value: the column value minus the smallest
+ * value of the rows, for descending keys the largest value minus the column value. The title
+ * (always the last key, ascending unless given as descending key) is reduced to its rank in the
+ * title order of the catalog, which is unique. If the bit widths of all reduced keys add up to at
+ * most 63, they are packed into one long per row, most significant key first, so comparing the
+ * longs compares the rows and the title rank in the low bits maps a long back to its row. Wider
+ * sorts compare the reduced keys one by one.
+ *
+ * @author ritendra_singh
+ */
+final class CompiledSort {
+
+    private static final int MAX_PACKED_BITS = Long.SIZE - 1;
+
+    /**
+     * Arrays of at most this size are insertion sorted by the merge sort
+     */
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    private final SortPermutation titleOrder;
+    private final int lastRank;
+    private final boolean titleDescending;
+    private final long titleMask;
+    private final IntUnaryOperator[] columns;
+    private final boolean[] descending;
+    private final long[] bounds;
+    private final int[] shifts;
+    private final boolean packed;
+
+    private CompiledSort(final FilmCatalog catalog, final FilmSort sort, final int[] rows) {
+        this.titleOrder = catalog.titleOrder();
+        this.lastRank = catalog.size() - 1;
+        final int last = sort.size() - 1;
+        this.titleDescending = sort.getKey(last) == FilmQuery.SortBy.TITLE && sort.isDescending(last);
+        final int count = sort.getKey(last) == FilmQuery.SortBy.TITLE ? last : sort.size();
+        this.columns = new IntUnaryOperator[count];
+        this.descending = new boolean[count];
+        this.bounds = new long[count];
+        this.shifts = new int[count];
+
+        final int[] widths = new int[count];
+        for (int i = 0; i < count; i++) {
+            columns[i] = catalog.column(sort.getKey(i));
+            descending[i] = sort.isDescending(i);
+            long min = Integer.MAX_VALUE;
+            long max = Integer.MIN_VALUE;
+            for (int row : rows) {
+                final int value = columns[i].applyAsInt(row);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            bounds[i] = descending[i] ? max : min;
+            widths[i] = bits(Math.max(0, max - min));
+        }
+        int shift = bits(Math.max(0, lastRank));
+        this.titleMask = (1L << shift) - 1;
+        for (int i = count - 1; i >= 0; i--) {
+            shifts[i] = shift;
+            shift += widths[i];
+        }
+        this.packed = shift <= MAX_PACKED_BITS;
+    }
+
+    /**
+     * @param catalog film catalog
+     * @param sort requested sort
+     * @param rows rows to be compared, define the value range of every key
+     * @return compiled sort
+     */
+    static CompiledSort compile(final FilmCatalog catalog, final FilmSort sort, final int[] rows) {
+        return new CompiledSort(catalog, sort, rows);
+    }
+
+    /**
+     * @return true if every row has a packed long key
+     */
+    boolean isPacked() {
+        return packed;
+    }
+
+    /**
+     * Sorts the rows the compiled sort was compiled for
+     * @param rows
+     * @return new array of the rows in sort order
+     */
+    int[] sort(final int[] rows) {
+        if (!packed) {
+            final int[] sorted = rows.clone();
+            mergeSort(sorted, rows.clone(), 0, sorted.length);
+            return sorted;
+        }
+        final long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            keys[i] = key(rows[i]);
+        }
+        Arrays.sort(keys);
+        return toRows(keys);
+    }
+
+    /**
+     * Selects the first rows of the sort order with a bounded heap of their packed keys
+     * @param rows
+     * @param limit
+     * @return the first {@code limit} rows in sort order
+     */
+    int[] top(final int[] rows, final int limit) {
+        if (!packed) {
+            final int[] sorted = sort(rows);
+            return limit < sorted.length ? Arrays.copyOf(sorted, limit) : sorted;
+        }
+        final BoundedLongHeap heap = new BoundedLongHeap(limit);
+        for (int row : rows) {
+            heap.offer(key(row));
+        }
+        return toRows(heap.toSortedArray());
+    }
+
+    /**
+     * @param row
+     * @return packed key of the row, only valid if the sort {@link #isPacked()}
+     */
+    long key(final int row) {
+        long key = titleKey(row);
+        for (int i = 0; i < columns.length; i++) {
+            key |= reduced(i, row) << shifts[i];
+        }
+        return key;
+    }
+
+    /**
+     * @param left
+     * @param right
+     * @return negative, zero or positive as the left row comes before, is or comes after the right one
+     */
+    int compare(final int left, final int right) {
+        for (int i = 0; i < columns.length; i++) {
+            final int byKey = Long.compare(reduced(i, left), reduced(i, right));
+            if (byKey != 0) {
+                return byKey;
+            }
+        }
+        return Integer.compare(titleKey(left), titleKey(right));
+    }
+
+    private long reduced(final int index, final int row) {
+        final long value = columns[index].applyAsInt(row);
+        return descending[index] ? bounds[index] - value : value - bounds[index];
+    }
+
+    private int titleKey(final int row) {
+        final int rank = titleOrder.rank(row);
+        return titleDescending ? lastRank - rank : rank;
+    }
+
+    private int[] toRows(final long[] keys) {
+        final int[] rows = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            final int titleKey = (int) (keys[i] & titleMask);
+            rows[i] = titleOrder.row(titleDescending ? lastRank - titleKey : titleKey);
+        }
+        return rows;
+    }
+
+    /**
+     * Top down merge sort of {@code rows[from, to)} with {@link #compare(int, int)}, using a copy of the rows as buffer
+     */
+    private void mergeSort(final int[] rows, final int[] buffer, final int from, final int to) {
+        if (to - from <= INSERTION_SORT_SIZE) {
+            for (int i = from + 1; i < to; i++) {
+                final int row = rows[i];
+                int j = i - 1;
+                while (j >= from && compare(rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        final int middle = (from + to) >>> 1;
+        mergeSort(buffer, rows, from, middle);
+        mergeSort(buffer, rows, middle, to);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || left < middle && compare(buffer[left], buffer[right]) <= 0) {
+                rows[i] = buffer[left++];
+            } else {
+                rows[i] = buffer[right++];
+            }
+        }
+    }
+
+    private static int bits(final long value) {
+        return Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+}
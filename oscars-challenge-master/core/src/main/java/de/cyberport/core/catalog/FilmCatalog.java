@@ -0,0 +1,336 @@
+package de.cyberport.core.catalog;
+
+import de.cyberport.core.models.Film;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Immutable, column oriented snapshot of the films of one container.
+ *
+ * Every film is identified by its row id (0 until {@link #size()}); its values are kept in
+ * parallel primitive arrays, so filters can scan one column linearly instead of following
+ * a reference per film. Bitmap indexes on year, nominations and best picture answer the
+ * exact match filters without a scan, range indexes on year and awards the min/max filters
+ * and a case insensitive hash index the title filter. For every supported sort order the rows
+ * are kept as permutation, built once on load; the title order is the tiebreak of the others.
+ * The json object of every row is encoded once up front, see {@link #writeFragment(int, OutputStream)}.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmCatalog {
+
+    private final int size;
+    private final TitlePool titles;
+    private final int[] years;
+    private final byte[] awards;
+    private final byte[] nominations;
+    private final BitSet bestPictures;
+    private final int[] references;
+    private final BitmapIndex yearIndex;
+    private final BitmapIndex nominationsIndex;
+    private final RangeIndex yearRange;
+    private final RangeIndex awardsRange;
+    private final TitleIndex titleIndex;
+    private final SortPermutation titleOrder;
+    private final SortPermutation yearOrder;
+    private final SortPermutation awardsOrder;
+    private final SortPermutation nominationsOrder;
+    private final FilmFragments fragments;
+    private volatile TitleSuggestIndex suggestIndex;
+
+    FilmCatalog(final int size, final TitlePool titles, final int[] years, final byte[] awards,
+                final byte[] nominations, final BitSet bestPictures, final int[] references) {
+        this.size = size;
+        this.titles = titles;
+        this.years = years;
+        this.awards = awards;
+        this.nominations = nominations;
+        this.bestPictures = bestPictures;
+        this.references = references;
+        this.yearIndex = BitmapIndex.build(size, row -> years[row]);
+        this.nominationsIndex = BitmapIndex.build(size, row -> nominations[row]);
+        this.yearRange = RangeIndex.build(size, row -> years[row]);
+        this.awardsRange = RangeIndex.build(size, row -> awards[row]);
+        this.titleIndex = TitleIndex.build(size, titles);
+        this.titleOrder = SortPermutation.byTitle(size, titles);
+        this.yearOrder = SortPermutation.byColumn(size, row -> years[row], titleOrder);
+        this.awardsOrder = SortPermutation.byColumn(size, row -> awards[row], titleOrder);
+        this.nominationsOrder = SortPermutation.byColumn(size, row -> nominations[row], titleOrder);
+        this.fragments = FilmFragments.encode(this);
+    }
+
+    /**
+     * Copy of the given catalog with other references, sharing every column and index the
+     * references are not part of.
+     */
+    private FilmCatalog(final FilmCatalog source, final int[] references, final int[] changedRows) {
+        this.size = source.size;
+        this.titles = source.titles;
+        this.years = source.years;
+        this.awards = source.awards;
+        this.nominations = source.nominations;
+        this.bestPictures = source.bestPictures;
+        this.references = references;
+        this.yearIndex = source.yearIndex;
+        this.nominationsIndex = source.nominationsIndex;
+        this.yearRange = source.yearRange;
+        this.awardsRange = source.awardsRange;
+        this.titleIndex = source.titleIndex;
+        this.titleOrder = source.titleOrder;
+        this.yearOrder = source.yearOrder;
+        this.awardsOrder = source.awardsOrder;
+        this.nominationsOrder = source.nominationsOrder;
+        this.suggestIndex = source.suggestIndex;
+        this.fragments = source.fragments.reencode(this, changedRows);
+    }
+
+    public static FilmCatalogBuilder builder() {
+        return new FilmCatalogBuilder();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getTitle(final int row) {
+        return titles.get(row);
+    }
+
+    /**
+     * @param row row id
+     * @return length of the UTF-8 encoded title in bytes
+     */
+    public int getTitleLength(final int row) {
+        return titles.byteLength(row);
+    }
+
+    /**
+     * Copies the pooled UTF-8 title of the given row without decoding it.
+     * @param row row id
+     * @param target array with at least {@link #getTitleLength(int)} bytes from the offset
+     * @param offset index of the first byte in the target
+     */
+    public void copyTitle(final int row, final byte[] target, final int offset) {
+        titles.copyTo(row, target, offset);
+    }
+
+    /**
+     * Writes the pooled UTF-8 title of the given row without decoding it.
+     * @param row row id
+     * @param out target stream
+     * @throws IOException if the stream fails
+     */
+    public void writeTitle(final int row, final OutputStream out) throws IOException {
+        titles.writeTo(row, out);
+    }
+
+    public int getYear(final int row) {
+        return years[row];
+    }
+
+    public int getAwards(final int row) {
+        return awards[row];
+    }
+
+    public int getNominations(final int row) {
+        return nominations[row];
+    }
+
+    public boolean isBestPicture(final int row) {
+        return bestPictures.get(row);
+    }
+
+    public int getNumberOfReferences(final int row) {
+        return references[row];
+    }
+
+    /**
+     * Returns a copy of this catalog with updated references, e.g. after the hourly refresh.
+     * Only the json fragments of the given rows are encoded again, this catalog stays untouched.
+     * @param rows row ids whose references changed
+     * @param numberOfReferences new references, parallel to {@code rows}
+     * @return updated catalog
+     */
+    public FilmCatalog withReferences(final int[] rows, final int[] numberOfReferences) {
+        if (rows.length != numberOfReferences.length) {
+            throw new IllegalArgumentException("Rows and references differ in length");
+        }
+        final int[] updated = references.clone();
+        for (int i = 0; i < rows.length; i++) {
+            updated[rows[i]] = numberOfReferences[i];
+        }
+        final int[] changedRows = Arrays.stream(rows).sorted().distinct().toArray();
+        return new FilmCatalog(this, updated, changedRows);
+    }
+
+    /**
+     * Writes the pre-encoded UTF-8 json object of the given row.
+     * @param row row id
+     * @param out target stream
+     * @throws IOException if the stream fails
+     */
+    public void writeFragment(final int row, final OutputStream out) throws IOException {
+        fragments.writeTo(row, out);
+    }
+
+    /**
+     * Writes the UTF-8 json objects of the given rows, comma separated, copied from the pre-encoded
+     * fragments. A projection to fewer fields only copies their part of every fragment.
+     * @param rows row ids
+     * @param projection fields to write
+     * @param out target stream
+     * @throws IOException if the stream fails
+     */
+    public void writeFragments(final int[] rows, final FilmProjection projection, final OutputStream out)
+            throws IOException {
+        writeFragments(rows, rows.length, projection, (byte) ',', out);
+    }
+
+    /**
+     * Writes the UTF-8 json objects of the first rows of the array, with the given separator.
+     * @param rows row ids
+     * @param count number of rows to write from the start of the array
+     * @param projection fields to write
+     * @param separator byte between two objects, e.g. a comma or a line feed
+     * @param out target stream
+     * @throws IOException if the stream fails
+     */
+    public void writeFragments(final int[] rows, final int count, final FilmProjection projection,
+                               final byte separator, final OutputStream out) throws IOException {
+        if (!projection.isAll()) {
+            fragments.writeProjected(rows, count, projection, separator, out);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                out.write(separator);
+            }
+            fragments.writeTo(rows[i], out);
+        }
+    }
+
+    TitlePool titles() {
+        return titles;
+    }
+
+    /**
+     * @return shared bitmap of the best picture winners, must not be modified
+     */
+    BitSet bestPictureRows() {
+        return bestPictures;
+    }
+
+    BitmapIndex yearIndex() {
+        return yearIndex;
+    }
+
+    BitmapIndex nominationsIndex() {
+        return nominationsIndex;
+    }
+
+    RangeIndex yearRange() {
+        return yearRange;
+    }
+
+    RangeIndex awardsRange() {
+        return awardsRange;
+    }
+
+    TitleIndex titleIndex() {
+        return titleIndex;
+    }
+
+    /**
+     * @return rows ordered by title, ties by row id
+     */
+    SortPermutation titleOrder() {
+        return titleOrder;
+    }
+
+    /**
+     * @param sortBy ascending sort key
+     * @return all rows in the given sort order, ties by title and row id, null if the order is not precomputed
+     */
+    SortPermutation order(final FilmQuery.SortBy sortBy) {
+        switch (sortBy) {
+            case TITLE:
+                return titleOrder;
+            case YEAR:
+                return yearOrder;
+            case AWARDS:
+                return awardsOrder;
+            case NOMINATIONS:
+                return nominationsOrder;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param sortBy numeric sort key
+     * @return int value of the key per row id
+     */
+    IntUnaryOperator column(final FilmQuery.SortBy sortBy) {
+        switch (sortBy) {
+            case YEAR:
+                return this::getYear;
+            case AWARDS:
+                return this::getAwards;
+            case NOMINATIONS:
+                return this::getNominations;
+            case NUMBER_OF_REFERENCES:
+                return this::getNumberOfReferences;
+            default:
+                throw new IllegalArgumentException("No numeric column for " + sortBy);
+        }
+    }
+
+    /**
+     * The suggest index is only built on the first autocomplete request for this catalog
+     * @return
+     */
+    TitleSuggestIndex suggestIndex() {
+        TitleSuggestIndex index = suggestIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = suggestIndex;
+                if (index == null) {
+                    index = TitleSuggestIndex.build(this);
+                    suggestIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Materializes the given row as a film object, e.g. for serialization.
+     * @param row row id
+     * @return new film with the values of the row
+     */
+    public Film getFilm(final int row) {
+        return new Film(getTitle(row), getYear(row), getAwards(row), getNominations(row),
+                isBestPicture(row), getNumberOfReferences(row));
+    }
+
+    /**
+     * @return heap used by the columns and fragments in bytes, without object headers
+     */
+    public long sizeInBytes() {
+        return titles.sizeInBytes()
+                + (long) years.length * Integer.BYTES
+                + awards.length
+                + nominations.length
+                + bestPictures.size() / Byte.SIZE
+                + (long) references.length * Integer.BYTES
+                + titleOrder.sizeInBytes()
+                + yearOrder.sizeInBytes()
+                + awardsOrder.sizeInBytes()
+                + nominationsOrder.sizeInBytes()
+                + fragments.sizeInBytes();
+    }
+}
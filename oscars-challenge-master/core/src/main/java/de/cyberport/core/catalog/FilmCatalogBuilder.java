@@ -0,0 +1,95 @@
+package de.cyberport.core.catalog;
+
+import de.cyberport.core.models.Film;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Collects films row by row into the columns of a {@link FilmCatalog}.
+ * Not thread-safe, a builder is meant to be used by one loading thread only.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmCatalogBuilder {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Bounds of the year column. The year indexes keep one slot per year between the smallest
+     * and the largest year of a catalog, so a single outlier must not stretch them.
+     */
+    static final int MIN_YEAR = 0;
+    static final int MAX_YEAR = 9999;
+
+    private final TitlePool.Builder titles = new TitlePool.Builder();
+    private final BitSet bestPictures = new BitSet();
+    private int[] years = new int[INITIAL_CAPACITY];
+    private byte[] awards = new byte[INITIAL_CAPACITY];
+    private byte[] nominations = new byte[INITIAL_CAPACITY];
+    private int[] references = new int[INITIAL_CAPACITY];
+    private int size;
+
+    FilmCatalogBuilder() {
+    }
+
+    /**
+     * Appends the film as the next row.
+     * @param film film to add
+     * @return this builder
+     * @throws IllegalArgumentException if year, awards or nominations do not fit into their column
+     */
+    public FilmCatalogBuilder add(final Film film) {
+        return add(film.getTitle(), film.getYear(), film.getAwards(), film.getNominations(),
+                film.getIsBestPicture(), film.getNumberOfReferences());
+    }
+
+    /**
+     * Appends a film with the given values as the next row.
+     * @return this builder
+     * @throws IllegalArgumentException if year, awards or nominations do not fit into their column
+     */
+    public FilmCatalogBuilder add(final String title, final int year, final int awards, final int nominations,
+                                  final boolean isBestPicture, final int numberOfReferences) {
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            throw new IllegalArgumentException("Value of year out of range: " + year);
+        }
+        final byte awardsValue = toByte("awards", awards);
+        final byte nominationsValue = toByte("nominations", nominations);
+        if (size == years.length) {
+            grow();
+        }
+        titles.add(title);
+        this.years[size] = year;
+        this.awards[size] = awardsValue;
+        this.nominations[size] = nominationsValue;
+        this.bestPictures.set(size, isBestPicture);
+        this.references[size] = numberOfReferences;
+        size++;
+        return this;
+    }
+
+    public FilmCatalog build() {
+        return new FilmCatalog(size, titles.build(),
+                Arrays.copyOf(years, size),
+                Arrays.copyOf(awards, size),
+                Arrays.copyOf(nominations, size),
+                (BitSet) bestPictures.clone(),
+                Arrays.copyOf(references, size));
+    }
+
+    private void grow() {
+        final int capacity = years.length * 2;
+        years = Arrays.copyOf(years, capacity);
+        awards = Arrays.copyOf(awards, capacity);
+        nominations = Arrays.copyOf(nominations, capacity);
+        references = Arrays.copyOf(references, capacity);
+    }
+
+    private static byte toByte(final String name, final int value) {
+        if (value < 0 || value > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Value of " + name + " out of range: " + value);
+        }
+        return (byte) value;
+    }
+}
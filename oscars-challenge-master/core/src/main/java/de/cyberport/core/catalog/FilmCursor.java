@@ -0,0 +1,161 @@
+package de.cyberport.core.catalog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a sort order right after the last row of a result page.
+ *
+ * The cursor holds the sort key of that row: its value of every numeric key of the sort, its
+ * title and its row id, which is the complete key of every sort of a catalog. For a sort with a
+ * precomputed permutation the next page is found by a binary search for that key, otherwise by
+ * comparing the key with the matches while they are collected, so a page never has to sort or
+ * skip the pages before it. The title is kept UTF-8 encoded as well, so it is compared with the
+ * pooled titles of the rows without decoding them. As the key is kept by value, a cursor also resumes at the right place
+ * if the catalog was reloaded in the meantime; only films with the same values and title as the
+ * last row may then show up twice or not at all, as their row ids can change.
+ *
+ * Clients only see the cursor as an opaque, URL safe token.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmCursor {
+
+    private static final char SEPARATOR = '~';
+    private static final char VALUE_SEPARATOR = '.';
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final FilmSort sort;
+    private final int[] values;
+    private final String title;
+    private final byte[] encodedTitle;
+    private final int row;
+
+    private FilmCursor(final FilmSort sort, final int[] values, final String title, final int row) {
+        this.sort = sort;
+        this.values = values;
+        this.title = title;
+        this.encodedTitle = title.getBytes(StandardCharsets.UTF_8);
+        this.row = row;
+    }
+
+    /**
+     * @param catalog catalog of the row
+     * @param sort sort of the result
+     * @param row last row of a result page
+     * @return cursor of the position after the row
+     */
+    public static FilmCursor after(final FilmCatalog catalog, final FilmSort sort, final int row) {
+        final int[] values = new int[numericKeys(sort)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = catalog.column(sort.getKey(i)).applyAsInt(row);
+        }
+        return new FilmCursor(sort, values, catalog.getTitle(row), row);
+    }
+
+    /**
+     * @param token token of {@link #toToken()}
+     * @return decoded cursor
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static FilmCursor parse(final String token) {
+        final String decoded = new String(DECODER.decode(token.trim()), StandardCharsets.UTF_8);
+        final int first = decoded.indexOf(SEPARATOR);
+        final int second = decoded.indexOf(SEPARATOR, first + 1);
+        final int third = decoded.indexOf(SEPARATOR, second + 1);
+        if (first < 0 || second < 0 || third < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        final FilmSort sort = FilmSort.parse(decoded.substring(0, first));
+        final String valueList = decoded.substring(first + 1, second);
+        final String[] valueTexts = valueList.isEmpty() ? new String[0] : valueList.split("\\" + VALUE_SEPARATOR);
+        if (!sort.toString().equals(decoded.substring(0, first)) || valueTexts.length != numericKeys(sort)) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        try {
+            final int[] values = new int[valueTexts.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Integer.parseInt(valueTexts[i]);
+            }
+            return new FilmCursor(sort, values, decoded.substring(third + 1),
+                    Integer.parseInt(decoded.substring(second + 1, third)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    /**
+     * @return opaque, URL safe token of the cursor
+     */
+    public String toToken() {
+        final StringBuilder text = new StringBuilder(sort.toString()).append(SEPARATOR);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                text.append(VALUE_SEPARATOR);
+            }
+            text.append(values[i]);
+        }
+        text.append(SEPARATOR).append(row).append(SEPARATOR).append(title);
+        return ENCODER.encodeToString(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public FilmSort getSort() {
+        return sort;
+    }
+
+    /**
+     * Binary search for the first row of the permutation whose key is greater than the cursor
+     * @param catalog catalog to resume in
+     * @param order precomputed permutation of the sort in the catalog
+     * @return rank of that row in the permutation, its size if there is none
+     */
+    int seek(final FilmCatalog catalog, final SortPermutation order) {
+        int low = 0;
+        int high = order.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (compareTo(catalog, order.row(middle)) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param catalog catalog to resume in
+     * @param other row of the catalog
+     * @return true if the row comes after the cursor in its sort
+     */
+    boolean precedes(final FilmCatalog catalog, final int other) {
+        return compareTo(catalog, other) > 0;
+    }
+
+    /**
+     * Compares the key of the row with the key of the cursor, the same way the sort does
+     */
+    private int compareTo(final FilmCatalog catalog, final int other) {
+        for (int i = 0; i < values.length; i++) {
+            final int byValue = Integer.compare(catalog.column(sort.getKey(i)).applyAsInt(other), values[i]);
+            if (byValue != 0) {
+                return sort.isDescending(i) ? -byValue : byValue;
+            }
+        }
+        // Compared with the pooled UTF-8 bytes, the title of the row is never decoded
+        int byTitle = catalog.titles().compare(other, encodedTitle);
+        if (byTitle == 0) {
+            byTitle = Integer.compare(other, row);
+        }
+        return values.length < sort.size() && sort.isDescending(values.length) ? -byTitle : byTitle;
+    }
+
+    /**
+     * @return number of keys before the title, the title can only be the last key
+     */
+    private static int numericKeys(final FilmSort sort) {
+        final int last = sort.size() - 1;
+        return sort.getKey(last) == FilmQuery.SortBy.TITLE ? last : sort.size();
+    }
+}
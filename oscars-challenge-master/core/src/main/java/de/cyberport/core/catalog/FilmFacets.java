@@ -0,0 +1,179 @@
+package de.cyberport.core.catalog;
+
+import java.util.stream.IntStream;
+
+/**
+ * Counts of the films matching the filters of a query, e.g. to build filter options: the number
+ * of films per year, awards, nominations and best picture flag, and the sum and average of their
+ * number of references. Sort, limit, cursor and fields of the query are ignored.
+ *
+ * Without any filter the counts are read from the cardinalities of the catalog indexes. Otherwise
+ * the matching rows are found like for a result and the counts are taken in one pass over the
+ * primitive columns of these rows, no film is materialized either way.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmFacets {
+
+    private final int count;
+    private final Facet years;
+    private final Facet awards;
+    private final Facet nominations;
+    private final int bestPictures;
+    private final long referencesSum;
+
+    private FilmFacets(final int count, final Facet years, final Facet awards, final Facet nominations,
+                       final int bestPictures, final long referencesSum) {
+        this.count = count;
+        this.years = years;
+        this.awards = awards;
+        this.nominations = nominations;
+        this.bestPictures = bestPictures;
+        this.referencesSum = referencesSum;
+    }
+
+    /**
+     * @param catalog film catalog
+     * @param query parsed query, only its filters are used
+     * @return counts of the matching films
+     */
+    public static FilmFacets compute(final FilmCatalog catalog, final FilmQuery query) {
+        if (!hasFilter(query)) {
+            return fromIndexes(catalog);
+        }
+        final int[] rows = FilmQueryEngine.match(catalog, query);
+        final int minYear = catalog.yearIndex().minValue();
+        final int minAwards = catalog.awardsRange().minValue();
+        final int minNominations = catalog.nominationsIndex().minValue();
+        final int[] yearCounts = new int[slots(minYear, catalog.yearIndex().maxValue())];
+        final int[] awardsCounts = new int[slots(minAwards, catalog.awardsRange().maxValue())];
+        final int[] nominationsCounts = new int[slots(minNominations, catalog.nominationsIndex().maxValue())];
+
+        int bestPictures = 0;
+        long referencesSum = 0;
+        for (int row : rows) {
+            yearCounts[catalog.getYear(row) - minYear]++;
+            awardsCounts[catalog.getAwards(row) - minAwards]++;
+            nominationsCounts[catalog.getNominations(row) - minNominations]++;
+            if (catalog.isBestPicture(row)) {
+                bestPictures++;
+            }
+            referencesSum += catalog.getNumberOfReferences(row);
+        }
+        return new FilmFacets(rows.length, new Facet(minYear, yearCounts), new Facet(minAwards, awardsCounts),
+                new Facet(minNominations, nominationsCounts), bestPictures, referencesSum);
+    }
+
+    /**
+     * Counts of all films, taken from the indexes; only the references are summed up
+     * @param catalog
+     * @return
+     */
+    private static FilmFacets fromIndexes(final FilmCatalog catalog) {
+        final BitmapIndex yearIndex = catalog.yearIndex();
+        final int[] yearCounts = new int[slots(yearIndex.minValue(), yearIndex.maxValue())];
+        for (int i = 0; i < yearCounts.length; i++) {
+            yearCounts[i] = yearIndex.cardinality(yearIndex.minValue() + i);
+        }
+        final RangeIndex awardsRange = catalog.awardsRange();
+        final int[] awardsCounts = new int[slots(awardsRange.minValue(), awardsRange.maxValue())];
+        for (int i = 0; i < awardsCounts.length; i++) {
+            final int value = awardsRange.minValue() + i;
+            awardsCounts[i] = awardsRange.range(value, value).size();
+        }
+        final BitmapIndex nominationsIndex = catalog.nominationsIndex();
+        final int[] nominationsCounts = new int[slots(nominationsIndex.minValue(), nominationsIndex.maxValue())];
+        for (int i = 0; i < nominationsCounts.length; i++) {
+            nominationsCounts[i] = nominationsIndex.cardinality(nominationsIndex.minValue() + i);
+        }
+
+        long referencesSum = 0;
+        for (int row = 0; row < catalog.size(); row++) {
+            referencesSum += catalog.getNumberOfReferences(row);
+        }
+        return new FilmFacets(catalog.size(), new Facet(yearIndex.minValue(), yearCounts),
+                new Facet(awardsRange.minValue(), awardsCounts), new Facet(nominationsIndex.minValue(), nominationsCounts),
+                catalog.bestPictureRows().cardinality(), referencesSum);
+    }
+
+    private static boolean hasFilter(final FilmQuery query) {
+        return query.getTitle() != null || query.getYear() != null || query.getMinYear() != null
+                || query.getMaxYear() != null || query.getMinAwards() != null || query.getMaxAwards() != null
+                || query.getNominations() != null || query.getIsBestPicture() != null;
+    }
+
+    private static int slots(final int minValue, final int maxValue) {
+        return Math.max(0, maxValue - minValue + 1);
+    }
+
+    /**
+     * @return number of matching films
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public Facet getYears() {
+        return years;
+    }
+
+    public Facet getAwards() {
+        return awards;
+    }
+
+    public Facet getNominations() {
+        return nominations;
+    }
+
+    /**
+     * @return number of matching best picture winners
+     */
+    public int getBestPictures() {
+        return bestPictures;
+    }
+
+    /**
+     * @return sum of the number of references of the matching films
+     */
+    public long getReferencesSum() {
+        return referencesSum;
+    }
+
+    /**
+     * @return average number of references of the matching films, NaN if there are none
+     */
+    public double getReferencesAverage() {
+        return count == 0 ? Double.NaN : (double) referencesSum / count;
+    }
+
+    /**
+     * Number of matching films per value of one column.
+     */
+    public static final class Facet {
+
+        private final int minValue;
+        private final int[] counts;
+
+        private Facet(final int minValue, final int[] counts) {
+            this.minValue = minValue;
+            this.counts = counts;
+        }
+
+        /**
+         * @return values with at least one matching film, ascending
+         */
+        public int[] values() {
+            return IntStream.range(0, counts.length).filter(slot -> counts[slot] > 0)
+                    .map(slot -> minValue + slot).toArray();
+        }
+
+        /**
+         * @param value column value
+         * @return number of matching films having the value
+         */
+        public int getCount(final int value) {
+            final int slot = value - minValue;
+            return slot < 0 || slot >= counts.length ? 0 : counts[slot];
+        }
+    }
+}
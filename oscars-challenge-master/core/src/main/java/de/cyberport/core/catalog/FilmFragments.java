@@ -0,0 +1,299 @@
+package de.cyberport.core.catalog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static de.cyberport.core.constants.OscarConstants.*;
+
+/**
+ * Json object of every row of a catalog, encoded once as UTF-8 into one shared byte array.
+ * The fragment of row {@code n} is found between {@code offsets[n]} and {@code offsets[n + 1]},
+ * so a response is assembled by copying fragments and separators without encoding anything.
+ *
+ * The schema is explicit and matches the documented response of the film container servlet:
+ * {"title":"Parasite","year":"2019","awards":4,"nominations":6,"isBestPicture":true,"numberOfReferences":8855}
+ * A projection to fewer fields copies only their {@code "name":value} segments out of the fragments,
+ * see {@link #writeProjected(int[], int, FilmProjection, byte, OutputStream)}.
+ *
+ * @author ritendra_singh
+ */
+final class FilmFragments {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TITLE_PREFIX = ascii("{\"" + TITLE + "\":\"");
+    private static final byte[] YEAR_PREFIX = ascii("\",\"" + YEAR + "\":\"");
+    private static final byte[] AWARDS_PREFIX = ascii("\",\"" + AWARDS + "\":");
+    private static final byte[] NOMINATIONS_PREFIX = ascii(",\"" + NOMINATIONS + "\":");
+    private static final byte[] BEST_PICTURE_PREFIX = ascii(",\"" + IS_BEST_PICTURE + "\":");
+    private static final byte[] REFERENCES_PREFIX = ascii(",\"" + NUMBER_OF_REFERENCES + "\":");
+    private static final byte[] TRUE = ascii("true");
+    private static final byte[] FALSE = ascii("false");
+
+    /**
+     * Projected rows are assembled in a buffer of this size before it is written to the stream
+     */
+    private static final int PROJECTION_BUFFER_SIZE = 8192;
+
+    private final byte[] data;
+    private final int[] offsets;
+    private final int[] titleEnds;
+
+    private FilmFragments(final byte[] data, final int[] offsets, final int[] titleEnds) {
+        this.data = data;
+        this.offsets = offsets;
+        this.titleEnds = titleEnds;
+    }
+
+    /**
+     * Encodes the fragments of all rows of the catalog
+     * @param catalog
+     * @return
+     */
+    static FilmFragments encode(final FilmCatalog catalog) {
+        final Encoder encoder = new Encoder(catalog.size() * 128);
+        final int[] offsets = new int[catalog.size() + 1];
+        final int[] titleEnds = new int[catalog.size()];
+        for (int row = 0; row < catalog.size(); row++) {
+            encoder.film(catalog, row);
+            offsets[row + 1] = encoder.length;
+            titleEnds[row] = encoder.titleEnd - offsets[row];
+        }
+        return new FilmFragments(encoder.toByteArray(), offsets, titleEnds);
+    }
+
+    /**
+     * Copies the fragments of this instance and re-encodes only the given rows from the catalog.
+     * @param catalog catalog holding the current values
+     * @param changedRows row ids to re-encode, ascending
+     * @return new fragments, this instance is left untouched
+     */
+    FilmFragments reencode(final FilmCatalog catalog, final int[] changedRows) {
+        final Encoder encoder = new Encoder(data.length + changedRows.length * 8);
+        final int[] newOffsets = new int[offsets.length];
+        final int[] newTitleEnds = titleEnds.clone();
+        int unchangedFrom = 0;
+        for (int changedRow : changedRows) {
+            encoder.copy(data, offsets[unchangedFrom], offsets[changedRow] - offsets[unchangedFrom]);
+            for (int row = unchangedFrom; row < changedRow; row++) {
+                newOffsets[row + 1] = newOffsets[row] + fragmentLength(row);
+            }
+            encoder.film(catalog, changedRow);
+            newOffsets[changedRow + 1] = encoder.length;
+            newTitleEnds[changedRow] = encoder.titleEnd - newOffsets[changedRow];
+            unchangedFrom = changedRow + 1;
+        }
+        final int size = offsets.length - 1;
+        encoder.copy(data, offsets[unchangedFrom], offsets[size] - offsets[unchangedFrom]);
+        for (int row = unchangedFrom; row < size; row++) {
+            newOffsets[row + 1] = newOffsets[row] + fragmentLength(row);
+        }
+        return new FilmFragments(encoder.toByteArray(), newOffsets, newTitleEnds);
+    }
+
+    /**
+     * Writes the encoded json object of the given row.
+     * @param row row id
+     * @param out target stream
+     * @throws IOException if the stream fails
+     */
+    void writeTo(final int row, final OutputStream out) throws IOException {
+        out.write(data, offsets[row], fragmentLength(row));
+    }
+
+    /**
+     * Writes the json objects of the given rows with the fields of the projection only. The fields of a fragment are in the order of {@link FilmProjection.Field}, the
+     * first one is the title, whose end is kept per row, and none of the others contains a comma.
+     * So every field is a segment found by splitting the rest of the fragment at its commas,
+     * only the included segments are copied and nothing is encoded. A fragment is only read up
+     * to the end of its last included field.
+     * @param rows row ids in result order
+     * @param count number of rows to write from the start of the array
+     * @param projection fields to write
+     * @param separator byte between two objects
+     * @param out target stream
+     * @throws IOException if the stream fails
+     */
+    void writeProjected(final int[] rows, final int count, final FilmProjection projection, final byte separator,
+                        final OutputStream out) throws IOException {
+        final FilmProjection.Field[] fields = FilmProjection.Field.values();
+        int lastField = fields.length - 1;
+        while (!projection.includes(fields[lastField])) {
+            lastField--;
+        }
+        byte[] buffer = new byte[PROJECTION_BUFFER_SIZE];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            final int row = rows[i];
+            final int end = offsets[row + 1] - 1;
+            // a projected object is never longer than the fragment and its separator
+            if (length + fragmentLength(row) + 1 > buffer.length) {
+                out.write(buffer, 0, length);
+                length = 0;
+                if (fragmentLength(row) + 1 > buffer.length) {
+                    buffer = new byte[fragmentLength(row) + 1];
+                }
+            }
+            if (i > 0) {
+                buffer[length++] = separator;
+            }
+            buffer[length++] = '{';
+            final int start = length;
+            int from = offsets[row] + 1;
+            int to = offsets[row] + titleEnds[row];
+            for (int field = 0; field <= lastField; field++) {
+                if (field > 0) {
+                    from = to + 1;
+                    to = from;
+                    while (to < end && data[to] != ',') {
+                        to++;
+                    }
+                }
+                if (projection.includes(fields[field])) {
+                    if (length > start) {
+                        buffer[length++] = ',';
+                    }
+                    System.arraycopy(data, from, buffer, length, to - from);
+                    length += to - from;
+                }
+            }
+            buffer[length++] = '}';
+        }
+        out.write(buffer, 0, length);
+    }
+
+    int fragmentLength(final int row) {
+        return offsets[row + 1] - offsets[row];
+    }
+
+    /**
+     * @return heap used by the fragments in bytes, without object headers
+     */
+    long sizeInBytes() {
+        return data.length + (long) (offsets.length + titleEnds.length) * Integer.BYTES;
+    }
+
+    private static byte[] ascii(final String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Growing byte buffer writing the fragments of rows.
+     */
+    private static final class Encoder {
+
+        private byte[] buffer;
+        private int length;
+        private int titleEnd;
+
+        Encoder(final int capacity) {
+            buffer = new byte[Math.max(capacity, 16)];
+        }
+
+        void film(final FilmCatalog catalog, final int row) {
+            copy(TITLE_PREFIX);
+            title(catalog.titles(), row);
+            titleEnd = length + 1;
+            copy(YEAR_PREFIX);
+            integer(catalog.getYear(row));
+            copy(AWARDS_PREFIX);
+            integer(catalog.getAwards(row));
+            copy(NOMINATIONS_PREFIX);
+            integer(catalog.getNominations(row));
+            copy(BEST_PICTURE_PREFIX);
+            copy(catalog.isBestPicture(row) ? TRUE : FALSE);
+            copy(REFERENCES_PREFIX);
+            integer(catalog.getNumberOfReferences(row));
+            put((byte) '}');
+        }
+
+        /**
+         * Copies the pooled UTF-8 title, escaping quotes, backslashes, control chars and the
+         * line and paragraph separators (E2 80 A8 / E2 80 A9). None of them can be part of
+         * another multi byte sequence, so the bytes never have to be decoded.
+         * @param titles
+         * @param row
+         */
+        void title(final TitlePool titles, final int row) {
+            final int end = titles.offset(row + 1);
+            for (int i = titles.offset(row); i < end; i++) {
+                final byte b = titles.byteAt(i);
+                if (b == '"' || b == '\\') {
+                    put((byte) '\\');
+                    put(b);
+                } else if (b >= 0 && b < 0x20) {
+                    escape(b);
+                } else if (b == (byte) 0xE2 && i + 2 < end && titles.byteAt(i + 1) == (byte) 0x80
+                        && (titles.byteAt(i + 2) == (byte) 0xA8 || titles.byteAt(i + 2) == (byte) 0xA9)) {
+                    escape(titles.byteAt(i + 2) == (byte) 0xA8 ? 0x2028 : 0x2029);
+                    i += 2;
+                } else {
+                    put(b);
+                }
+            }
+        }
+
+        void integer(final int value) {
+            if (value < 0) {
+                put((byte) '-');
+                digits(-(long) value);
+            } else {
+                digits(value);
+            }
+        }
+
+        private void digits(final long value) {
+            if (value >= 10) {
+                digits(value / 10);
+            }
+            put((byte) ('0' + value % 10));
+        }
+
+        void copy(final byte[] bytes) {
+            copy(bytes, 0, bytes.length);
+        }
+
+        void copy(final byte[] bytes, final int offset, final int count) {
+            ensure(count);
+            System.arraycopy(bytes, offset, buffer, length, count);
+            length += count;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+
+        private void escape(final int c) {
+            put((byte) '\\');
+            switch (c) {
+                case '\n':
+                    put((byte) 'n');
+                    break;
+                case '\r':
+                    put((byte) 'r');
+                    break;
+                case '\t':
+                    put((byte) 't');
+                    break;
+                default:
+                    put((byte) 'u');
+                    put(HEX[(c >> 12) & 0xF]);
+                    put(HEX[(c >> 8) & 0xF]);
+                    put(HEX[(c >> 4) & 0xF]);
+                    put(HEX[c & 0xF]);
+            }
+        }
+
+        private void put(final byte b) {
+            ensure(1);
+            buffer[length++] = b;
+        }
+
+        private void ensure(final int count) {
+            if (length + count > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+            }
+        }
+    }
+}
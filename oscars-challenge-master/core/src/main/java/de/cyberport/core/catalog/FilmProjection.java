@@ -0,0 +1,129 @@
+package de.cyberport.core.catalog;
+
+import de.cyberport.core.constants.OscarConstants;
+
+/**
+ * Immutable, parsed form of the fields parameter: the properties written for every film of a
+ * response, e.g. {@code title,year}.
+ *
+ * The fields are always written in the documented order of the response, whatever their order
+ * in the parameter. Unsupported fields are ignored, without any supported field all of them are
+ * written. Every projection is answered from the pre-encoded fragments of the catalog: only the
+ * bytes of the included fields are copied, nothing is encoded or filtered per response.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmProjection {
+
+    /**
+     * Properties of a film in the response, in their documented order.
+     */
+    public enum Field {
+        TITLE(OscarConstants.TITLE),
+        YEAR(OscarConstants.YEAR),
+        AWARDS(OscarConstants.AWARDS),
+        NOMINATIONS(OscarConstants.NOMINATIONS),
+        IS_BEST_PICTURE(OscarConstants.IS_BEST_PICTURE),
+        NUMBER_OF_REFERENCES(OscarConstants.NUMBER_OF_REFERENCES);
+
+        private final String parameter;
+
+        Field(final String parameter) {
+            this.parameter = parameter;
+        }
+
+        /**
+         * @return name of the property in the response and in the fields parameter
+         */
+        public String getParameter() {
+            return parameter;
+        }
+
+        int bit() {
+            return 1 << ordinal();
+        }
+
+        /**
+         * @param value name of the field, case insensitive
+         * @return matching field, null for missing or unsupported values
+         */
+        static Field from(final String value) {
+            for (Field field : values()) {
+                if (field.parameter.equalsIgnoreCase(value)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final int ALL_FIELDS = (1 << Field.values().length) - 1;
+
+    public static final FilmProjection ALL = new FilmProjection(ALL_FIELDS);
+
+    private static final char SEPARATOR = ',';
+
+    private final int fields;
+    private final String canonicalForm;
+
+    private FilmProjection(final int fields) {
+        this.fields = fields;
+        final StringBuilder form = new StringBuilder();
+        for (Field field : Field.values()) {
+            if (includes(field)) {
+                if (form.length() > 0) {
+                    form.append(SEPARATOR);
+                }
+                form.append(field.getParameter());
+            }
+        }
+        this.canonicalForm = form.toString();
+    }
+
+    /**
+     * @param value request value, comma separated field names, case insensitive
+     * @return parsed projection, {@link #ALL} for a missing value or one without supported fields
+     */
+    public static FilmProjection parse(final String value) {
+        if (value == null) {
+            return ALL;
+        }
+        int fields = 0;
+        for (String part : value.split(String.valueOf(SEPARATOR))) {
+            final Field field = Field.from(part.trim());
+            if (field != null) {
+                fields |= field.bit();
+            }
+        }
+        return fields == 0 || fields == ALL_FIELDS ? ALL : new FilmProjection(fields);
+    }
+
+    public boolean includes(final Field field) {
+        return (fields & field.bit()) != 0;
+    }
+
+    /**
+     * @return true if every field is written
+     */
+    public boolean isAll() {
+        return fields == ALL_FIELDS;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof FilmProjection && fields == ((FilmProjection) other).fields;
+    }
+
+    @Override
+    public int hashCode() {
+        return fields;
+    }
+
+    /**
+     * @return canonical request value, e.g. {@code title,year}
+     */
+    @Override
+    public String toString() {
+        return canonicalForm;
+    }
+}
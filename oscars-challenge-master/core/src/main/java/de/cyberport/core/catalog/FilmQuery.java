@@ -0,0 +1,254 @@
+package de.cyberport.core.catalog;
+
+import de.cyberport.core.constants.OscarConstants;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.function.UnaryOperator;
+
+import static de.cyberport.core.constants.OscarConstants.*;
+
+/**
+ * Immutable, parsed form of the supported request parameters.
+ * Every value is parsed once here, so the query engine only compares primitives.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmQuery {
+
+    public static final int NO_LIMIT = -1;
+
+    /**
+     * Supported sort keys, see {@link FilmSort} for their combination and direction.
+     */
+    public enum SortBy {
+        TITLE(OscarConstants.TITLE),
+        YEAR(OscarConstants.YEAR),
+        AWARDS(OscarConstants.AWARDS),
+        NOMINATIONS(OscarConstants.NOMINATIONS),
+        NUMBER_OF_REFERENCES(OscarConstants.NUMBER_OF_REFERENCES);
+
+        private final String parameter;
+
+        SortBy(final String parameter) {
+            this.parameter = parameter;
+        }
+
+        /**
+         * @return name of the key in the sortBy parameter
+         */
+        public String getParameter() {
+            return parameter;
+        }
+
+        /**
+         * @param value name of the key in the sortBy parameter, case insensitive
+         * @return matching sort key, null for missing or unsupported values
+         */
+        static SortBy from(final String value) {
+            if (value != null) {
+                for (SortBy sortBy : values()) {
+                    if (sortBy.parameter.equalsIgnoreCase(value)) {
+                        return sortBy;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private final String title;
+    private final Integer year;
+    private final Integer minYear;
+    private final Integer maxYear;
+    private final Integer minAwards;
+    private final Integer maxAwards;
+    private final Integer nominations;
+    private final Boolean isBestPicture;
+    private final FilmSort sort;
+    private final int limit;
+    private final FilmCursor cursor;
+    private final FilmProjection projection;
+    private final String canonicalForm;
+
+    private FilmQuery(final UnaryOperator<String> parameters) {
+        title = text(parameters.apply(TITLE));
+        year = number(parameters.apply(YEAR));
+        minYear = number(parameters.apply(MIN_YEAR));
+        maxYear = number(parameters.apply(MAX_YEAR));
+        minAwards = number(parameters.apply(MIN_AWARDS));
+        maxAwards = number(parameters.apply(MAX_AWARDS));
+        nominations = number(parameters.apply(NOMINATIONS));
+        final String bestPicture = text(parameters.apply(IS_BEST_PICTURE));
+        isBestPicture = bestPicture == null ? null : Boolean.parseBoolean(bestPicture);
+        sort = FilmSort.parse(text(parameters.apply(SORT_BY)));
+        final Integer limitValue = number(parameters.apply(LIMIT));
+        if (limitValue != null && limitValue < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limitValue);
+        }
+        limit = limitValue == null ? NO_LIMIT : limitValue;
+        final String cursorValue = text(parameters.apply(CURSOR));
+        cursor = cursorValue == null ? null : FilmCursor.parse(cursorValue);
+        if (cursor != null && !cursor.getSort().equals(sort)) {
+            throw new IllegalArgumentException("cursor belongs to another sortBy than " + sort);
+        }
+        projection = FilmProjection.parse(text(parameters.apply(FIELDS)));
+        canonicalForm = canonicalForm();
+    }
+
+    /**
+     * Parses the supported parameters, e.g. {@code FilmQuery.parse(request::getParameter)}.
+     * Missing and empty parameters are ignored.
+     * @param parameters lookup of a parameter value by its name
+     * @return parsed query
+     * @throws IllegalArgumentException if a numeric parameter or the cursor is not valid
+     */
+    public static FilmQuery parse(final UnaryOperator<String> parameters) {
+        return new FilmQuery(parameters);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public Integer getMinYear() {
+        return minYear;
+    }
+
+    public Integer getMaxYear() {
+        return maxYear;
+    }
+
+    /**
+     * @return first year a matching film can have, combining year and minYear
+     */
+    public int getFirstYear() {
+        final int first = minYear == null ? Integer.MIN_VALUE : minYear;
+        return year == null ? first : Math.max(first, year);
+    }
+
+    /**
+     * @return last year a matching film can have, combining year and maxYear
+     */
+    public int getLastYear() {
+        final int last = maxYear == null ? Integer.MAX_VALUE : maxYear;
+        return year == null ? last : Math.min(last, year);
+    }
+
+    public Integer getMinAwards() {
+        return minAwards;
+    }
+
+    public Integer getMaxAwards() {
+        return maxAwards;
+    }
+
+    public Integer getNominations() {
+        return nominations;
+    }
+
+    public Boolean getIsBestPicture() {
+        return isBestPicture;
+    }
+
+    public FilmSort getSort() {
+        return sort;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return position to continue a paged result at, null for the first page
+     */
+    public FilmCursor getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return fields to write per film, does not change which films match
+     */
+    public FilmProjection getProjection() {
+        return projection;
+    }
+
+    /**
+     * Unique text of the query, the same for all requests with equal results: the parameters are
+     * in a fixed order, the title is folded to lower case and sortBy and limit have their defaults
+     * applied, e.g. {@code title=parasite&year=2019&sortBy=title&limit=-1}
+     * @return canonical form of the query
+     */
+    public String getCanonicalForm() {
+        return canonicalForm;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof FilmQuery && canonicalForm.equals(((FilmQuery) other).canonicalForm);
+    }
+
+    @Override
+    public int hashCode() {
+        return canonicalForm.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return canonicalForm;
+    }
+
+    private String canonicalForm() {
+        final StringBuilder form = new StringBuilder();
+        if (title != null) {
+            final char[] folded = title.toCharArray();
+            for (int i = 0; i < folded.length; i++) {
+                folded[i] = Character.toLowerCase(Character.toUpperCase(folded[i]));
+            }
+            form.append(TITLE).append('=').append(encode(new String(folded))).append('&');
+        }
+        append(form, YEAR, year);
+        append(form, MIN_YEAR, minYear);
+        append(form, MAX_YEAR, maxYear);
+        append(form, MIN_AWARDS, minAwards);
+        append(form, MAX_AWARDS, maxAwards);
+        append(form, NOMINATIONS, nominations);
+        append(form, IS_BEST_PICTURE, isBestPicture);
+        form.append(SORT_BY).append('=').append(sort).append('&');
+        form.append(LIMIT).append('=').append(limit);
+        if (cursor != null) {
+            form.append('&').append(CURSOR).append('=').append(cursor.toToken());
+        }
+        if (!projection.isAll()) {
+            form.append('&').append(FIELDS).append('=').append(projection);
+        }
+        return form.toString();
+    }
+
+    private static void append(final StringBuilder form, final String name, final Object value) {
+        if (value != null) {
+            form.append(name).append('=').append(value).append('&');
+        }
+    }
+
+    private static String encode(final String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String text(final String value) {
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
+
+    private static Integer number(final String value) {
+        return text(value) == null ? null : Integer.valueOf(value.trim());
+    }
+}
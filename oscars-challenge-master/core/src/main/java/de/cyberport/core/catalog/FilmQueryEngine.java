@@ -0,0 +1,572 @@
+package de.cyberport.core.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Evaluates a {@link FilmQuery} against a {@link FilmCatalog}.
+ *
+ * Exact match filters (year, nominations, isBestPicture) are answered by intersecting the
+ * bitmap indexes of the catalog word by word, min/max filters on year and awards by slices of
+ * the range indexes and the title filter by a hash index lookup. Only the rows of the most
+ * selective of them are tested against the rest. Sorting never compares objects, every sort
+ * is reduced to primitive keys with the title rank of the catalog as tiebreak, see {@link CompiledSort}.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmQueryEngine {
+
+    /**
+     * A bounded heap selects the result if the limit is less than 1/8 of the matches
+     */
+    private static final int TOP_K_RATIO = 8;
+
+    /**
+     * Largest value range which is always counting sorted, wider ranges only up to the number of matches
+     */
+    private static final int MAX_BUCKETS = 4096;
+
+    private FilmQueryEngine() {
+    }
+
+    /**
+     * Filters, sorts and limits the rows of the catalog.
+     *
+     * Ties in the requested sort are broken by title and then by row id. If the sort has a
+     * precomputed permutation (one ascending key other than numberOfReferences) and a limit
+     * would be reached after a short walk over it, the permutation is walked and every row
+     * tested until enough rows match. Otherwise the matches are collected through the indexes
+     * first: a limit well below their number is answered by a bounded heap of packed sort keys
+     * without sorting all matches, else the matches are counting sorted by a single small-domain
+     * column (year, awards, nominations), sorted by title rank or by their packed sort keys.
+     *
+     * A cursor of the query is resolved to its rank in the permutation of the sort: the walk
+     * starts there, collected matches are only kept from there on. Without a permutation only
+     * the matches after the cursor are kept. Either way a page costs the same at any depth.
+     * @param catalog film catalog
+     * @param query parsed query
+     * @return matching row ids in result order
+     */
+    public static int[] execute(final FilmCatalog catalog, final FilmQuery query) {
+        return execute(catalog, query, new Selection(catalog, query));
+    }
+
+    private static int[] execute(final FilmCatalog catalog, final FilmQuery query, final Selection selection) {
+        final SortPermutation order = query.getSort().permutation(catalog);
+        final FilmCursor cursor = query.getCursor();
+        final int start = start(catalog, query, order);
+        if (isWalked(catalog, query, order, selection)) {
+            return walk(catalog, query, selection, start, query.getLimit());
+        }
+
+        int[] matches = match(catalog, query, selection);
+        if (start > 0) {
+            matches = from(order, start, matches);
+        } else if (cursor != null && order == null) {
+            matches = after(catalog, cursor, matches);
+        }
+        final int limit = query.getLimit() == FilmQuery.NO_LIMIT
+                ? matches.length : Math.min(query.getLimit(), matches.length);
+        if (limit == 0) {
+            return new int[0];
+        }
+        if ((long) limit * TOP_K_RATIO < matches.length) {
+            return topK(catalog, query.getSort(), matches, limit);
+        }
+        final int[] sorted = sort(catalog, query.getSort(), matches);
+        return limit < sorted.length ? Arrays.copyOf(sorted, limit) : sorted;
+    }
+
+    /**
+     * Executes several queries on the same catalog, e.g. the lists of one page, with the result
+     * of every query being the one of {@link #execute(FilmCatalog, FilmQuery)}.
+     *
+     * Queries that would each walk the same sort permutation share a single walk: every visited
+     * row is tested against the filters of all of them, and the walk ends once all limits are
+     * reached. All other queries are answered through the indexes of the catalog one by one.
+     * @param catalog film catalog
+     * @param queries parsed queries
+     * @return matching row ids in result order, per query
+     */
+    public static int[][] executeAll(final FilmCatalog catalog, final FilmQuery[] queries) {
+        final int[][] results = new int[queries.length][];
+        final Selection[] selections = new Selection[queries.length];
+        final Map<SortPermutation, List<Integer>> walks = new IdentityHashMap<>();
+        for (int i = 0; i < queries.length; i++) {
+            selections[i] = new Selection(catalog, queries[i]);
+            final SortPermutation order = queries[i].getSort().permutation(catalog);
+            if (isWalked(catalog, queries[i], order, selections[i])) {
+                walks.computeIfAbsent(order, key -> new ArrayList<>()).add(i);
+            } else {
+                results[i] = execute(catalog, queries[i], selections[i]);
+            }
+        }
+        for (Map.Entry<SortPermutation, List<Integer>> walk : walks.entrySet()) {
+            walkAll(catalog, walk.getKey(), queries, selections, walk.getValue(), results);
+        }
+        return results;
+    }
+
+    /**
+     * Passes the result rows of the query to the action, in result order.
+     *
+     * For a sort with a precomputed permutation the permutation is walked and every matching row
+     * is passed on as soon as it is found, without collecting the result, so the first rows are
+     * available right away and no memory depends on the number of matches. Other sorts and title
+     * filters are executed first.
+     * @param catalog film catalog
+     * @param query parsed query
+     * @param action receives the matching row ids in result order
+     */
+    public static void forEach(final FilmCatalog catalog, final FilmQuery query, final IntConsumer action) {
+        final SortPermutation order = query.getSort().permutation(catalog);
+        if (order == null || query.getTitle() != null) {
+            for (int row : execute(catalog, query)) {
+                action.accept(row);
+            }
+            return;
+        }
+        final Selection selection = new Selection(catalog, query);
+        final IntPredicate filter = residualFilter(catalog, query,
+                selection.candidates, selection.years, selection.awards);
+        final int start = start(catalog, query, order);
+        int remaining = query.getLimit() == FilmQuery.NO_LIMIT ? Integer.MAX_VALUE : query.getLimit();
+        for (int rank = start; rank < order.size() && remaining > 0; rank++) {
+            final int row = order.row(rank);
+            if (filter.test(row)) {
+                action.accept(row);
+                remaining--;
+            }
+        }
+    }
+
+    /**
+     * Continuation of a paged result after its cursor
+     * @param catalog film catalog
+     * @param query executed query
+     * @param rows result of the query
+     * @return cursor after the last row if the page is full, otherwise null
+     */
+    public static FilmCursor nextCursor(final FilmCatalog catalog, final FilmQuery query, final int[] rows) {
+        return query.getLimit() > 0 && rows.length == query.getLimit()
+                ? FilmCursor.after(catalog, query.getSort(), rows[rows.length - 1]) : null;
+    }
+
+    /**
+     * @param catalog
+     * @param query
+     * @param order permutation of the sort of the query, null if there is none
+     * @return rank in the permutation the result starts at
+     */
+    private static int start(final FilmCatalog catalog, final FilmQuery query, final SortPermutation order) {
+        return query.getCursor() == null || order == null ? 0 : query.getCursor().seek(catalog, order);
+    }
+
+    /**
+     * @param catalog
+     * @param query
+     * @param order permutation of the sort of the query, null if there is none
+     * @param selection
+     * @return true if the result is found by walking the permutation
+     */
+    private static boolean isWalked(final FilmCatalog catalog, final FilmQuery query, final SortPermutation order,
+                                    final Selection selection) {
+        return order != null && query.getLimit() != FilmQuery.NO_LIMIT && query.getTitle() == null
+                && prefersWalk(catalog.size(), selection.estimate(), query.getLimit());
+    }
+
+    /**
+     * The walk visits about {@code limit * size / matches} rows, collecting through the indexes
+     * about as many rows as match. The estimate of the indexes is an upper bound of the matches.
+     * @param size
+     * @param estimate
+     * @param limit
+     * @return true if walking the sort order is expected to touch fewer rows
+     */
+    static boolean prefersWalk(final int size, final int estimate, final int limit) {
+        return (long) limit * size < (long) estimate * estimate;
+    }
+
+    /**
+     * Walks the rows in the permutation of the requested sort from the given rank on and stops
+     * as soon as the limit is reached
+     * @param catalog
+     * @param query
+     * @param selection
+     * @param start
+     * @param limit
+     * @return first matching rows of the sort order
+     */
+    static int[] walk(final FilmCatalog catalog, final FilmQuery query, final Selection selection,
+                      final int start, final int limit) {
+        final SortPermutation order = query.getSort().permutation(catalog);
+        final IntPredicate filter = residualFilter(catalog, query,
+                selection.candidates, selection.years, selection.awards);
+        final int[] rows = new int[Math.min(limit, selection.estimate())];
+        int found = 0;
+        for (int rank = start; rank < order.size() && found < rows.length; rank++) {
+            final int row = order.row(rank);
+            if (filter.test(row)) {
+                rows[found++] = row;
+            }
+        }
+        return found < rows.length ? Arrays.copyOf(rows, found) : rows;
+    }
+
+    /**
+     * Walks one permutation for several queries of that sort at once, each of them from the rank
+     * of its cursor on, until every query has reached its limit
+     * @param catalog
+     * @param order
+     * @param queries
+     * @param selections
+     * @param indexes positions of the walked queries in the arrays
+     * @param results receives the rows of the walked queries
+     */
+    private static void walkAll(final FilmCatalog catalog, final SortPermutation order, final FilmQuery[] queries,
+                                final Selection[] selections, final List<Integer> indexes, final int[][] results) {
+        final int count = indexes.size();
+        final IntPredicate[] filters = new IntPredicate[count];
+        final int[] starts = new int[count];
+        final int[][] rows = new int[count][];
+        final int[] found = new int[count];
+        int from = order.size();
+        int pending = 0;
+        for (int j = 0; j < count; j++) {
+            final FilmQuery query = queries[indexes.get(j)];
+            final Selection selection = selections[indexes.get(j)];
+            filters[j] = residualFilter(catalog, query, selection.candidates, selection.years, selection.awards);
+            starts[j] = start(catalog, query, order);
+            rows[j] = new int[Math.min(query.getLimit(), selection.estimate())];
+            if (rows[j].length > 0) {
+                from = Math.min(from, starts[j]);
+                pending++;
+            }
+        }
+        for (int rank = from; rank < order.size() && pending > 0; rank++) {
+            final int row = order.row(rank);
+            for (int j = 0; j < count; j++) {
+                if (found[j] < rows[j].length && rank >= starts[j] && filters[j].test(row)) {
+                    rows[j][found[j]++] = row;
+                    if (found[j] == rows[j].length) {
+                        pending--;
+                    }
+                }
+            }
+        }
+        for (int j = 0; j < count; j++) {
+            results[indexes.get(j)] = found[j] < rows[j].length ? Arrays.copyOf(rows[j], found[j]) : rows[j];
+        }
+    }
+
+    /**
+     * Finds the rows matching all filters of the query.
+     *
+     * A title filter always drives the evaluation through the title index. Otherwise the smallest
+     * of the exact match bitmap and the year and awards range slices drives it. All other filters
+     * are only tested on the rows yielded by the driver.
+     * @param catalog
+     * @param query
+     * @return matching row ids in row order
+     */
+    static int[] match(final FilmCatalog catalog, final FilmQuery query) {
+        return match(catalog, query, new Selection(catalog, query));
+    }
+
+    private static int[] match(final FilmCatalog catalog, final FilmQuery query, final Selection selection) {
+        final BitSet candidates = selection.candidates;
+        final RangeIndex.Slice years = selection.years;
+        final RangeIndex.Slice awards = selection.awards;
+
+        if (query.getTitle() != null) {
+            final IntPredicate filter = residualFilter(catalog, query, candidates, years, awards);
+            return Arrays.stream(catalog.titleIndex().lookup(query.getTitle())).filter(filter).toArray();
+        }
+
+        final int candidateCount = candidates == null ? Integer.MAX_VALUE : candidates.cardinality();
+        final int yearCount = years == null ? Integer.MAX_VALUE : years.size();
+        final int awardsCount = awards == null ? Integer.MAX_VALUE : awards.size();
+
+        if (candidates != null && candidateCount <= Math.min(yearCount, awardsCount)) {
+            final IntPredicate filter = residualFilter(catalog, query, null, years, awards);
+            return candidates.stream().filter(filter).toArray();
+        }
+        if (years != null && yearCount <= awardsCount) {
+            return sortedRowIds(scan(years, residualFilter(catalog, query, candidates, null, awards)));
+        }
+        if (awards != null) {
+            return sortedRowIds(scan(awards, residualFilter(catalog, query, candidates, years, null)));
+        }
+        return IntStream.range(0, catalog.size()).toArray();
+    }
+
+    /**
+     * Intersects the bitmaps of all exact match filters, smallest first
+     * @param catalog
+     * @param query
+     * @return bitmap of the candidate rows, null when the query has no exact match filter
+     */
+    static BitSet matchExact(final FilmCatalog catalog, final FilmQuery query) {
+        final List<BitSet> bitmaps = new ArrayList<>(3);
+        if (query.getYear() != null) {
+            bitmaps.add(catalog.yearIndex().get(query.getYear()));
+        }
+        if (query.getNominations() != null) {
+            bitmaps.add(catalog.nominationsIndex().get(query.getNominations()));
+        }
+        if (Boolean.TRUE.equals(query.getIsBestPicture())) {
+            bitmaps.add(catalog.bestPictureRows());
+        }
+
+        final boolean excludeBestPictures = Boolean.FALSE.equals(query.getIsBestPicture());
+        if (bitmaps.isEmpty() && !excludeBestPictures) {
+            return null;
+        }
+        if (bitmaps.contains(null)) {
+            return new BitSet();
+        }
+
+        final BitSet candidates;
+        if (bitmaps.isEmpty()) {
+            candidates = new BitSet(catalog.size());
+            candidates.set(0, catalog.size());
+        } else {
+            bitmaps.sort(Comparator.comparingInt(BitSet::cardinality));
+            candidates = (BitSet) bitmaps.get(0).clone();
+            for (int i = 1; i < bitmaps.size() && !candidates.isEmpty(); i++) {
+                candidates.and(bitmaps.get(i));
+            }
+        }
+        if (excludeBestPictures) {
+            candidates.andNot(catalog.bestPictureRows());
+        }
+        return candidates;
+    }
+
+    /**
+     * Predicate for the filters which are not answered by the driving index
+     * @param catalog
+     * @param query
+     * @param candidates exact match bitmap to probe, null if it drives or does not exist
+     * @param years year range to test, null if it drives or does not exist
+     * @param awards awards range to test, null if it drives or does not exist
+     * @return
+     */
+    private static IntPredicate residualFilter(final FilmCatalog catalog, final FilmQuery query,
+                                               final BitSet candidates, final RangeIndex.Slice years,
+                                               final RangeIndex.Slice awards) {
+        final List<IntPredicate> predicates = new ArrayList<>();
+
+        if (candidates != null) {
+            predicates.add(candidates::get);
+        }
+        if (years != null) {
+            final int minYear = query.getMinYear() == null ? Integer.MIN_VALUE : query.getMinYear();
+            final int maxYear = query.getMaxYear() == null ? Integer.MAX_VALUE : query.getMaxYear();
+            predicates.add(row -> catalog.getYear(row) >= minYear && catalog.getYear(row) <= maxYear);
+        }
+        if (awards != null) {
+            final int minAwards = query.getMinAwards() == null ? Integer.MIN_VALUE : query.getMinAwards();
+            final int maxAwards = query.getMaxAwards() == null ? Integer.MAX_VALUE : query.getMaxAwards();
+            predicates.add(row -> catalog.getAwards(row) >= minAwards && catalog.getAwards(row) <= maxAwards);
+        }
+
+        return predicates.stream().reduce(row -> true, IntPredicate::and);
+    }
+
+    /**
+     * Keeps the matches from the given rank of the sort order on
+     * @param order
+     * @param start
+     * @param matches
+     * @return
+     */
+    private static int[] from(final SortPermutation order, final int start, final int[] matches) {
+        return Arrays.stream(matches).filter(row -> order.rank(row) >= start).toArray();
+    }
+
+    /**
+     * Keeps the matches after the cursor, for sorts without a permutation
+     * @param catalog
+     * @param cursor
+     * @param matches
+     * @return
+     */
+    private static int[] after(final FilmCatalog catalog, final FilmCursor cursor, final int[] matches) {
+        return Arrays.stream(matches).filter(row -> cursor.precedes(catalog, row)).toArray();
+    }
+
+    /**
+     * Tests the filter on every row of the range slice
+     * @param slice
+     * @param filter
+     * @return matching row ids, ordered by the indexed value
+     */
+    private static int[] scan(final RangeIndex.Slice slice, final IntPredicate filter) {
+        final IntStream.Builder matches = IntStream.builder();
+        for (int i = 0; i < slice.size(); i++) {
+            final int row = slice.row(i);
+            if (filter.test(row)) {
+                matches.add(row);
+            }
+        }
+        return matches.build().toArray();
+    }
+
+    /**
+     * Restores row order, so ties in the requested sort order do not depend on the driving index
+     * @param rows
+     * @return
+     */
+    private static int[] sortedRowIds(final int[] rows) {
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Keeps the {@code limit} smallest packed sort keys of the matches in a bounded heap
+     * @param catalog
+     * @param sort
+     * @param matches
+     * @param limit
+     * @return first rows of the sort order
+     */
+    static int[] topK(final FilmCatalog catalog, final FilmSort sort, final int[] matches, final int limit) {
+        return CompiledSort.compile(catalog, sort, matches).top(matches, limit);
+    }
+
+    /**
+     * Sorts all matches: counting sort for a single ascending small-domain column, title rank
+     * sort for the title order, packed sort keys otherwise
+     * @param catalog
+     * @param sort
+     * @param matches
+     * @return
+     */
+    static int[] sort(final FilmCatalog catalog, final FilmSort sort, final int[] matches) {
+        final FilmQuery.SortBy single = sort.single();
+        if (single == FilmQuery.SortBy.TITLE) {
+            return sortByTitle(catalog, matches);
+        }
+        if (single != null) {
+            return countingSort(catalog, single, matches);
+        }
+        return CompiledSort.compile(catalog, sort, matches).sort(matches);
+    }
+
+    /**
+     * Sorts the matches by their rank in the title order of the catalog
+     * @param catalog
+     * @param matches
+     * @return
+     */
+    private static int[] sortByTitle(final FilmCatalog catalog, final int[] matches) {
+        final SortPermutation titleOrder = catalog.titleOrder();
+        final int[] ranks = new int[matches.length];
+        for (int i = 0; i < matches.length; i++) {
+            ranks[i] = titleOrder.rank(matches[i]);
+        }
+        Arrays.sort(ranks);
+        return toRows(titleOrder, ranks);
+    }
+
+    /**
+     * Distributes the matches into one bucket per column value and sorts every bucket by title rank.
+     * Falls back to sorting packed keys if the values are spread too wide for buckets.
+     * @param catalog
+     * @param sortBy numeric sort key
+     * @param matches
+     * @return
+     */
+    static int[] countingSort(final FilmCatalog catalog, final FilmQuery.SortBy sortBy, final int[] matches) {
+        final IntUnaryOperator column = catalog.column(sortBy);
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int row : matches) {
+            final int value = column.applyAsInt(row);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        final long domain = (long) max - min + 1;
+        if (domain > Math.max(MAX_BUCKETS, matches.length)) {
+            return CompiledSort.compile(catalog, FilmSort.of(sortBy), matches).sort(matches);
+        }
+
+        // counts[v] is the start of bucket v after the prefix sum and its end after the distribution
+        final int[] counts = new int[(int) domain + 1];
+        for (int row : matches) {
+            counts[column.applyAsInt(row) - min + 1]++;
+        }
+        for (int bucket = 1; bucket < counts.length; bucket++) {
+            counts[bucket] += counts[bucket - 1];
+        }
+        final SortPermutation titleOrder = catalog.titleOrder();
+        final int[] ranks = new int[matches.length];
+        for (int row : matches) {
+            ranks[counts[column.applyAsInt(row) - min]++] = titleOrder.rank(row);
+        }
+        int from = 0;
+        for (int bucket = 0; bucket < domain; bucket++) {
+            if (counts[bucket] - from > 1) {
+                Arrays.sort(ranks, from, counts[bucket]);
+            }
+            from = counts[bucket];
+        }
+        return toRows(titleOrder, ranks);
+    }
+
+    private static int[] toRows(final SortPermutation order, final int[] ranks) {
+        final int[] rows = new int[ranks.length];
+        for (int i = 0; i < ranks.length; i++) {
+            rows[i] = order.row(ranks[i]);
+        }
+        return rows;
+    }
+
+    /**
+     * Answers of the indexes for the exact match and range filters of a query, each of them
+     * null if the query has no such filter.
+     */
+    static final class Selection {
+
+        private final int size;
+        private final BitSet candidates;
+        private final RangeIndex.Slice years;
+        private final RangeIndex.Slice awards;
+
+        Selection(final FilmCatalog catalog, final FilmQuery query) {
+            this.size = catalog.size();
+            this.candidates = matchExact(catalog, query);
+            this.years = query.getMinYear() != null || query.getMaxYear() != null
+                    ? catalog.yearRange().range(query.getMinYear(), query.getMaxYear()) : null;
+            this.awards = query.getMinAwards() != null || query.getMaxAwards() != null
+                    ? catalog.awardsRange().range(query.getMinAwards(), query.getMaxAwards()) : null;
+        }
+
+        /**
+         * @return upper bound of the matching rows, ignoring the title filter
+         */
+        int estimate() {
+            int estimate = size;
+            if (candidates != null) {
+                estimate = Math.min(estimate, candidates.cardinality());
+            }
+            if (years != null) {
+                estimate = Math.min(estimate, years.size());
+            }
+            if (awards != null) {
+                estimate = Math.min(estimate, awards.size());
+            }
+            return estimate;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package de.cyberport.core.catalog;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable, parsed form of the sortBy parameter: a sequence of sort keys, each of them
+ * ascending or descending, e.g. {@code year,-awards,title}.
+ *
+ * Ties of all keys are broken by title and then by row id, so every sort is a total order and
+ * a trailing ascending title key is redundant. Unsupported and repeated keys are ignored, as are
+ * keys after the title, which is unique together with the row id already. Without any supported
+ * key the sort is by title.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmSort {
+
+    public static final FilmSort TITLE = of(FilmQuery.SortBy.TITLE);
+
+    private static final char SEPARATOR = ',';
+    private static final char DESCENDING = '-';
+
+    private final FilmQuery.SortBy[] keys;
+    private final boolean[] descending;
+    private final String canonicalForm;
+
+    private FilmSort(final FilmQuery.SortBy[] keys, final boolean[] descending) {
+        this.keys = keys;
+        this.descending = descending;
+        final StringBuilder form = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                form.append(SEPARATOR);
+            }
+            if (descending[i]) {
+                form.append(DESCENDING);
+            }
+            form.append(keys[i].getParameter());
+        }
+        this.canonicalForm = form.toString();
+    }
+
+    /**
+     * @param key sort key
+     * @return ascending sort by the key
+     */
+    public static FilmSort of(final FilmQuery.SortBy key) {
+        return new FilmSort(new FilmQuery.SortBy[] {key}, new boolean[] {false});
+    }
+
+    /**
+     * @param value request value, comma separated keys, case insensitive, descending ones prefixed by '-'
+     * @return parsed sort, by title for a missing value or one without supported keys
+     */
+    public static FilmSort parse(final String value) {
+        if (value == null) {
+            return TITLE;
+        }
+        final List<FilmQuery.SortBy> keys = new ArrayList<>();
+        final List<Boolean> descending = new ArrayList<>();
+        final Set<FilmQuery.SortBy> seen = EnumSet.noneOf(FilmQuery.SortBy.class);
+        for (String part : value.split(String.valueOf(SEPARATOR))) {
+            String name = part.trim();
+            final boolean isDescending = !name.isEmpty() && name.charAt(0) == DESCENDING;
+            if (isDescending) {
+                name = name.substring(1).trim();
+            }
+            final FilmQuery.SortBy key = FilmQuery.SortBy.from(name);
+            if (key != null && seen.add(key)) {
+                keys.add(key);
+                descending.add(isDescending);
+                if (key == FilmQuery.SortBy.TITLE) {
+                    break;
+                }
+            }
+        }
+        final int last = keys.size() - 1;
+        if (last > 0 && keys.get(last) == FilmQuery.SortBy.TITLE && !descending.get(last)) {
+            keys.remove(last);
+            descending.remove(last);
+        }
+        if (keys.isEmpty()) {
+            return TITLE;
+        }
+        final boolean[] flags = new boolean[descending.size()];
+        for (int i = 0; i < flags.length; i++) {
+            flags[i] = descending.get(i);
+        }
+        return new FilmSort(keys.toArray(new FilmQuery.SortBy[0]), flags);
+    }
+
+    /**
+     * @return number of keys, at least one
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    public FilmQuery.SortBy getKey(final int index) {
+        return keys[index];
+    }
+
+    public boolean isDescending(final int index) {
+        return descending[index];
+    }
+
+    /**
+     * @return the key of a sort by one ascending key, otherwise null
+     */
+    FilmQuery.SortBy single() {
+        return keys.length == 1 && !descending[0] ? keys[0] : null;
+    }
+
+    /**
+     * @param catalog film catalog
+     * @return precomputed permutation of the catalog in this order, null if there is none
+     */
+    SortPermutation permutation(final FilmCatalog catalog) {
+        final FilmQuery.SortBy key = single();
+        return key == null ? null : catalog.order(key);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof FilmSort && canonicalForm.equals(((FilmSort) other).canonicalForm);
+    }
+
+    @Override
+    public int hashCode() {
+        return canonicalForm.hashCode();
+    }
+
+    /**
+     * @return canonical request value, e.g. {@code year,-awards}
+     */
+    @Override
+    public String toString() {
+        return canonicalForm;
+    }
+}
@@ -0,0 +1,100 @@
+package de.cyberport.core.catalog;
+
+/**
+ * Title autocompletion on a {@link FilmCatalog}.
+ *
+ * Films whose title starts with the given prefix (ignoring case) come first, ranked by their
+ * number of references. If fuzzy matching is requested and there are not enough of them, films
+ * whose title starts with a slightly misspelled version of the prefix fill up the result, again
+ * ranked by references.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmSuggester {
+
+    private static final int MIN_LENGTH_ONE_EDIT = 3;
+    private static final int MIN_LENGTH_TWO_EDITS = 8;
+
+    private FilmSuggester() {
+    }
+
+    /**
+     * @param catalog film catalog
+     * @param prefix typed prefix of the title
+     * @param limit maximum number of suggestions
+     * @param fuzzy true to tolerate typos in the prefix
+     * @return row ids of the suggested films, best first
+     */
+    public static int[] suggest(final FilmCatalog catalog, final String prefix, final int limit, final boolean fuzzy) {
+        if (prefix == null || prefix.isEmpty() || limit <= 0 || catalog.size() == 0) {
+            return new int[0];
+        }
+        final TitleSuggestIndex index = catalog.suggestIndex();
+        final String folded = TitleSuggestIndex.fold(prefix);
+
+        final int[] exact = index.prefixRange(folded);
+        final BoundedLongHeap exactMatches = new BoundedLongHeap(limit);
+        offerRange(catalog, index, exactMatches, exact[0], exact[1]);
+
+        final int maxEdits = maxEdits(folded.length());
+        if (!fuzzy || maxEdits == 0 || exactMatches.size() == limit) {
+            return toRows(exactMatches.toSortedArray());
+        }
+
+        final BoundedLongHeap fuzzyMatches = new BoundedLongHeap(limit - exactMatches.size());
+        index.fuzzyPrefixRanges(folded, maxEdits, (from, to) -> {
+            // The exact range lies within one fuzzy range at most, it is skipped there
+            if (from <= exact[0] && exact[1] <= to && exact[0] < exact[1]) {
+                offerRange(catalog, index, fuzzyMatches, from, exact[0]);
+                offerRange(catalog, index, fuzzyMatches, exact[1], to);
+            } else {
+                offerRange(catalog, index, fuzzyMatches, from, to);
+            }
+        });
+
+        final int[] exactRows = toRows(exactMatches.toSortedArray());
+        final int[] fuzzyRows = toRows(fuzzyMatches.toSortedArray());
+        final int[] rows = new int[exactRows.length + fuzzyRows.length];
+        System.arraycopy(exactRows, 0, rows, 0, exactRows.length);
+        System.arraycopy(fuzzyRows, 0, rows, exactRows.length, fuzzyRows.length);
+        return rows;
+    }
+
+    /**
+     * Short prefixes must match exactly, otherwise almost every title would be a match
+     * @param length
+     * @return
+     */
+    static int maxEdits(final int length) {
+        if (length >= MIN_LENGTH_TWO_EDITS) {
+            return 2;
+        }
+        return length >= MIN_LENGTH_ONE_EDIT ? 1 : 0;
+    }
+
+    private static void offerRange(final FilmCatalog catalog, final TitleSuggestIndex index,
+                                   final BoundedLongHeap heap, final int from, final int to) {
+        for (int position = from; position < to; position++) {
+            heap.offer(rankKey(catalog, index.row(position)));
+        }
+    }
+
+    /**
+     * Smaller keys rank first: most references, then lowest row id
+     * @param catalog
+     * @param row
+     * @return
+     */
+    private static long rankKey(final FilmCatalog catalog, final int row) {
+        final long references = Math.max(0, catalog.getNumberOfReferences(row));
+        return ((Integer.MAX_VALUE - references) << 32) | row;
+    }
+
+    private static int[] toRows(final long[] keys) {
+        final int[] rows = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            rows[i] = (int) keys[i];
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,112 @@
+package de.cyberport.core.catalog;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Range index over a small, dense integer column.
+ *
+ * All row ids are stored once, ordered by their value (counting sort, so rows with the same
+ * value stay in row order), together with the start offset of every value. The rows of a range
+ * {@code [from, to]} are therefore one contiguous slice found with two array lookups.
+ *
+ * @author ritendra_singh
+ */
+final class RangeIndex {
+
+    private final int minValue;
+    private final int[] rows;
+    private final int[] offsets;
+
+    private RangeIndex(final int minValue, final int[] rows, final int[] offsets) {
+        this.minValue = minValue;
+        this.rows = rows;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Builds the index of a column.
+     * @param size number of rows
+     * @param column value of the column per row id
+     * @return
+     */
+    static RangeIndex build(final int size, final IntUnaryOperator column) {
+        if (size == 0) {
+            return new RangeIndex(0, new int[0], new int[1]);
+        }
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int row = 0; row < size; row++) {
+            final int value = column.applyAsInt(row);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        final int[] offsets = new int[max - min + 2];
+        for (int row = 0; row < size; row++) {
+            offsets[column.applyAsInt(row) - min + 1]++;
+        }
+        for (int slot = 1; slot < offsets.length; slot++) {
+            offsets[slot] += offsets[slot - 1];
+        }
+
+        final int[] next = offsets.clone();
+        final int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[next[column.applyAsInt(row) - min]++] = row;
+        }
+        return new RangeIndex(min, rows, offsets);
+    }
+
+    /**
+     * @return smallest value of the column
+     */
+    int minValue() {
+        return minValue;
+    }
+
+    /**
+     * @return largest value of the column, smaller than {@link #minValue()} if there are no rows
+     */
+    int maxValue() {
+        return minValue + offsets.length - 2;
+    }
+
+    /**
+     * @param from smallest value, inclusive, null for no lower bound
+     * @param to largest value, inclusive, null for no upper bound
+     * @return slice of the rows having a value within the range
+     */
+    Slice range(final Integer from, final Integer to) {
+        final int maxSlot = offsets.length - 2;
+        final long fromSlot = from == null ? 0 : Math.max(0L, (long) from - minValue);
+        final long toSlot = to == null ? maxSlot : Math.min(maxSlot, (long) to - minValue);
+        if (fromSlot > toSlot) {
+            return new Slice(rows, 0, 0);
+        }
+        return new Slice(rows, offsets[(int) fromSlot], offsets[(int) toSlot + 1]);
+    }
+
+    /**
+     * Contiguous part of the ordered row ids, ordered by value.
+     */
+    static final class Slice {
+
+        private final int[] rows;
+        private final int start;
+        private final int end;
+
+        private Slice(final int[] rows, final int start, final int end) {
+            this.rows = rows;
+            this.start = start;
+            this.end = end;
+        }
+
+        int size() {
+            return end - start;
+        }
+
+        int row(final int index) {
+            return rows[start + index];
+        }
+    }
+}
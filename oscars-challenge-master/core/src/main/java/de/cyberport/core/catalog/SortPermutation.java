@@ -0,0 +1,98 @@
+package de.cyberport.core.catalog;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Row ids of a catalog in a fixed sort order, together with the inverse mapping.
+ * {@code row(rank)} is the row at the given position, {@code rank(row)} its position, so the
+ * rank of a row is a unique, dense int key for that order.
+ *
+ * @author ritendra_singh
+ */
+final class SortPermutation {
+
+    private final int[] rows;
+    private final int[] ranks;
+
+    private SortPermutation(final int[] rows) {
+        this.rows = rows;
+        this.ranks = new int[rows.length];
+        for (int rank = 0; rank < rows.length; rank++) {
+            ranks[rows[rank]] = rank;
+        }
+    }
+
+    /**
+     * Orders the rows by title, ties by row id. Every title is decoded only once.
+     * @param size number of rows
+     * @param titles title pool of the rows
+     * @return title order
+     */
+    static SortPermutation byTitle(final int size, final TitlePool titles) {
+        final String[] decoded = new String[size];
+        final Integer[] order = new Integer[size];
+        for (int row = 0; row < size; row++) {
+            decoded[row] = titles.get(row);
+            order[row] = row;
+        }
+        // Object sort is stable, so equal titles keep their row order
+        Arrays.sort(order, Comparator.comparing(row -> decoded[row]));
+        return new SortPermutation(Arrays.stream(order).mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Orders the rows by the values of an int column, ties in the order of the given tiebreak.
+     * A counting sort over the tiebreak order, one slot per value between min and max.
+     * @param size number of rows
+     * @param column value of a row
+     * @param tiebreak order of rows with equal values
+     * @return column order
+     */
+    static SortPermutation byColumn(final int size, final IntUnaryOperator column, final SortPermutation tiebreak) {
+        if (size == 0) {
+            return new SortPermutation(new int[0]);
+        }
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int row = 0; row < size; row++) {
+            final int value = column.applyAsInt(row);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        final int[] offsets = new int[max - min + 2];
+        for (int row = 0; row < size; row++) {
+            offsets[column.applyAsInt(row) - min + 1]++;
+        }
+        for (int slot = 1; slot < offsets.length; slot++) {
+            offsets[slot] += offsets[slot - 1];
+        }
+        final int[] rows = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            final int row = tiebreak.row(rank);
+            rows[offsets[column.applyAsInt(row) - min]++] = row;
+        }
+        return new SortPermutation(rows);
+    }
+
+    int row(final int rank) {
+        return rows[rank];
+    }
+
+    int rank(final int row) {
+        return ranks[row];
+    }
+
+    int size() {
+        return rows.length;
+    }
+
+    /**
+     * @return heap used by both mappings in bytes, without object headers
+     */
+    long sizeInBytes() {
+        return (long) (rows.length + ranks.length) * Integer.BYTES;
+    }
+}
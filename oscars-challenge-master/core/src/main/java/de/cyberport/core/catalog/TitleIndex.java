@@ -0,0 +1,91 @@
+package de.cyberport.core.catalog;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Case insensitive hash index on the film titles.
+ *
+ * Only row ids are stored: a bucket table pointing to the first row of every chain, the next row
+ * per row and the hash per row. Keys are never kept as strings; a hit is verified against the
+ * pooled title with {@link String#equalsIgnoreCase(String)}, so duplicate titles of different
+ * years are all returned.
+ *
+ * @author ritendra_singh
+ */
+final class TitleIndex {
+
+    private static final int NONE = -1;
+
+    private final int[] buckets;
+    private final int[] next;
+    private final int[] hashes;
+    private final TitlePool titles;
+
+    private TitleIndex(final int[] buckets, final int[] next, final int[] hashes, final TitlePool titles) {
+        this.buckets = buckets;
+        this.next = next;
+        this.hashes = hashes;
+        this.titles = titles;
+    }
+
+    /**
+     * Builds the index of the pooled titles.
+     * @param size number of rows
+     * @param titles pooled titles of the catalog
+     * @return
+     */
+    static TitleIndex build(final int size, final TitlePool titles) {
+        final int[] buckets = new int[tableSize(size)];
+        Arrays.fill(buckets, NONE);
+        final int[] next = new int[size];
+        final int[] hashes = new int[size];
+
+        // Insert backwards, so every chain lists its rows in ascending order
+        for (int row = size - 1; row >= 0; row--) {
+            final int hash = hash(titles.get(row));
+            final int bucket = hash & (buckets.length - 1);
+            hashes[row] = hash;
+            next[row] = buckets[bucket];
+            buckets[bucket] = row;
+        }
+        return new TitleIndex(buckets, next, hashes, titles);
+    }
+
+    /**
+     * @param title title to look up, case insensitive
+     * @return ids of the rows with this title in row order, empty if there is none
+     */
+    int[] lookup(final String title) {
+        final int hash = hash(title);
+        final IntStream.Builder rows = IntStream.builder();
+        for (int row = buckets[hash & (buckets.length - 1)]; row != NONE; row = next[row]) {
+            if (hashes[row] == hash && title.equalsIgnoreCase(titles.get(row))) {
+                rows.add(row);
+            }
+        }
+        return rows.build().toArray();
+    }
+
+    /**
+     * Hash which is equal for all strings that are equal ignoring case: every char is folded the
+     * same way as {@link String#equalsIgnoreCase(String)} compares them
+     * @param title
+     * @return
+     */
+    static int hash(final String title) {
+        int hash = 0;
+        for (int i = 0; i < title.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(title.charAt(i)));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int tableSize(final int size) {
+        int tableSize = 1;
+        while (tableSize < size * 2 && tableSize < (1 << 30)) {
+            tableSize <<= 1;
+        }
+        return tableSize;
+    }
+}
@@ -0,0 +1,133 @@
+package de.cyberport.core.catalog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Stores all film titles of a catalog as UTF-8 in one shared byte array.
+ * The title of row {@code n} is found between {@code offsets[n]} and {@code offsets[n + 1]}.
+ *
+ * @author ritendra_singh
+ */
+public final class TitlePool {
+
+    private final byte[] data;
+    private final int[] offsets;
+
+    private TitlePool(final byte[] data, final int[] offsets) {
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @param row row id
+     * @return decoded title of the given row
+     */
+    public String get(final int row) {
+        return new String(data, offsets[row], offsets[row + 1] - offsets[row], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param row row id
+     * @return length of the encoded title in bytes
+     */
+    public int byteLength(final int row) {
+        return offsets[row + 1] - offsets[row];
+    }
+
+    /**
+     * Compares the title of the given row with an encoded title in the order of
+     * {@link String#compareTo(String)}, without decoding either.
+     *
+     * Unsigned UTF-8 bytes are in code point order, which is the UTF-16 order of strings except
+     * that supplementary characters, four bytes from lead 0xF0, come before U+E000 to U+FFFF,
+     * three bytes from lead 0xEE, as surrogate pairs. The first different byte of two titles is a
+     * lead byte whenever it decides between those, so only that case is turned around.
+     * @param row row id
+     * @param other UTF-8 encoded title
+     * @return negative, zero or positive as the title of the row is less, equal or greater
+     */
+    int compare(final int row, final byte[] other) {
+        final int start = offsets[row];
+        final int length = offsets[row + 1] - start;
+        final int common = Math.min(length, other.length);
+        for (int i = 0; i < common; i++) {
+            final int a = data[start + i] & 0xFF;
+            final int b = other[i] & 0xFF;
+            if (a != b) {
+                if (a >= 0xEE && b >= 0xEE && (a >= 0xF0) != (b >= 0xF0)) {
+                    return a >= 0xF0 ? -1 : 1;
+                }
+                return a - b;
+            }
+        }
+        return length - other.length;
+    }
+
+    /**
+     * Copies the encoded title of the given row, {@link #byteLength(int)} bytes.
+     * @param row row id
+     * @param target array to copy into
+     * @param offset index of the first byte in the target
+     */
+    void copyTo(final int row, final byte[] target, final int offset) {
+        System.arraycopy(data, offsets[row], target, offset, offsets[row + 1] - offsets[row]);
+    }
+
+    /**
+     * @param row row id
+     * @param out target stream of the encoded title
+     * @throws IOException if the stream fails
+     */
+    void writeTo(final int row, final OutputStream out) throws IOException {
+        out.write(data, offsets[row], offsets[row + 1] - offsets[row]);
+    }
+
+    /**
+     * @param row row id
+     * @return index of the first byte of the given row, {@code offset(row + 1)} is the end
+     */
+    int offset(final int row) {
+        return offsets[row];
+    }
+
+    byte byteAt(final int index) {
+        return data[index];
+    }
+
+    /**
+     * @return heap used by the pooled titles in bytes, without object headers
+     */
+    long sizeInBytes() {
+        return data.length + (long) offsets.length * Integer.BYTES;
+    }
+
+    /**
+     * Collects titles row by row.
+     */
+    static final class Builder {
+
+        private byte[] data = new byte[1024];
+        private int[] offsets = new int[65];
+        private int size;
+
+        void add(final String title) {
+            final byte[] encoded = title == null ? new byte[0] : title.getBytes(StandardCharsets.UTF_8);
+            final int start = offsets[size];
+            if (start + encoded.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, start + encoded.length));
+            }
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            System.arraycopy(encoded, 0, data, start, encoded.length);
+            offsets[++size] = start + encoded.length;
+        }
+
+        TitlePool build() {
+            return new TitlePool(Arrays.copyOf(data, offsets[size]), Arrays.copyOf(offsets, size + 1));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package de.cyberport.core.catalog;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Prefix index for title autocompletion.
+ *
+ * The titles are folded to one case (the same way {@link String#equalsIgnoreCase(String)}
+ * compares chars), sorted and stored in one char array. The sorted array is used as an implicit
+ * trie: all titles sharing a prefix form one contiguous range of positions, and the children of
+ * a range are found by binary searching the next char.
+ *
+ * @author ritendra_singh
+ */
+final class TitleSuggestIndex {
+
+    private static final int END = -1;
+
+    private final char[] keys;
+    private final int[] offsets;
+    private final int[] rows;
+
+    private TitleSuggestIndex(final char[] keys, final int[] offsets, final int[] rows) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.rows = rows;
+    }
+
+    /**
+     * Receives the matching ranges of sorted positions.
+     */
+    interface RangeConsumer {
+        void accept(int from, int to);
+    }
+
+    static TitleSuggestIndex build(final FilmCatalog catalog) {
+        final int size = catalog.size();
+        final String[] folded = new String[size];
+        final Integer[] order = new Integer[size];
+        int length = 0;
+        for (int row = 0; row < size; row++) {
+            folded[row] = fold(catalog.getTitle(row));
+            order[row] = row;
+            length += folded[row].length();
+        }
+        Arrays.sort(order, Comparator.comparing((Integer row) -> folded[row]).thenComparingInt(row -> row));
+
+        final char[] keys = new char[length];
+        final int[] offsets = new int[size + 1];
+        final int[] rows = new int[size];
+        for (int position = 0; position < size; position++) {
+            final String key = folded[order[position]];
+            key.getChars(0, key.length(), keys, offsets[position]);
+            offsets[position + 1] = offsets[position] + key.length();
+            rows[position] = order[position];
+        }
+        return new TitleSuggestIndex(keys, offsets, rows);
+    }
+
+    /**
+     * @param title
+     * @return title with every char folded like {@link String#equalsIgnoreCase(String)} does
+     */
+    static String fold(final String title) {
+        final char[] chars = title.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    int size() {
+        return rows.length;
+    }
+
+    /**
+     * @param position sorted position
+     * @return row id of the title at the position
+     */
+    int row(final int position) {
+        return rows[position];
+    }
+
+    /**
+     * @param prefix folded prefix
+     * @return sorted positions {@code [from, to)} of the titles starting with the prefix
+     */
+    int[] prefixRange(final String prefix) {
+        int from = 0;
+        int to = rows.length;
+        for (int depth = 0; depth < prefix.length() && from < to; depth++) {
+            final char c = prefix.charAt(depth);
+            from = lowerBound(from, to, depth, c);
+            to = lowerBound(from, to, depth, c + 1);
+        }
+        return new int[] {from, to};
+    }
+
+    /**
+     * Finds all titles having a prefix within {@code maxEdits} Levenshtein edits of the given
+     * prefix, by walking the implicit trie and pruning every branch whose edit distance row
+     * already exceeds the maximum.
+     * @param prefix folded prefix
+     * @param maxEdits maximum number of edits
+     * @param consumer receives the disjoint ranges of matching sorted positions
+     */
+    void fuzzyPrefixRanges(final String prefix, final int maxEdits, final RangeConsumer consumer) {
+        final int[] initial = new int[prefix.length() + 1];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = i;
+        }
+        walk(prefix, maxEdits, 0, rows.length, 0, initial, consumer);
+    }
+
+    private void walk(final String prefix, final int maxEdits, final int from, final int to, final int depth,
+                      final int[] distances, final RangeConsumer consumer) {
+        if (distances[prefix.length()] <= maxEdits) {
+            consumer.accept(from, to);
+            return;
+        }
+        // Titles ending at this depth sort first and cannot be extended any more
+        int child = lowerBound(from, to, depth, 0);
+        while (child < to) {
+            final int c = charAt(child, depth);
+            final int childEnd = lowerBound(child, to, depth, c + 1);
+
+            final int[] next = new int[distances.length];
+            next[0] = distances[0] + 1;
+            int min = next[0];
+            for (int i = 1; i < next.length; i++) {
+                final int substitution = distances[i - 1] + (prefix.charAt(i - 1) == c ? 0 : 1);
+                next[i] = Math.min(substitution, Math.min(distances[i], next[i - 1]) + 1);
+                min = Math.min(min, next[i]);
+            }
+            if (min <= maxEdits) {
+                walk(prefix, maxEdits, child, childEnd, depth + 1, next, consumer);
+            }
+            child = childEnd;
+        }
+    }
+
+    private int charAt(final int position, final int depth) {
+        final int start = offsets[position];
+        return depth < offsets[position + 1] - start ? keys[start + depth] : END;
+    }
+
+    /**
+     * All positions in {@code [from, to)} share their first {@code depth} chars, so they are
+     * sorted by the char at {@code depth}
+     * @return first position whose char at depth is not smaller than c
+     */
+    private int lowerBound(int from, int to, final int depth, final int c) {
+        while (from < to) {
+            final int mid = (from + to) >>> 1;
+            if (charAt(mid, depth) < c) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+}
@@ -0,0 +1,65 @@
+package de.cyberport.core.constants;
+
+/**
+ * Constants used by the Oscar film functionality.
+ *
+ * @author ritendra_singh
+ */
+public final class OscarConstants {
+
+    // Request parameters
+    public static final String TITLE = "title";
+    public static final String YEAR = "year";
+    public static final String MIN_YEAR = "minYear";
+    public static final String MAX_YEAR = "maxYear";
+    public static final String MIN_AWARDS = "minAwards";
+    public static final String MAX_AWARDS = "maxAwards";
+    public static final String AWARDS = "awards";
+    public static final String NOMINATIONS = "nominations";
+    public static final String IS_BEST_PICTURE = "isBestPicture";
+    public static final String SORT_BY = "sortBy";
+    public static final String LIMIT = "limit";
+    public static final String CURSOR = "cursor";
+    public static final String FIELDS = "fields";
+
+    // Suggest request parameters
+    public static final String SUGGEST_SELECTOR = "suggest";
+    public static final String QUERY = "q";
+    public static final String FUZZY = "fuzzy";
+    public static final int DEFAULT_SUGGEST_LIMIT = 10;
+    public static final int MAX_SUGGEST_LIMIT = 50;
+
+    // Batch request parameters
+    public static final String BATCH_SELECTOR = "batch";
+    public static final int MAX_BATCH_QUERIES = 20;
+
+    // Facets request parameters
+    public static final String FACETS_SELECTOR = "facets";
+
+    // Response
+    public static final String RESULT = "result";
+    public static final String RESULTS = "results";
+    public static final String NEXT_CURSOR = "nextCursor";
+    public static final String NUMBER_OF_REFERENCES = "numberOfReferences";
+    public static final String COUNT = "count";
+    public static final String FACETS = "facets";
+    public static final String SUM = "sum";
+    public static final String AVERAGE = "average";
+    public static final String RESPONSE_CONTENT_TYPE = "application/json";
+    public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    public static final String BINARY_CONTENT_TYPE = "application/x-oscars-films";
+
+    // HTTP caching
+    public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    public static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    public static final String HEADER_VARY = "Vary";
+
+    // Content negotiation
+    public static final String HEADER_ACCEPT = "Accept";
+    public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    public static final String GZIP = "gzip";
+
+    private OscarConstants() {
+    }
+}
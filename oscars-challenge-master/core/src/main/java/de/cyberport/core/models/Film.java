@@ -3,94 +3,81 @@ package de.cyberport.core.models;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.models.annotations.DefaultInjectionStrategy;
 import org.apache.sling.models.annotations.Model;
-import org.apache.sling.models.annotations.injectorspecific.Self;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
 /**
+ * Immutable film entry. The repository values are converted to their primitive types once,
+ * when the resource is adapted, so filtering and sorting never has to parse them again.
+ *
  * @author ritendra_singh
  *
  */
 @Model(adaptables = {Resource.class}, defaultInjectionStrategy = DefaultInjectionStrategy.OPTIONAL)
 public class Film {
 
-    @Self
-    private Resource resource;
-
     @Inject
     @Named("title")
     private String title;
 
     @Inject
     @Named("year")
-    private String year;
+    private int year;
 
     @Inject
     @Named("awards")
-    private String awards;
+    private int awards;
 
     @Inject
     @Named("nominations")
-    private String nominations;
+    private int nominations;
 
     @Inject
     @Named("isBestPicture")
-    private String isBestPicture;
+    private boolean isBestPicture;
 
     @Inject
     @Named("numberOfReferences")
-    private String numberOfReferences;
+    private int numberOfReferences;
+
+    /**
+     * Used by Sling Models when adapting a film entry resource.
+     */
+    public Film() {
+    }
+
+    public Film(final String title, final int year, final int awards, final int nominations,
+                final boolean isBestPicture, final int numberOfReferences) {
+        this.title = title;
+        this.year = year;
+        this.awards = awards;
+        this.nominations = nominations;
+        this.isBestPicture = isBestPicture;
+        this.numberOfReferences = numberOfReferences;
+    }
 
     public String getTitle() {
         return title;
     }
 
-    public String getYear() {
+    public int getYear() {
         return year;
     }
 
-    public String getAwards() {
+    public int getAwards() {
         return awards;
     }
 
-    public String getNominations() {
+    public int getNominations() {
         return nominations;
     }
 
-    public String getIsBestPicture() {
+    public boolean getIsBestPicture() {
         return isBestPicture;
     }
 
-    public String getNumberOfReferences() {
+    public int getNumberOfReferences() {
         return numberOfReferences;
     }
-
-    public void setResource(Resource resource) {
-        this.resource = resource;
-    }
-
-    public void setTitle(String title) {
-        this.title = title;
-    }
-
-    public void setYear(String year) {
-        this.year = year;
-    }
-
-    public void setAwards(String awards) {
-        this.awards = awards;
-    }
-
-    public void setNominations(String nominations) {
-        this.nominations = nominations;
-    }
-
-    public void setIsBestPicture(String isBestPicture) {
-        this.isBestPicture = isBestPicture;
-    }
-
-    public void setNumberOfReferences(String numberOfReferences) {
-        this.numberOfReferences = numberOfReferences;
-    }
 }
@@ -0,0 +1,47 @@
+package de.cyberport.core.services;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmQuery;
+import org.apache.sling.api.resource.Resource;
+
+/**
+ * Provides the films stored below a film container resource.
+ *
+ * Implementations keep the loaded catalog in memory per container path, so that repeated
+ * requests against the same container do not have to read and adapt every child resource again.
+ *
+ * @author ritendra_singh
+ */
+public interface FilmCatalogService {
+
+    /**
+     * Returns the catalog of the films stored below the given container.
+     * @param container film container resource
+     * @return immutable film catalog, never null
+     */
+    FilmCatalog getCatalog(Resource container);
+
+    /**
+     * Returns a catalog holding at least the films the query can match. For containers partitioned
+     * by decade and year, only the partitions of the queried years have to be read.
+     * @param container film container resource
+     * @param query query to be executed on the catalog
+     * @return immutable film catalog, never null
+     */
+    FilmCatalog getCatalog(Resource container, FilmQuery query);
+
+    /**
+     * Returns a token of the current content of the container. It is maintained from the change
+     * events, so it is cheap to get and changes whenever anything below the container changes,
+     * also across restarts of the instance.
+     * @param container film container resource
+     * @return opaque revision token
+     */
+    String getRevision(Resource container);
+
+    /**
+     * Drops the in-memory catalog of the container with the given path.
+     * @param containerPath path of the film container
+     */
+    void invalidate(String containerPath);
+}
@@ -0,0 +1,89 @@
+package de.cyberport.core.services;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.utils.ResponseBody;
+
+import java.util.function.Function;
+
+/**
+ * Keeps the results of repeated queries per film container.
+ *
+ * A result is identified by the container path and the canonical form of the query, so
+ * requests that only differ in parameter order, title case or spelled out defaults share it.
+ * Encoded response bodies of a result, e.g. its compressed json, can be kept along with it.
+ *
+ * @author ritendra_singh
+ */
+public interface FilmResultCache {
+
+    /**
+     * Returns the rows matching the query, executing it only if there is no valid cached result
+     * for the given catalog.
+     * @param containerPath path of the film container
+     * @param catalog current catalog of the container
+     * @param query parsed query
+     * @return row ids of the catalog in result order, shared between requests and not to be modified
+     */
+    int[] getResult(String containerPath, FilmCatalog catalog, FilmQuery query);
+
+    /**
+     * Returns the rows matching each of the queries, executing all queries without a valid cached
+     * result together, see {@link de.cyberport.core.catalog.FilmQueryEngine#executeAll(FilmCatalog, FilmQuery[])}.
+     * @param containerPath path of the film container
+     * @param catalog current catalog of the container
+     * @param queries parsed queries
+     * @return row ids of the catalog in result order per query, shared between requests and not to be modified
+     */
+    int[][] getResults(String containerPath, FilmCatalog catalog, FilmQuery[] queries);
+
+    /**
+     * Returns an encoded response body of the result of the query, encoding the rows only if
+     * there is no body of the variant cached with the result. Bodies share the life time of their
+     * result and count towards its size.
+     * @param containerPath path of the film container
+     * @param catalog current catalog of the container
+     * @param query parsed query
+     * @param variant name of the encoding, every encoder of the same variant must return the same body
+     * @param encoder encodes the result rows
+     * @return encoded body, shared between requests
+     */
+    ResponseBody getBody(String containerPath, FilmCatalog catalog, FilmQuery query, String variant,
+                         Function<int[], ResponseBody> encoder);
+
+    /**
+     * Drops all cached results of the container with the given path.
+     * @param containerPath path of the film container
+     */
+    void invalidate(String containerPath);
+
+    /**
+     * @return number of results served from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return number of executed queries
+     */
+    long getMissCount();
+
+    /**
+     * @return number of bodies served from the cache
+     */
+    long getBodyHitCount();
+
+    /**
+     * @return number of results dropped for the size bounds or their age
+     */
+    long getEvictionCount();
+
+    /**
+     * @return number of cached results
+     */
+    int size();
+
+    /**
+     * @return estimated heap used by the cached results in bytes
+     */
+    long sizeInBytes();
+}
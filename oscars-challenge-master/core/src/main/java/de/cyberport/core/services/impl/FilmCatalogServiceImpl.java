@@ -0,0 +1,505 @@
+package de.cyberport.core.services.impl;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmCatalogBuilder;
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.models.Film;
+import de.cyberport.core.services.FilmCatalogService;
+import de.cyberport.core.utils.FilmPartitions;
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the film catalog of every requested container in memory, keyed by the container path.
+ *
+ * The films are read and adapted once on the first request for a container and stored in the
+ * columns of a {@link FilmCatalog}. Films are found recursively: every descendant that is not a
+ * film is a partition (see {@link FilmPartitions}), and partitions of decades or years the first
+ * query cannot match are not read. They are added to the catalog by the first query that can
+ * match them, so after some requests the catalog holds the whole container.
+ *
+ * Any change below (or above) a loaded container drops its entry, so it is rebuilt on the next
+ * request. The only exception is a changed film node: it is re-read on the next request and, if
+ * nothing but its number of references differs (the hourly refresh), only that row is updated
+ * in place of a full rebuild.
+ *
+ * Every container also has a revision, taken from a sequence whenever the container is seen
+ * for the first time after a change below it. The sequence is prefixed with a random id of the
+ * service instance, so revisions of a restarted instance never repeat earlier ones.
+ *
+ * The films are read with the resolver of the {@value #SUBSERVICE} service user, never with the
+ * one of a request, so every requester gets the same catalog, independent of who came first.
+ * Requesters only need read access to the container resource itself. A container is loaded by
+ * one request at a time while requests for other containers go on; a load that overlaps a
+ * change below the container is served once but not kept.
+ *
+ * @author ritendra_singh
+ */
+@Component(service = { FilmCatalogService.class, ResourceChangeListener.class }, immediate = true,
+        property = {
+                ResourceChangeListener.CHANGES + "=ADDED",
+                ResourceChangeListener.CHANGES + "=CHANGED",
+                ResourceChangeListener.CHANGES + "=REMOVED"
+        })
+@Designate(ocd = FilmCatalogServiceImpl.Config.class)
+public class FilmCatalogServiceImpl implements FilmCatalogService, ResourceChangeListener {
+
+    @ObjectClassDefinition(name = "Oscar Film Catalog Service",
+            description = "In-memory catalog of the films stored below film container resources")
+    public @interface Config {
+
+        @AttributeDefinition(name = "Observed paths",
+                description = "Repository paths below which changes invalidate the loaded containers")
+        String[] resource_paths() default { "/content" };
+    }
+
+    /**
+     * Sub service of the service user reading the containers, it needs read access to them
+     */
+    public static final String SUBSERVICE = "film-catalog-reader";
+
+    private static final Map<String, Object> SERVICE_USER =
+            Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, SUBSERVICE);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<String, LoadedCatalog> catalogsByContainer = new ConcurrentHashMap<>();
+
+    private final Map<String, Object> loadLocksByContainer = new ConcurrentHashMap<>();
+
+    /**
+     * Number of changes seen so far, to tell loads overlapping a change apart
+     */
+    private final AtomicLong changeCount = new AtomicLong();
+
+    private final Map<String, Long> revisionsByContainer = new ConcurrentHashMap<>();
+
+    private final AtomicLong revisionSequence = new AtomicLong();
+
+    private final String instanceId = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    @Reference
+    private ResourceResolverFactory resolverFactory;
+
+    /**
+     * Takes the configuration as parameter, so its observed paths become the resource.paths
+     * property of the listener. A changed configuration may observe other paths, so all catalogs
+     * are loaded again.
+     * @param config
+     */
+    @Activate
+    @Modified
+    protected void activate(final Config config) {
+        catalogsByContainer.clear();
+        revisionsByContainer.clear();
+        logger.debug("Observing changes below {}", (Object) config.resource_paths());
+    }
+
+    @Override
+    public FilmCatalog getCatalog(final Resource container) {
+        return getCatalog(container, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public FilmCatalog getCatalog(final Resource container, final FilmQuery query) {
+        return getCatalog(container, query.getFirstYear(), query.getLastYear());
+    }
+
+    /**
+     * Returns the catalog of the container, with every film from the first to the last year loaded
+     * @param container
+     * @param firstYear
+     * @param lastYear
+     * @return
+     */
+    private FilmCatalog getCatalog(final Resource container, final int firstYear, final int lastYear) {
+        final String path = container.getPath();
+        final LoadedCatalog loaded = catalogsByContainer.get(path);
+        if (loaded != null && loaded.isUpToDate(firstYear, lastYear)) {
+            return loaded.catalog;
+        }
+
+        // Read outside of the map, so loads of other containers never wait for this one
+        synchronized (loadLocksByContainer.computeIfAbsent(path, key -> new Object())) {
+            final long changes = changeCount.get();
+            final LoadedCatalog current = catalogsByContainer.get(path);
+            if (current != null && current.isUpToDate(firstYear, lastYear)) {
+                return current.catalog;
+            }
+            final LoadedCatalog updated = readCatalog(path, current, firstYear, lastYear);
+            catalogsByContainer.put(path, updated);
+            if (changeCount.get() != changes) {
+                // A change may have been missed by the load, the next request reads it again
+                catalogsByContainer.remove(path, updated);
+            }
+            return updated.catalog;
+        }
+    }
+
+    /**
+     * Loads, refreshes or extends the catalog with the resolver of the service user
+     * @param path path of the container
+     * @param current catalog loaded so far, null if there is none
+     * @param firstYear
+     * @param lastYear
+     * @return
+     */
+    private LoadedCatalog readCatalog(final String path, final LoadedCatalog current,
+                                      final int firstYear, final int lastYear) {
+        try (ResourceResolver resolver = resolverFactory.getServiceResourceResolver(SERVICE_USER)) {
+            final Resource container = resolver.getResource(path);
+            if (container == null) {
+                logger.warn("Container {} is not readable by service user {}", path, SUBSERVICE);
+                return new LoadedCatalog(FilmCatalog.builder().build(), Collections.emptyList(), Collections.emptyList());
+            }
+            return current == null
+                    ? loadCatalog(container, firstYear, lastYear)
+                    : extendCatalog(container, refreshCatalog(container, current, firstYear, lastYear), firstYear, lastYear);
+        } catch (LoginException e) {
+            throw new IllegalStateException("Cannot read container " + path + " as service user " + SUBSERVICE, e);
+        }
+    }
+
+    @Override
+    public String getRevision(final Resource container) {
+        return instanceId + "-" + revisionsByContainer.computeIfAbsent(container.getPath(),
+                path -> revisionSequence.incrementAndGet());
+    }
+
+    @Override
+    public void invalidate(final String containerPath) {
+        changeCount.incrementAndGet();
+        revisionsByContainer.remove(containerPath);
+        if (catalogsByContainer.remove(containerPath) != null) {
+            logger.debug("Dropped catalog of container {}", containerPath);
+        }
+    }
+
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        for (ResourceChange change : changes) {
+            final String changedPath = change.getPath();
+            revisionsByContainer.keySet().removeIf(containerPath -> isAffected(containerPath, changedPath));
+            if (loadLocksByContainer.keySet().stream().anyMatch(containerPath -> isAffected(containerPath, changedPath))) {
+                changeCount.incrementAndGet();
+            }
+            for (Map.Entry<String, LoadedCatalog> entry : catalogsByContainer.entrySet()) {
+                final String containerPath = entry.getKey();
+                if (!isAffected(containerPath, changedPath)) {
+                    continue;
+                }
+                if (change.getType() != ResourceChange.ChangeType.CHANGED
+                        || !entry.getValue().markChanged(relativePath(containerPath, changedPath))) {
+                    invalidate(containerPath);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read and adapt the films of the container into the columns of a catalog, skipping the
+     * partitions without films from the first to the last year
+     * @param container
+     * @param firstYear
+     * @param lastYear
+     * @return
+     */
+    private LoadedCatalog loadCatalog(final Resource container, final int firstYear, final int lastYear) {
+        final FilmCatalogBuilder builder = FilmCatalog.builder();
+        final List<String> filmPaths = new ArrayList<>();
+        final List<Partition> pruned = new ArrayList<>();
+        collect(container, Partition.CONTAINER, firstYear, lastYear, builder, filmPaths, pruned);
+
+        final FilmCatalog catalog = builder.build();
+        logger.info("Loaded {} films ({} bytes) from container {}, {} partitions pruned",
+                catalog.size(), catalog.sizeInBytes(), container.getPath(), pruned.size());
+        return new LoadedCatalog(catalog, filmPaths, pruned);
+    }
+
+    /**
+     * Adds the films of the pruned partitions from the first to the last year to a copy of the catalog
+     * @param container
+     * @param current
+     * @param firstYear
+     * @param lastYear
+     * @return
+     */
+    private LoadedCatalog extendCatalog(final Resource container, final LoadedCatalog current,
+                                        final int firstYear, final int lastYear) {
+        if (!current.isPruned(firstYear, lastYear)) {
+            return current;
+        }
+        final FilmCatalog catalog = current.catalog;
+        final FilmCatalogBuilder builder = FilmCatalog.builder();
+        for (int row = 0; row < catalog.size(); row++) {
+            builder.add(catalog.getTitle(row), catalog.getYear(row), catalog.getAwards(row),
+                    catalog.getNominations(row), catalog.isBestPicture(row), catalog.getNumberOfReferences(row));
+        }
+        final List<String> filmPaths = new ArrayList<>(current.filmPaths);
+        final List<Partition> pruned = new ArrayList<>();
+        for (Partition partition : current.pruned) {
+            if (!partition.overlaps(firstYear, lastYear)) {
+                pruned.add(partition);
+                continue;
+            }
+            final Resource resource = container.getChild(partition.path);
+            if (resource != null) {
+                collect(resource, partition, firstYear, lastYear, builder, filmPaths, pruned);
+            }
+        }
+
+        final FilmCatalog extended = builder.build();
+        logger.debug("Extended container {} to {} films, {} partitions pruned",
+                container.getPath(), extended.size(), pruned.size());
+        return new LoadedCatalog(extended, filmPaths, pruned);
+    }
+
+    /**
+     * Adds the films below the partition to the builder, descending into the partitions
+     * with films from the first to the last year and collecting all others as pruned
+     */
+    private void collect(final Resource resource, final Partition partition, final int firstYear, final int lastYear,
+                         final FilmCatalogBuilder builder, final List<String> filmPaths, final List<Partition> pruned) {
+        for (Resource child : resource.getChildren()) {
+            if (!FilmPartitions.isFilm(child)) {
+                final Partition childPartition = partition.child(child.getName());
+                if (childPartition.overlaps(firstYear, lastYear)) {
+                    collect(child, childPartition, firstYear, lastYear, builder, filmPaths, pruned);
+                } else {
+                    pruned.add(childPartition);
+                }
+                continue;
+            }
+            final Film film = child.adaptTo(Film.class);
+            if (film == null) {
+                continue;
+            }
+            if (!partition.contains(film.getYear())) {
+                logger.warn("Skipping film {}: year {} is outside of its partition", child.getPath(), film.getYear());
+                continue;
+            }
+            try {
+                builder.add(film);
+                filmPaths.add(partition.childPath(child.getName()));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Skipping film {}: {}", child.getPath(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Re-read the changed films of the container. If only their references differ, the rows
+     * are updated in a copy of the catalog, otherwise the container is loaded again.
+     * @param container
+     * @param current
+     * @param firstYear
+     * @param lastYear
+     * @return
+     */
+    private LoadedCatalog refreshCatalog(final Resource container, final LoadedCatalog current,
+                                         final int firstYear, final int lastYear) {
+        final FilmCatalog catalog = current.catalog;
+        final List<Integer> rows = new ArrayList<>();
+        final List<Integer> references = new ArrayList<>();
+
+        for (Iterator<String> it = current.changedFilms.iterator(); it.hasNext();) {
+            final String filmPath = it.next();
+            it.remove();
+            final int row = current.rowsByPath.get(filmPath);
+            final Resource child = container.getChild(filmPath);
+            final Film film = child == null ? null : child.adaptTo(Film.class);
+            if (film == null || !hasSameValues(catalog, row, film)) {
+                logger.debug("Film {} of container {} changed, reloading", filmPath, container.getPath());
+                return loadCatalog(container, firstYear, lastYear);
+            }
+            if (film.getNumberOfReferences() != catalog.getNumberOfReferences(row)) {
+                rows.add(row);
+                references.add(film.getNumberOfReferences());
+            }
+        }
+
+        if (rows.isEmpty()) {
+            return current;
+        }
+        logger.debug("Updated references of {} films of container {}", rows.size(), container.getPath());
+        return current.withCatalog(catalog.withReferences(
+                rows.stream().mapToInt(Integer::intValue).toArray(),
+                references.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * Compares everything but the references of the film with the row
+     * @param catalog
+     * @param row
+     * @param film
+     * @return
+     */
+    private static boolean hasSameValues(final FilmCatalog catalog, final int row, final Film film) {
+        return StringUtils.defaultString(film.getTitle()).equals(catalog.getTitle(row))
+                && film.getYear() == catalog.getYear(row)
+                && film.getAwards() == catalog.getAwards(row)
+                && film.getNominations() == catalog.getNominations(row)
+                && film.getIsBestPicture() == catalog.isBestPicture(row);
+    }
+
+    /**
+     * Path of the changed resource relative to the container if it is a descendant, otherwise null
+     * @param containerPath
+     * @param changedPath
+     * @return
+     */
+    static String relativePath(final String containerPath, final String changedPath) {
+        if (!changedPath.startsWith(containerPath + "/")) {
+            return null;
+        }
+        final String path = changedPath.substring(containerPath.length() + 1);
+        return path.isEmpty() ? null : path;
+    }
+
+    /**
+     * A container is affected by changes of itself, of its descendants and of its ancestors
+     * @param containerPath
+     * @param changedPath
+     * @return
+     */
+    static boolean isAffected(final String containerPath, final String changedPath) {
+        return containerPath.equals(changedPath)
+                || changedPath.startsWith(containerPath + "/")
+                || containerPath.startsWith(changedPath.endsWith("/") ? changedPath : changedPath + "/");
+    }
+
+    /**
+     * Node below the container holding the films from its first to its last year. The
+     * container itself is the partition with the empty path and without year bounds.
+     */
+    private static final class Partition {
+
+        private static final Partition CONTAINER = new Partition("", Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+        private final String path;
+        private final int firstYear;
+        private final int lastYear;
+
+        Partition(final String path, final int firstYear, final int lastYear) {
+            this.path = path;
+            this.firstYear = firstYear;
+            this.lastYear = lastYear;
+        }
+
+        Partition child(final String name) {
+            final String parentName = path.substring(path.lastIndexOf('/') + 1);
+            return new Partition(childPath(name), FilmPartitions.firstYear(parentName, name, firstYear),
+                    FilmPartitions.lastYear(parentName, name, lastYear));
+        }
+
+        String childPath(final String name) {
+            return path.isEmpty() ? name : path + "/" + name;
+        }
+
+        boolean overlaps(final int first, final int last) {
+            return firstYear <= last && lastYear >= first;
+        }
+
+        boolean contains(final int year) {
+            return year >= firstYear && year <= lastYear;
+        }
+    }
+
+    /**
+     * Catalog of one container together with the path of every row relative to the container,
+     * the partitions not read yet and the films changed since it was loaded. The set of changed
+     * films is shared by all refreshed copies of the same load.
+     */
+    private static final class LoadedCatalog {
+
+        private final FilmCatalog catalog;
+        private final List<String> filmPaths;
+        private final Map<String, Integer> rowsByPath;
+        private final List<Partition> pruned;
+        private final Set<String> changedFilms;
+
+        LoadedCatalog(final FilmCatalog catalog, final List<String> filmPaths, final List<Partition> pruned) {
+            this.catalog = catalog;
+            this.filmPaths = filmPaths;
+            this.rowsByPath = new HashMap<>(filmPaths.size() * 2);
+            for (int row = 0; row < filmPaths.size(); row++) {
+                rowsByPath.put(filmPaths.get(row), row);
+            }
+            this.pruned = pruned;
+            this.changedFilms = ConcurrentHashMap.newKeySet();
+        }
+
+        private LoadedCatalog(final FilmCatalog catalog, final LoadedCatalog source) {
+            this.catalog = catalog;
+            this.filmPaths = source.filmPaths;
+            this.rowsByPath = source.rowsByPath;
+            this.pruned = source.pruned;
+            this.changedFilms = source.changedFilms;
+        }
+
+        LoadedCatalog withCatalog(final FilmCatalog updated) {
+            return new LoadedCatalog(updated, this);
+        }
+
+        /**
+         * @param firstYear
+         * @param lastYear
+         * @return true if no film changed and all films from the first to the last year are read
+         */
+        boolean isUpToDate(final int firstYear, final int lastYear) {
+            return changedFilms.isEmpty() && !isPruned(firstYear, lastYear);
+        }
+
+        /**
+         * @param firstYear
+         * @param lastYear
+         * @return true if a partition not read yet may hold films from the first to the last year
+         */
+        boolean isPruned(final int firstYear, final int lastYear) {
+            for (Partition partition : pruned) {
+                if (partition.overlaps(firstYear, lastYear)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Remembers a changed film of this catalog for the next request
+         * @param filmPath path of the film relative to the container
+         * @return false if the path is not a film of this catalog
+         */
+        boolean markChanged(final String filmPath) {
+            if (filmPath == null || !rowsByPath.containsKey(filmPath)) {
+                return false;
+            }
+            changedFilms.add(filmPath);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package de.cyberport.core.services.impl;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.catalog.FilmQueryEngine;
+import de.cyberport.core.services.FilmResultCache;
+import de.cyberport.core.utils.ResponseBody;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Least recently used cache of query results, bounded by the number of results and their
+ * estimated size in bytes.
+ *
+ * A cached result belongs to the catalog it was computed on: once the catalog service has
+ * replaced the catalog of a container, its old results are not served any more. Results also
+ * expire after a time to live, by default aligned with the hourly update of the references,
+ * and all results of a container are dropped as soon as anything below it changes.
+ *
+ * Encoded bodies of a result are kept in its entry, one per variant, and are dropped together
+ * with it. A body that would not fit into the size bound is encoded for every request.
+ *
+ * Results are kept in a concurrent map, so hits of concurrent requests don't contend on a
+ * lock: a hit only marks its entry as referenced. Eviction approximates LRU with a second chance
+ * queue (CLOCK) in the order results were added: it runs under a lock of its own once a new
+ * result or body exceeds a bound, and takes results from the head of the queue, appending the
+ * referenced ones again with their mark cleared, until the bounds are kept. It never looks at
+ * more results than it has to, instead of ordering all of them.
+ *
+ * @author ritendra_singh
+ */
+@Component(service = { FilmResultCache.class, ResourceChangeListener.class }, immediate = true,
+        property = {
+                ResourceChangeListener.CHANGES + "=ADDED",
+                ResourceChangeListener.CHANGES + "=CHANGED",
+                ResourceChangeListener.CHANGES + "=REMOVED"
+        })
+@Designate(ocd = FilmResultCacheImpl.Config.class)
+public class FilmResultCacheImpl implements FilmResultCache, ResourceChangeListener {
+
+    @ObjectClassDefinition(name = "Oscar Film Result Cache",
+            description = "Cache of the results of repeated film queries")
+    public @interface Config {
+
+        @AttributeDefinition(name = "Maximum results",
+                description = "Number of cached results, 0 disables the cache")
+        int max_entries() default 1000;
+
+        @AttributeDefinition(name = "Maximum size",
+                description = "Estimated heap of all cached results in bytes")
+        long max_bytes() default 16L * 1024 * 1024;
+
+        @AttributeDefinition(name = "Time to live",
+                description = "Seconds a result is served from the cache")
+        long ttl_seconds() default 3600;
+
+        @AttributeDefinition(name = "Observed paths",
+                description = "Repository paths below which changes drop the results of the containers")
+        String[] resource_paths() default { "/content" };
+    }
+
+    /**
+     * Estimated heap of a cache entry besides its rows and key texts
+     */
+    private static final int ENTRY_OVERHEAD = 160;
+
+    /**
+     * Estimated heap of a cached body besides its bytes
+     */
+    private static final int BODY_OVERHEAD = 96;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Removed results may stay in the eviction queue, it is swept once it holds this many more
+     * entries than the cache
+     */
+    private static final int QUEUE_SLACK = 64;
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> evictionQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Object evictionLock = new Object();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bodyHits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Milliseconds clock of the time to live, replaced by the tests
+     */
+    LongSupplier clock = System::currentTimeMillis;
+
+    private volatile int maxEntries;
+    private volatile long maxBytes;
+    private volatile long ttlMillis;
+
+    @Activate
+    @Modified
+    protected void activate(final Config config) {
+        maxEntries = Math.max(0, config.max_entries());
+        maxBytes = Math.max(0, config.max_bytes());
+        ttlMillis = TimeUnit.SECONDS.toMillis(Math.max(0, config.ttl_seconds()));
+        for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public int[] getResult(final String containerPath, final FilmCatalog catalog, final FilmQuery query) {
+        final Key key = new Key(containerPath, query);
+        final long now = clock.getAsLong();
+        final int[] cached = lookup(key, catalog, now);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Concurrent misses of the same query may both compute it, the last one is kept
+        misses.incrementAndGet();
+        final int[] rows = FilmQueryEngine.execute(catalog, query);
+        put(key, new Entry(key, catalog, rows, now + ttlMillis, sizeInBytes(key, rows)));
+        return rows;
+    }
+
+    @Override
+    public int[][] getResults(final String containerPath, final FilmCatalog catalog, final FilmQuery[] queries) {
+        final long now = clock.getAsLong();
+        final int[][] results = new int[queries.length][];
+        final Key[] keys = new Key[queries.length];
+        final List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < queries.length; i++) {
+            keys[i] = new Key(containerPath, queries[i]);
+            results[i] = lookup(keys[i], catalog, now);
+            if (results[i] == null) {
+                missing.add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return results;
+        }
+
+        // All misses are executed together
+        misses.addAndGet(missing.size());
+        final FilmQuery[] pending = new FilmQuery[missing.size()];
+        for (int j = 0; j < pending.length; j++) {
+            pending[j] = queries[missing.get(j)];
+        }
+        final int[][] executed = FilmQueryEngine.executeAll(catalog, pending);
+        for (int j = 0; j < pending.length; j++) {
+            final int i = missing.get(j);
+            results[i] = executed[j];
+            put(keys[i], new Entry(keys[i], catalog, results[i], now + ttlMillis, sizeInBytes(keys[i], results[i])));
+        }
+        return results;
+    }
+
+    @Override
+    public ResponseBody getBody(final String containerPath, final FilmCatalog catalog, final FilmQuery query,
+                                final String variant, final Function<int[], ResponseBody> encoder) {
+        final int[] rows = getResult(containerPath, catalog, query);
+        final Key key = new Key(containerPath, query);
+        final Entry entry = entries.get(key);
+        final ResponseBody cached = entry != null && entry.rows == rows ? entry.bodies.get(variant) : null;
+        if (cached != null) {
+            bodyHits.incrementAndGet();
+            return cached;
+        }
+
+        // Encoded without any lock, like the rows, and only kept while the result is cached
+        final ResponseBody body = encoder.apply(rows);
+        final long size = BODY_OVERHEAD + 2L * variant.length() + body.size();
+        if (entry != null && entry.rows == rows && entry.addBody(variant, body, size, maxBytes)) {
+            bytes.addAndGet(size);
+            evict();
+        }
+        return body;
+    }
+
+    @Override
+    public void invalidate(final String containerPath) {
+        for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+            if (entry.getKey().containerPath.equals(containerPath)) {
+                remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+            for (ResourceChange change : changes) {
+                if (FilmCatalogServiceImpl.isAffected(entry.getKey().containerPath, change.getPath())) {
+                    remove(entry.getKey(), entry.getValue());
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public long getBodyHitCount() {
+        return bodyHits.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return number of results in the eviction queue, including removed ones not swept yet
+     */
+    int queueLength() {
+        return queued.get();
+    }
+
+    /**
+     * @param key
+     * @param catalog current catalog of the container
+     * @param now
+     * @return cached rows of the key, null if there is no valid result
+     */
+    private int[] lookup(final Key key, final FilmCatalog catalog, final long now) {
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.catalog.get() == catalog && now < entry.expires) {
+            entry.referenced = true;
+            hits.incrementAndGet();
+            return entry.rows;
+        }
+        if (remove(key, entry) && now >= entry.expires) {
+            evictions.incrementAndGet();
+        }
+        return null;
+    }
+
+    private void put(final Key key, final Entry entry) {
+        if (maxEntries == 0 || entry.bytes > maxBytes) {
+            return;
+        }
+        bytes.addAndGet(entry.bytes);
+        final Entry replaced = entries.put(key, entry);
+        if (replaced != null) {
+            bytes.addAndGet(-replaced.retire());
+        }
+        enqueue(entry);
+        evict();
+    }
+
+    private void evict() {
+        if (!isOverBounds() && !hasStaleQueue()) {
+            return;
+        }
+        synchronized (evictionLock) {
+            Entry eldest;
+            while ((isOverBounds() || hasStaleQueue()) && (eldest = evictionQueue.poll()) != null) {
+                queued.decrementAndGet();
+                if (entries.get(eldest.key) != eldest) {
+                    // Already removed or replaced
+                    continue;
+                }
+                if (!isOverBounds()) {
+                    // Only sweeping removed results, the cached ones keep their mark
+                    enqueue(eldest);
+                } else if (eldest.referenced) {
+                    // Second chance for a result hit since it was queued, a hit while it is
+                    // evicted is simply computed again
+                    eldest.referenced = false;
+                    enqueue(eldest);
+                } else if (remove(eldest.key, eldest)) {
+                    evictions.incrementAndGet();
+                    logger.debug("Evicted result {} of container {}", eldest.key.query, eldest.key.containerPath);
+                }
+            }
+        }
+    }
+
+    private void enqueue(final Entry entry) {
+        evictionQueue.add(entry);
+        queued.incrementAndGet();
+    }
+
+    private boolean isOverBounds() {
+        return entries.size() > maxEntries || bytes.get() > maxBytes;
+    }
+
+    /**
+     * @return true if the queue holds many results that are not cached any more
+     */
+    private boolean hasStaleQueue() {
+        return queued.get() > 2 * entries.size() + QUEUE_SLACK;
+    }
+
+    /**
+     * Removes the entry if it is still cached for the key
+     * @param key
+     * @param entry
+     * @return true if this call removed the entry
+     */
+    private boolean remove(final Key key, final Entry entry) {
+        if (!entries.remove(key, entry)) {
+            return false;
+        }
+        bytes.addAndGet(-entry.retire());
+        return true;
+    }
+
+    private static long sizeInBytes(final Key key, final int[] rows) {
+        return ENTRY_OVERHEAD
+                + 2L * (key.containerPath.length() + key.query.getCanonicalForm().length())
+                + (long) rows.length * Integer.BYTES;
+    }
+
+    /**
+     * Container path and canonical query of a result
+     */
+    private static final class Key {
+
+        private final String containerPath;
+        private final FilmQuery query;
+
+        Key(final String containerPath, final FilmQuery query) {
+            this.containerPath = containerPath;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof Key
+                    && containerPath.equals(((Key) other).containerPath)
+                    && query.equals(((Key) other).query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * containerPath.hashCode() + query.hashCode();
+        }
+    }
+
+    /**
+     * Rows of a result together with the catalog they belong to and the bodies encoded from
+     * them. The catalog is only weakly referenced, so results of a replaced catalog never keep
+     * it in memory. Bodies are read without locking, size and retirement are guarded by the
+     * entry, so a body added while the entry is removed is never counted.
+     */
+    private static final class Entry {
+
+        private final Key key;
+        private final WeakReference<FilmCatalog> catalog;
+        private final int[] rows;
+        private final long expires;
+        private final Map<String, ResponseBody> bodies = new ConcurrentHashMap<>(4);
+        private long bytes;
+        private boolean retired;
+        private volatile boolean referenced;
+
+        Entry(final Key key, final FilmCatalog catalog, final int[] rows, final long expires, final long bytes) {
+            this.key = key;
+            this.catalog = new WeakReference<>(catalog);
+            this.rows = rows;
+            this.expires = expires;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return true if the body was added, false if the entry is retired, already has the
+         * variant or would exceed the size bound with it
+         */
+        synchronized boolean addBody(final String variant, final ResponseBody body, final long size,
+                                     final long maxBytes) {
+            if (retired || bodies.containsKey(variant) || bytes + size > maxBytes) {
+                return false;
+            }
+            bodies.put(variant, body);
+            bytes += size;
+            return true;
+        }
+
+        /**
+         * Marks the entry as removed from the cache
+         * @return estimated size of the entry including its bodies
+         */
+        synchronized long retire() {
+            retired = true;
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package de.cyberport.core.servlets;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmCursor;
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.catalog.FilmQueryEngine;
+import de.cyberport.core.services.FilmCatalogService;
+import de.cyberport.core.services.FilmResultCache;
+import de.cyberport.core.utils.EntityTags;
+import de.cyberport.core.utils.FilmJsonWriter;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.HttpConstants;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.apache.sling.servlets.annotations.SlingServletResourceTypes;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.propertytypes.ServiceDescription;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static de.cyberport.core.constants.OscarConstants.BATCH_SELECTOR;
+import static de.cyberport.core.constants.OscarConstants.HEADER_CACHE_CONTROL;
+import static de.cyberport.core.constants.OscarConstants.HEADER_IF_NONE_MATCH;
+import static de.cyberport.core.constants.OscarConstants.MAX_BATCH_QUERIES;
+import static de.cyberport.core.constants.OscarConstants.RESPONSE_CONTENT_TYPE;
+
+/**
+ * Servlet that answers several film queries of one container with a single request, e.g. all
+ * lists of a listing page. It is mounted with the 'batch' selector for all film containers, e.g.
+ * /content/oscars.batch.json?winners=isBestPicture%3Dtrue%26minYear%3D1990%26maxYear%3D1999&top=year%3D2019%26sortBy%3D-nominations%26limit%3D3
+ *
+ * Every request parameter is one query: its name is the key of the result, only letters, digits,
+ * '-' and '_', and its value the URL encoded parameters of the query, exactly as supported by
+ * {@link OscarFilmContainerServlet}. At most 20 queries are answered per request. An invalid
+ * query fails the whole request with 400 Bad Request.
+ *
+ * All queries are executed on the same catalog, cached results are reused and the remaining
+ * queries are executed together, sharing a walk over the catalog where they can.
+ *
+ * Responses carry an ETag and a Cache-Control header like the ones of the container servlet.
+ * The batch negotiates neither format nor content coding, so there is no Vary header.
+ *
+ * Sample response:
+ * {
+ *   "results": {
+ *     "winners": {
+ *       "result": [...]
+ *     },
+ *     "top": {
+ *       "result": [...],
+ *       "nextCursor": "..."
+ *     }
+ *   }
+ * }
+ * @author ritendra_singh
+ */
+@Component(service = { Servlet.class }, immediate = true)
+@SlingServletResourceTypes(
+        resourceTypes="test/filmEntryContainer",
+        methods=HttpConstants.METHOD_GET,
+        selectors=BATCH_SELECTOR,
+        extensions="json")
+@ServiceDescription("Oscar Film Batch Servlet")
+@Designate(ocd = OscarFilmBatchServlet.Config.class)
+public class OscarFilmBatchServlet extends SlingSafeMethodsServlet {
+
+    @ObjectClassDefinition(name = "Oscar Film Batch Servlet",
+            description = "HTTP caching of the film query batches")
+    public @interface Config {
+
+        @AttributeDefinition(name = "Max age",
+                description = "Seconds clients and CDNs may use a response before revalidating it with its ETag")
+        int max_age_seconds() default 60;
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Pattern KEY = Pattern.compile("[A-Za-z0-9_-]+");
+
+    /**
+     * Sent by Sling forms to declare the parameter encoding, never a query
+     */
+    private static final String CHARSET_PARAMETER = "_charset_";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Reference
+    private FilmCatalogService filmCatalogService;
+
+    @Reference
+    private FilmResultCache filmResultCache;
+
+    private volatile String cacheControl;
+
+    @Activate
+    @Modified
+    protected void activate(final Config config) {
+        cacheControl = "public, max-age=" + Math.max(0, config.max_age_seconds());
+    }
+
+    @Override
+    public void doGet(final SlingHttpServletRequest request, final SlingHttpServletResponse response) throws IOException {
+        response.setContentType(RESPONSE_CONTENT_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        final Map<String, FilmQuery> queries;
+        try {
+            queries = parseQueries(request);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Invalid batch request: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        // Tagged like a single query, with the keys and queries in response order
+        final String[] parts = new String[2 * queries.size()];
+        int part = 0;
+        for (Map.Entry<String, FilmQuery> query : queries.entrySet()) {
+            parts[part++] = query.getKey();
+            parts[part++] = query.getValue().getCanonicalForm();
+        }
+        final String entityTag = EntityTags.strong(filmCatalogService.getRevision(request.getResource())
+                + "-" + EntityTags.digest(parts) + "-" + BATCH_SELECTOR);
+        response.setHeader(HttpConstants.HEADER_ETAG, entityTag);
+        response.setHeader(HEADER_CACHE_CONTROL, cacheControl);
+        if (EntityTags.matches(request.getHeader(HEADER_IF_NONE_MATCH), entityTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // One catalog for all queries, the ones without cached result are executed together
+        final FilmCatalog catalog = filmCatalogService.getCatalog(request.getResource());
+        final String[] keys = queries.keySet().toArray(new String[0]);
+        final FilmQuery[] parsed = queries.values().toArray(new FilmQuery[0]);
+        final int[][] results = filmResultCache.getResults(request.getResource().getPath(), catalog, parsed);
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        final FilmJsonWriter writer = new FilmJsonWriter(response.getOutputStream());
+        writer.beginResults();
+        for (int i = 0; i < keys.length; i++) {
+            final FilmCursor nextCursor = FilmQueryEngine.nextCursor(catalog, parsed[i], results[i]);
+            writer.writeResult(keys[i], catalog, results[i], parsed[i].getProjection(),
+                    nextCursor == null ? null : nextCursor.toToken());
+        }
+        writer.endResults();
+    }
+
+    /**
+     * @param request
+     * @return parsed query per key, in request order
+     * @throws IllegalArgumentException for invalid keys, too many queries or an invalid query
+     */
+    private static Map<String, FilmQuery> parseQueries(final SlingHttpServletRequest request) {
+        final Map<String, FilmQuery> queries = new LinkedHashMap<>();
+        for (Map.Entry<String, String[]> parameter : request.getParameterMap().entrySet()) {
+            final String key = parameter.getKey();
+            if (CHARSET_PARAMETER.equals(key)) {
+                continue;
+            }
+            if (!KEY.matcher(key).matches()) {
+                throw new IllegalArgumentException("Invalid query key: " + key);
+            }
+            if (queries.size() == MAX_BATCH_QUERIES) {
+                throw new IllegalArgumentException("At most " + MAX_BATCH_QUERIES + " queries per request");
+            }
+            final Map<String, String> values = parseParameters(parameter.getValue()[0]);
+            try {
+                queries.put(key, FilmQuery.parse(values::get));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(key + ": " + e.getMessage(), e);
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * @param value URL encoded parameters, e.g. {@code year=2019&sortBy=-nominations}
+     * @return first value per parameter name
+     */
+    private static Map<String, String> parseParameters(final String value) {
+        final Map<String, String> values = new HashMap<>();
+        for (String pair : value.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            final int separator = pair.indexOf('=');
+            final String name = decode(separator < 0 ? pair : pair.substring(0, separator));
+            values.putIfAbsent(name, separator < 0 ? "" : decode(pair.substring(separator + 1)));
+        }
+        return values;
+    }
+
+    private static String decode(final String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
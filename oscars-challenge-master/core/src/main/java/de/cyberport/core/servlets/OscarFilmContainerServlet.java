@@ -1,31 +1,53 @@
 package de.cyberport.core.servlets;
 
-import de.cyberport.core.models.Film;
-import org.apache.commons.lang.StringUtils;
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmCursor;
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.catalog.FilmQueryEngine;
+import de.cyberport.core.services.FilmCatalogService;
+import de.cyberport.core.services.FilmResultCache;
+import de.cyberport.core.utils.AcceptHeaders;
+import de.cyberport.core.utils.EntityTags;
+import de.cyberport.core.utils.FilmBinaryWriter;
+import de.cyberport.core.utils.FilmJsonWriter;
+import de.cyberport.core.utils.FilmNdjsonWriter;
+import de.cyberport.core.utils.ResponseBody;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
-import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.servlets.HttpConstants;
 import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
 import org.apache.sling.servlets.annotations.SlingServletResourceTypes;
-import org.json.JSONException;
-import org.json.JSONObject;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.propertytypes.ServiceDescription;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.Servlet;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import static de.cyberport.core.constants.OscarConstants.*;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static de.cyberport.core.constants.OscarConstants.BINARY_CONTENT_TYPE;
+import static de.cyberport.core.constants.OscarConstants.GZIP;
+import static de.cyberport.core.constants.OscarConstants.HEADER_ACCEPT;
+import static de.cyberport.core.constants.OscarConstants.HEADER_ACCEPT_ENCODING;
+import static de.cyberport.core.constants.OscarConstants.HEADER_CACHE_CONTROL;
+import static de.cyberport.core.constants.OscarConstants.HEADER_CONTENT_ENCODING;
+import static de.cyberport.core.constants.OscarConstants.HEADER_IF_NONE_MATCH;
+import static de.cyberport.core.constants.OscarConstants.HEADER_VARY;
+import static de.cyberport.core.constants.OscarConstants.NDJSON_CONTENT_TYPE;
+import static de.cyberport.core.constants.OscarConstants.RESPONSE_CONTENT_TYPE;
 
 /**
  * Servlet that writes information about the Oscar films in json format into the response.
@@ -45,13 +67,34 @@ import static de.cyberport.core.constants.OscarConstants.*;
  * 6. maxAwards - Integer. The maximum value for number of awards
  * 7. nominations - Integer. The exact number of nominations
  * 8. isBestPicture - Boolean. True to return only the winners of the best picture nomination.
- * 9. sortBy - Enumeration. Sorting in ascending order, supported values are: 'title', 'year', 'awards', 'nominations'. Default value should be 'title'.
+ * 9. sortBy - Enumeration. Sorting in ascending order, supported values are: 'title', 'year', 'awards', 'nominations', 'numberOfReferences'. Default value should be 'title'.
+ *    Several keys can be combined comma separated, a '-' in front of a key sorts descending, e.g. 'year,-awards'.
+ *    Ties are always sorted by title.
  * 10. limit - Integer. Maximum amount of result entries in the response.
+ * 11. cursor - String. The "nextCursor" of the previous page, to continue the same query right after it.
+ * 12. fields - String. Comma separated properties to write per film, e.g. 'title,year'. Default are all of them.
  *
  * Please note:
  * More then 1 filter must be supported.
  * The resulting JSON must not contain "jcr:primaryType" and "sling:resourceType" properties
  * When there will be no results based on the provided filter an empty array should be returned. Please refer to the 3rd example.
+ * The servlet is one instance shared by all concurrent requests, so it must not keep any per-request state in fields.
+ * Every request works on local variables and on the immutable catalog snapshot of the container.
+ * Every response has an ETag of the container revision and the canonical query. A request whose
+ * If-None-Match lists it is answered with 304 Not Modified, without running the query.
+ * A response with as many entries as the limit carries a "nextCursor" next to the result, the last
+ * page of a query may therefore be empty. Resuming from a cursor costs the same for every page.
+ * With the extension 'ndjson' instead of 'json' the same result is streamed as newline delimited json,
+ * one film object per line without the enclosing "result" document, e.g. for bulk exports. Lines are
+ * written as soon as the films are found, so neither side has to hold the whole result. Streamed
+ * results are not cached and carry no "nextCursor"; a cursor of a json page can be continued though.
+ * With the extension 'bin', or the extension 'json' and an Accept header listing 'application/x-oscars-films',
+ * the same result is written in a compact columnar binary layout for service to service calls, see
+ * {@link FilmBinaryWriter}; it is read with {@link de.cyberport.core.utils.FilmBinaryReader}.
+ * Clients accepting the gzip content coding get every response above a configured size compressed.
+ * Only a compressed body has the gzip variant of the ETag, smaller bodies keep the tag of the plain bytes.
+ * The compressed body is kept with the cached result of the query, so repeated requests are answered
+ * without serializing or compressing it again; streamed results are compressed on the fly.
  *
  * Examples based on the data stored in oscars.json in resources directory.
  *
@@ -124,145 +167,230 @@ import static de.cyberport.core.constants.OscarConstants.*;
 @SlingServletResourceTypes(
         resourceTypes="test/filmEntryContainer",
         methods=HttpConstants.METHOD_GET,
-        extensions="json")
+        extensions={"json", "ndjson", "bin"})
 @ServiceDescription("Oscar Film Container Servlet")
+@Designate(ocd = OscarFilmContainerServlet.Config.class)
 public class OscarFilmContainerServlet extends SlingSafeMethodsServlet {
 
-    private static final long serialVersionUID = 1L;
-
-    private final Logger logger = LoggerFactory.getLogger(getClass());
+    @ObjectClassDefinition(name = "Oscar Film Container Servlet",
+            description = "HTTP caching and compression of the film lists")
+    public @interface Config {
 
-    private List<Film> oscarFilmList = new ArrayList<>();
-    private JSONObject resultObj = new JSONObject();
+        @AttributeDefinition(name = "Max age",
+                description = "Seconds clients and CDNs may use a response before revalidating it with its ETag")
+        int max_age_seconds() default 60;
 
-    @Override
-    public void doGet(final SlingHttpServletRequest request, final SlingHttpServletResponse response) throws IOException {
-        try {
+        @AttributeDefinition(name = "Gzip level",
+                description = "Deflate level from 1 (fastest) to 9 (smallest) for clients accepting gzip, 0 disables compression")
+        int gzip_level() default 6;
 
-            // Retrieve List from the provided JSON resource
-            retrieveFilmsFromResource(request);
+        @AttributeDefinition(name = "Gzip threshold",
+                description = "Responses smaller than this number of bytes are sent uncompressed")
+        int gzip_min_bytes() default 1024;
+    }
 
-            String limit = request.getParameter(LIMIT);
+    /**
+     * Response formats, selected by the request extension or, for 'json', by the Accept header
+     */
+    private enum Format {
+        JSON("json", RESPONSE_CONTENT_TYPE),
+        NDJSON("ndjson", NDJSON_CONTENT_TYPE),
+        BINARY("bin", BINARY_CONTENT_TYPE);
 
-            List<Film> resultFilms;
+        private final String extension;
+        private final String contentType;
 
-            // Create Stream to filter the JSON as per parameter list
-            Stream<Film> filmStream = oscarFilmList.stream()
-                    .filter(addParamFilters(request).stream().reduce(x->true, Predicate::and))
-                    .sorted(getSortComparator(request));
+        Format(final String extension, final String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
 
-            // Apply Limit and Collect the data
-            if(StringUtils.isNotBlank(limit)) {
-                resultFilms = filmStream
-                        .limit(Integer.parseInt(limit))
-                        .collect(Collectors.toList());
-            } else {
-                resultFilms = filmStream.collect(Collectors.toList());
+        static Format of(final SlingHttpServletRequest request) {
+            final String extension = request.getRequestPathInfo().getExtension();
+            for (Format format : values()) {
+                if (format != JSON && format.extension.equals(extension)) {
+                    return format;
+                }
             }
+            return AcceptHeaders.lists(request.getHeader(HEADER_ACCEPT), BINARY.contentType) ? BINARY : JSON;
+        }
+    }
 
-            logger.info("Size of filtered list: " + resultFilms.size());
+    private static final long serialVersionUID = 1L;
 
-            // Add the response array to required JSON object
-            resultObj.put("result", resultFilms.toArray());
-            response.setStatus(HttpServletResponse.SC_OK);
+    private final Logger logger = LoggerFactory.getLogger(getClass());
 
-        } catch (JSONException e) {
-            logger.error("Exception caught while calling web service >>", e);
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-        }
+    @Reference
+    private FilmCatalogService filmCatalogService;
 
-        // Write response to PrintWriter
-        response.setContentType(RESPONSE_CONTENT_TYPE);
-        response.getWriter().print(resultObj.toString());
-    }
+    @Reference
+    private FilmResultCache filmResultCache;
 
-    /**
-     * Retrieve Films List from Resource
-     * @param request
-     */
-    private void retrieveFilmsFromResource(SlingHttpServletRequest request) {
-        final Resource resource = request.getResource();
+    private volatile String cacheControl;
 
-        for (Resource child : resource.getChildren()) {
-            Film film = child.adaptTo(Film.class);
-            oscarFilmList.add(film);
-        }
+    private volatile Compression compression;
 
-        logger.info("Size of list from the resource: " + oscarFilmList.size());
+    @Activate
+    @Modified
+    protected void activate(final Config config) {
+        cacheControl = "public, max-age=" + Math.max(0, config.max_age_seconds());
+        compression = new Compression(config.gzip_level(), config.gzip_min_bytes());
     }
 
-    /**
-     * Add Parameters predicate based on the request
-     * @param request
-     * @return
-     */
-    private List<Predicate<Film>> addParamFilters(final SlingHttpServletRequest request) {
-        List<Predicate<Film>> paramPredicates = new ArrayList<>();
+    @Override
+    public void doGet(final SlingHttpServletRequest request, final SlingHttpServletResponse response) throws IOException {
+        final Format format = Format.of(request);
+        response.setContentType(format.contentType);
+        if (format != Format.BINARY) {
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        }
 
-        if(!request.getRequestParameterList().isEmpty()) {
-            String title = request.getParameter(TITLE);
-            if (title != null && !title.isEmpty()) {
-                paramPredicates.add(film -> film.getTitle().equalsIgnoreCase(title));
-            }
+        // Parse the supported request parameters, invalid numbers are a client error
+        final FilmQuery query;
+        try {
+            query = FilmQuery.parse(request::getParameter);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Invalid film request: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
 
-            String year = request.getParameter(YEAR);
-            if (year != null && !year.isEmpty()) {
-                paramPredicates.add(film -> Integer.parseInt(film.getYear()) == Integer.parseInt(year));
-            }
+        // The revision is taken before the catalog, so a response is never tagged newer than its content.
+        // Every format and content coding of the same result is a different representation with its own tag
+        final Compression gzip = compression.accepts(request.getHeader(HEADER_ACCEPT_ENCODING)) ? compression : null;
+        final String representation = filmCatalogService.getRevision(request.getResource())
+                + "-" + EntityTags.digest(query.getCanonicalForm())
+                + (format == Format.JSON ? "" : "-" + format.extension);
+        final String plainTag = EntityTags.strong(representation);
+        final String gzipTag = EntityTags.strong(representation + "-" + GZIP);
+        response.setHeader(HEADER_CACHE_CONTROL, cacheControl);
+        response.setHeader(HEADER_VARY, HEADER_ACCEPT + ", " + HEADER_ACCEPT_ENCODING);
+
+        // Buffered bodies below the threshold are sent uncompressed, so a client accepting gzip may
+        // hold either representation; streamed bodies of such a client are always compressed
+        final String ifNoneMatch = request.getHeader(HEADER_IF_NONE_MATCH);
+        final boolean gzipOnly = gzip != null && format == Format.NDJSON;
+        final String matchingTag = !gzipOnly && EntityTags.matches(ifNoneMatch, plainTag) ? plainTag
+                : gzip != null && EntityTags.matches(ifNoneMatch, gzipTag) ? gzipTag : null;
+        if (matchingTag != null) {
+            response.setHeader(HttpConstants.HEADER_ETAG, matchingTag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
 
-            String minYear = request.getParameter(MIN_YEAR);
-            if (minYear != null && !minYear.isEmpty()) {
-                paramPredicates.add(film -> Integer.parseInt(film.getYear()) >= Integer.parseInt(minYear));
-            }
+        // Retrieve the columns of the requested container from the in-memory catalog,
+        // partitions of other years than the queried ones do not have to be read
+        final FilmCatalog catalog = filmCatalogService.getCatalog(request.getResource(), query);
 
-            String maxYear = request.getParameter(MAX_YEAR);
-            if (maxYear != null && !maxYear.isEmpty()) {
-                paramPredicates.add(film -> Integer.parseInt(film.getYear()) <= Integer.parseInt(maxYear));
+        // Stream the rows while the query finds them, bypassing the result cache
+        if (format == Format.NDJSON) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            if (gzip == null) {
+                response.setHeader(HttpConstants.HEADER_ETAG, plainTag);
+                new FilmNdjsonWriter(response.getOutputStream()).writeResult(catalog, query);
+                return;
             }
+            response.setHeader(HttpConstants.HEADER_ETAG, gzipTag);
+            response.setHeader(HEADER_CONTENT_ENCODING, GZIP);
+            final GZIPOutputStream out = gzip.open(response.getOutputStream(), true);
+            new FilmNdjsonWriter(out).writeResult(catalog, query);
+            out.finish();
+            return;
+        }
 
-            String minAwards = request.getParameter(MIN_AWARDS);
-            if (minAwards != null && !minAwards.isEmpty()) {
-                paramPredicates.add(film -> Integer.parseInt(film.getAwards()) >= Integer.parseInt(minAwards));
+        // Repeated queries are answered with the body compressed for their cached result,
+        // tagged by the content coding actually applied to it
+        final String containerPath = request.getResource().getPath();
+        if (gzip != null) {
+            final ResponseBody body = filmResultCache.getBody(containerPath, catalog, query,
+                    format.extension + gzip.variant, rows -> gzip.encode(format, catalog, query, rows));
+            response.setStatus(HttpServletResponse.SC_OK);
+            if (body.isGzipped()) {
+                response.setHeader(HttpConstants.HEADER_ETAG, gzipTag);
+                response.setHeader(HEADER_CONTENT_ENCODING, GZIP);
+            } else {
+                response.setHeader(HttpConstants.HEADER_ETAG, plainTag);
             }
+            response.setContentLength(body.size());
+            response.getOutputStream().write(body.getBytes());
+            return;
+        }
 
-            String maxAwards = request.getParameter(MAX_AWARDS);
-            if (maxAwards != null && !maxAwards.isEmpty()) {
-                paramPredicates.add(film -> Integer.parseInt(film.getAwards()) <= Integer.parseInt(maxAwards));
-            }
+        // Filter, sort and limit the rows of the catalog as per parameter list, repeated queries are cached
+        final int[] resultRows = filmResultCache.getResult(containerPath, catalog, query);
+        logger.debug("Size of filtered list: {}", resultRows.length);
 
-            String nominations = request.getParameter(NOMINATIONS);
-            if (nominations != null && !nominations.isEmpty()) {
-                paramPredicates.add(film -> Integer.parseInt(film.getNominations()) == Integer.parseInt(nominations));
-            }
+        response.setHeader(HttpConstants.HEADER_ETAG, plainTag);
+        response.setStatus(HttpServletResponse.SC_OK);
+        write(format, response.getOutputStream(), catalog, query, resultRows);
+    }
 
-            String isBestPicture = request.getParameter(IS_BEST_PICTURE);
-            if (isBestPicture != null && !isBestPicture.isEmpty()) {
-                paramPredicates.add(film -> Boolean.parseBoolean(film.getIsBestPicture()) == Boolean.parseBoolean(isBestPicture));
-            }
+    private static void write(final Format format, final OutputStream out, final FilmCatalog catalog,
+                              final FilmQuery query, final int[] rows) throws IOException {
+        // A full page can be continued after its last row
+        final FilmCursor nextCursor = FilmQueryEngine.nextCursor(catalog, query, rows);
+        final String token = nextCursor == null ? null : nextCursor.toToken();
+        if (format == Format.BINARY) {
+            new FilmBinaryWriter(out).writeResult(catalog, rows, query.getProjection(), token);
+            return;
         }
 
-        return paramPredicates;
+        // Copy the pre-encoded rows straight into the stream
+        new FilmJsonWriter(out).writeResult(catalog, rows, query.getProjection(), token);
     }
 
     /**
-     * Prepare Sort comparator based on parameters passed
-     * @param request
-     * @return
+     * Gzip settings of one configuration. The variant names the settings in the result cache,
+     * so bodies compressed with other settings are never served after a configuration change.
      */
-    private Comparator<Film> getSortComparator (final SlingHttpServletRequest request) {
-        if(!request.getRequestParameterList().isEmpty()) {
-            String sortBy = request.getParameter(SORT_BY);
-            if (sortBy != null && !sortBy.isEmpty()) {
-                if (sortBy.equalsIgnoreCase(YEAR)) {
-                    return Comparator.comparing(Film::getYear);
-                } else if (sortBy.equalsIgnoreCase(AWARDS)) {
-                    return Comparator.comparing(Film::getAwards);
-                } else if (sortBy.equalsIgnoreCase(NOMINATIONS)) {
-                    return Comparator.comparing(Film::getNominations);
+    private static final class Compression {
+
+        private static final int BUFFER_SIZE = 8192;
+
+        private final int level;
+        private final int minBytes;
+        private final String variant;
+
+        Compression(final int level, final int minBytes) {
+            this.level = Math.min(Deflater.BEST_COMPRESSION, Math.max(0, level));
+            this.minBytes = Math.max(0, minBytes);
+            this.variant = "+" + GZIP + "-" + this.level + "-" + this.minBytes;
+        }
+
+        /**
+         * @param acceptEncoding Accept-Encoding header of the request, may be null
+         * @return true if compression is enabled and accepted by the client
+         */
+        boolean accepts(final String acceptEncoding) {
+            return level > 0 && AcceptHeaders.lists(acceptEncoding, GZIP);
+        }
+
+        GZIPOutputStream open(final OutputStream out, final boolean syncFlush) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE, syncFlush) {
+                {
+                    def.setLevel(level);
                 }
-            }
+            };
         }
 
-        return Comparator.comparing(Film::getTitle);
+        /**
+         * Writes the rows and compresses them, unless they are smaller than the threshold
+         */
+        ResponseBody encode(final Format format, final FilmCatalog catalog, final FilmQuery query, final int[] rows) {
+            try {
+                final ByteArrayOutputStream plain = new ByteArrayOutputStream(BUFFER_SIZE);
+                write(format, plain, catalog, query, rows);
+                if (plain.size() < minBytes) {
+                    return new ResponseBody(plain.toByteArray(), false);
+                }
+                final ByteArrayOutputStream compressed = new ByteArrayOutputStream(plain.size() / 4 + BUFFER_SIZE);
+                try (GZIPOutputStream out = open(compressed, false)) {
+                    plain.writeTo(out);
+                }
+                return new ResponseBody(compressed.toByteArray(), true);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,138 @@
+package de.cyberport.core.servlets;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmFacets;
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.services.FilmCatalogService;
+import de.cyberport.core.utils.EntityTags;
+import de.cyberport.core.utils.FilmJsonWriter;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.HttpConstants;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.apache.sling.servlets.annotations.SlingServletResourceTypes;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.propertytypes.ServiceDescription;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static de.cyberport.core.constants.OscarConstants.FACETS_SELECTOR;
+import static de.cyberport.core.constants.OscarConstants.HEADER_CACHE_CONTROL;
+import static de.cyberport.core.constants.OscarConstants.HEADER_IF_NONE_MATCH;
+import static de.cyberport.core.constants.OscarConstants.IS_BEST_PICTURE;
+import static de.cyberport.core.constants.OscarConstants.MAX_AWARDS;
+import static de.cyberport.core.constants.OscarConstants.MAX_YEAR;
+import static de.cyberport.core.constants.OscarConstants.MIN_AWARDS;
+import static de.cyberport.core.constants.OscarConstants.MIN_YEAR;
+import static de.cyberport.core.constants.OscarConstants.NOMINATIONS;
+import static de.cyberport.core.constants.OscarConstants.RESPONSE_CONTENT_TYPE;
+import static de.cyberport.core.constants.OscarConstants.TITLE;
+import static de.cyberport.core.constants.OscarConstants.YEAR;
+
+/**
+ * Servlet that writes the facets of the films matching a filter set in json format into the
+ * response, e.g. to build the options of a filter form without loading the films. It is mounted
+ * with the 'facets' selector for all film containers, e.g.
+ * /content/oscars.facets.json?minYear=2000&isBestPicture=false
+ *
+ * Supports the filter parameters of {@link OscarFilmContainerServlet}: title, year, minYear,
+ * maxYear, minAwards, maxAwards, nominations and isBestPicture. Sort, limit, cursor and fields
+ * are ignored, neither validated nor part of the ETag, the facets always describe all matching films.
+ * The facets are always uncompressed json, they don't depend on any request header, so there is
+ * no Vary header.
+ *
+ * Sample response:
+ * {
+ *   "count": 2,
+ *   "facets": {
+ *     "year": { "2019": 2 },
+ *     "awards": { "1": 1, "4": 1 },
+ *     "nominations": { "6": 2 },
+ *     "isBestPicture": { "true": 1, "false": 1 }
+ *   },
+ *   "numberOfReferences": { "sum": 9855, "average": 4927.5 }
+ * }
+ * @author ritendra_singh
+ */
+@Component(service = { Servlet.class }, immediate = true)
+@SlingServletResourceTypes(
+        resourceTypes="test/filmEntryContainer",
+        methods=HttpConstants.METHOD_GET,
+        selectors=FACETS_SELECTOR,
+        extensions="json")
+@ServiceDescription("Oscar Film Facets Servlet")
+@Designate(ocd = OscarFilmFacetsServlet.Config.class)
+public class OscarFilmFacetsServlet extends SlingSafeMethodsServlet {
+
+    @ObjectClassDefinition(name = "Oscar Film Facets Servlet",
+            description = "HTTP caching of the film facets")
+    public @interface Config {
+
+        @AttributeDefinition(name = "Max age",
+                description = "Seconds clients and CDNs may use a response before revalidating it with its ETag")
+        int max_age_seconds() default 60;
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Set<String> FILTERS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            TITLE, YEAR, MIN_YEAR, MAX_YEAR, MIN_AWARDS, MAX_AWARDS, NOMINATIONS, IS_BEST_PICTURE)));
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Reference
+    private FilmCatalogService filmCatalogService;
+
+    private volatile String cacheControl;
+
+    @Activate
+    @Modified
+    protected void activate(final Config config) {
+        cacheControl = "public, max-age=" + Math.max(0, config.max_age_seconds());
+    }
+
+    @Override
+    public void doGet(final SlingHttpServletRequest request, final SlingHttpServletResponse response) throws IOException {
+        response.setContentType(RESPONSE_CONTENT_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        final FilmQuery query;
+        try {
+            query = FilmQuery.parse(name -> FILTERS.contains(name) ? request.getParameter(name) : null);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Invalid facets request: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        final String entityTag = EntityTags.strong(filmCatalogService.getRevision(request.getResource())
+                + "-" + EntityTags.digest(query.getCanonicalForm()) + "-" + FACETS_SELECTOR);
+        response.setHeader(HttpConstants.HEADER_ETAG, entityTag);
+        response.setHeader(HEADER_CACHE_CONTROL, cacheControl);
+        if (EntityTags.matches(request.getHeader(HEADER_IF_NONE_MATCH), entityTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        final FilmCatalog catalog = filmCatalogService.getCatalog(request.getResource());
+        final FilmFacets facets = FilmFacets.compute(catalog, query);
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        new FilmJsonWriter(response.getOutputStream()).writeFacets(facets);
+    }
+}
@@ -0,0 +1,111 @@
+package de.cyberport.core.servlets;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmProjection;
+import de.cyberport.core.catalog.FilmSuggester;
+import de.cyberport.core.services.FilmCatalogService;
+import de.cyberport.core.utils.FilmJsonWriter;
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.HttpConstants;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.apache.sling.servlets.annotations.SlingServletResourceTypes;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.propertytypes.ServiceDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static de.cyberport.core.constants.OscarConstants.*;
+
+/**
+ * Servlet that writes title suggestions for an autocomplete in json format into the response.
+ * It is mounted with the 'suggest' selector for all film containers, e.g.
+ * /content/oscars.suggest.json?q=godf&limit=5&fuzzy=true
+ *
+ * Supported request parameters:
+ * 1. q - String. The typed prefix of the title, case insensitive.
+ * 2. limit - Integer. Maximum amount of suggestions, default 10, at most 50.
+ * 3. fuzzy - Boolean. True to tolerate typos in longer prefixes.
+ *
+ * The suggestions are ranked by their number of references, exact prefix matches first.
+ *
+ * Sample response:
+ * {
+ *   "result": [
+ *     {
+ *       "title": "The Godfather",
+ *       "year": "1972",
+ *       "numberOfReferences": 9508
+ *     }
+ *   ]
+ * }
+ * @author ritendra_singh
+ */
+@Component(service = { Servlet.class }, immediate = true)
+@SlingServletResourceTypes(
+        resourceTypes="test/filmEntryContainer",
+        methods=HttpConstants.METHOD_GET,
+        selectors=SUGGEST_SELECTOR,
+        extensions="json")
+@ServiceDescription("Oscar Film Suggest Servlet")
+public class OscarFilmSuggestServlet extends SlingSafeMethodsServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Properties written per suggestion
+     */
+    private static final FilmProjection SUGGESTION_FIELDS =
+            FilmProjection.parse(TITLE + "," + YEAR + "," + NUMBER_OF_REFERENCES);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Reference
+    private FilmCatalogService filmCatalogService;
+
+    @Override
+    public void doGet(final SlingHttpServletRequest request, final SlingHttpServletResponse response) throws IOException {
+        response.setContentType(RESPONSE_CONTENT_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        final int limit;
+        try {
+            limit = getLimit(request);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Invalid suggest request: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        final FilmCatalog catalog = filmCatalogService.getCatalog(request.getResource());
+        final int[] rows = FilmSuggester.suggest(catalog, StringUtils.trimToNull(request.getParameter(QUERY)),
+                limit, Boolean.parseBoolean(request.getParameter(FUZZY)));
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        new FilmJsonWriter(response.getOutputStream()).writeResult(catalog, rows, SUGGESTION_FIELDS, null);
+    }
+
+    /**
+     * Requested amount of suggestions, capped to the maximum
+     * @param request
+     * @return
+     */
+    private static int getLimit(final SlingHttpServletRequest request) {
+        final String limit = request.getParameter(LIMIT);
+        if (StringUtils.isBlank(limit)) {
+            return DEFAULT_SUGGEST_LIMIT;
+        }
+        final int value = Integer.parseInt(limit.trim());
+        if (value < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + value);
+        }
+        return Math.min(value, MAX_SUGGEST_LIMIT);
+    }
+}
@@ -0,0 +1,48 @@
+package de.cyberport.core.utils;
+
+/**
+ * Content negotiation headers of HTTP requests, e.g. Accept and Accept-Encoding.
+ *
+ * @author ritendra_singh
+ */
+public final class AcceptHeaders {
+
+    private static final String QUALITY = "q=";
+
+    private AcceptHeaders() {
+    }
+
+    /**
+     * Checks whether a negotiation header lists a value. Quality values are not weighed against
+     * each other, only a value with quality 0 is refused explicitly.
+     * @param header header value, e.g. {@code gzip, deflate;q=0.5} or {@code application/json;q=0.9}, may be null
+     * @param value media type or content coding without parameters, case insensitive
+     * @return true if the header lists the value with a quality above 0
+     */
+    public static boolean lists(final String header, final String value) {
+        if (header == null) {
+            return false;
+        }
+        for (String element : header.split(",")) {
+            final String[] parts = element.split(";");
+            if (parts[0].trim().equalsIgnoreCase(value)) {
+                return !isRefused(parts);
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRefused(final String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            final String parameter = parts[i].trim();
+            if (parameter.startsWith(QUALITY)) {
+                try {
+                    return Double.parseDouble(parameter.substring(QUALITY.length())) <= 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
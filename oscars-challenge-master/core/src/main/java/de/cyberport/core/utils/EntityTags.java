@@ -0,0 +1,87 @@
+package de.cyberport.core.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Entity tags of HTTP conditional requests.
+ *
+ * @author ritendra_singh
+ */
+public final class EntityTags {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    /**
+     * 128 of the 256 bits of a SHA-256 digest, enough to tell the variants of a resource apart
+     */
+    private static final int DIGEST_BYTES = 16;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private EntityTags() {
+    }
+
+    /**
+     * @param value opaque value without quotes
+     * @return strong entity tag of the value, e.g. "abc-12"
+     */
+    public static String strong(final String value) {
+        return '"' + value + '"';
+    }
+
+    /**
+     * Digest of the canonical form of a request, to tell its representation apart from the ones
+     * of all other requests. Every part is prefixed with its length, so the parts can't be shifted
+     * into each other.
+     * @param parts canonical parts of the request, in a fixed order
+     * @return truncated SHA-256 digest of the parts, url-safe base64 encoded
+     */
+    public static String digest(final String... parts) {
+        final MessageDigest digest = sha256();
+        for (String part : parts) {
+            final byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+            digest.update(bytes);
+        }
+        return ENCODER.encodeToString(Arrays.copyOf(digest.digest(), DIGEST_BYTES));
+    }
+
+    /**
+     * Compares the tags of an If-None-Match header with the current one. As required for
+     * If-None-Match, the comparison is weak: a W/ prefix on either side is ignored.
+     * @param ifNoneMatch header value, e.g. {@code "a", W/"b"} or {@code *}, may be null
+     * @param entityTag current entity tag of the resource
+     * @return true if the header lists the current tag or is the wildcard
+     */
+    public static boolean matches(final String ifNoneMatch, final String entityTag) {
+        if (ifNoneMatch == null || entityTag == null) {
+            return false;
+        }
+        final String current = opaque(entityTag);
+        for (String tag : ifNoneMatch.split(",")) {
+            final String trimmed = tag.trim();
+            if ("*".equals(trimmed) || opaque(trimmed).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String opaque(final String entityTag) {
+        return entityTag.startsWith(WEAK_PREFIX) ? entityTag.substring(WEAK_PREFIX.length()) : entityTag;
+    }
+}
@@ -0,0 +1,250 @@
+package de.cyberport.core.utils;
+
+import de.cyberport.core.catalog.FilmProjection;
+import de.cyberport.core.models.Film;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client side reader of the binary film result written by {@link FilmBinaryWriter}.
+ *
+ * The columns are decoded into primitive arrays, without any intermediate objects per row, so
+ * a caller reading a few fields of many films never creates more than their titles.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmBinaryReader {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_VARINT_SHIFT = 28;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    public FilmBinaryReader(final InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads one binary result from the stream.
+     * @return decoded result
+     * @throws IOException if the stream fails, ends early or holds no film result of a supported version
+     */
+    public Result read() throws IOException {
+        for (byte magic : FilmBinaryWriter.MAGIC) {
+            if (readByte() != magic) {
+                throw new IOException("Not a binary film result");
+            }
+        }
+        final int version = readByte() & 0xFF;
+        if (version != FilmBinaryWriter.VERSION) {
+            throw new IOException("Unsupported binary film result version " + version);
+        }
+        final int fields = readByte() & 0xFF;
+        final int count = readVarint();
+        final Result result = new Result(fields, count);
+        for (FilmProjection.Field field : FilmProjection.Field.values()) {
+            if (result.includes(field)) {
+                readColumn(result, field);
+            }
+        }
+        final int cursorLength = readVarint();
+        result.nextCursor = cursorLength == 0 ? null : readString(cursorLength);
+        return result;
+    }
+
+    private void readColumn(final Result result, final FilmProjection.Field field) throws IOException {
+        final int count = result.size();
+        switch (field) {
+            case TITLE:
+                result.titles = new String[count];
+                for (int i = 0; i < count; i++) {
+                    result.titles[i] = readString(readVarint());
+                }
+                break;
+            case YEAR:
+                result.years = readVarints(count);
+                break;
+            case AWARDS:
+                result.awards = readVarints(count);
+                break;
+            case NOMINATIONS:
+                result.nominations = readVarints(count);
+                break;
+            case IS_BEST_PICTURE:
+                result.bestPictures = new byte[(count + Byte.SIZE - 1) / Byte.SIZE];
+                for (int i = 0; i < result.bestPictures.length; i++) {
+                    result.bestPictures[i] = readByte();
+                }
+                break;
+            case NUMBER_OF_REFERENCES:
+                result.numberOfReferences = readVarints(count);
+                break;
+            default:
+                throw new IllegalStateException("Unsupported field " + field);
+        }
+    }
+
+    private int[] readVarints(final int count) throws IOException {
+        final int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = readVarint();
+        }
+        return values;
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift <= MAX_VARINT_SHIFT; shift += 7) {
+            final byte next = readByte();
+            value |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private String readString(final int length) throws IOException {
+        if (length <= buffer.length) {
+            if (limit - position < length) {
+                fill(length);
+            }
+            final String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+        final byte[] bytes = new byte[length];
+        int read = Math.min(length, limit - position);
+        System.arraycopy(buffer, position, bytes, 0, read);
+        position += read;
+        while (read < length) {
+            final int next = in.read(bytes, read, length - read);
+            if (next < 0) {
+                throw new EOFException();
+            }
+            read += next;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte readByte() throws IOException {
+        if (position == limit) {
+            fill(1);
+        }
+        return buffer[position++];
+    }
+
+    /**
+     * Moves the unread bytes to the start of the buffer and reads until at least {@code required} are available
+     */
+    private void fill(final int required) throws IOException {
+        final int remaining = limit - position;
+        System.arraycopy(buffer, position, buffer, 0, remaining);
+        position = 0;
+        limit = remaining;
+        while (limit < required) {
+            final int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            limit += read;
+        }
+    }
+
+    /**
+     * Decoded films of a binary result, column by column. Getters of fields that were not
+     * written throw an {@link IllegalStateException}.
+     */
+    public static final class Result {
+
+        private final int fields;
+        private final int size;
+        private String[] titles;
+        private int[] years;
+        private int[] awards;
+        private int[] nominations;
+        private byte[] bestPictures;
+        private int[] numberOfReferences;
+        private String nextCursor;
+
+        private Result(final int fields, final int size) {
+            this.fields = fields;
+            this.size = size;
+        }
+
+        /**
+         * @return number of films
+         */
+        public int size() {
+            return size;
+        }
+
+        public boolean includes(final FilmProjection.Field field) {
+            return (fields & 1 << field.ordinal()) != 0;
+        }
+
+        public String getTitle(final int index) {
+            return column(titles, FilmProjection.Field.TITLE)[index];
+        }
+
+        public int getYear(final int index) {
+            return column(years, FilmProjection.Field.YEAR)[index];
+        }
+
+        public int getAwards(final int index) {
+            return column(awards, FilmProjection.Field.AWARDS)[index];
+        }
+
+        public int getNominations(final int index) {
+            return column(nominations, FilmProjection.Field.NOMINATIONS)[index];
+        }
+
+        public boolean isBestPicture(final int index) {
+            final byte[] bits = column(bestPictures, FilmProjection.Field.IS_BEST_PICTURE);
+            return (bits[index / Byte.SIZE] & 1 << index % Byte.SIZE) != 0;
+        }
+
+        public int getNumberOfReferences(final int index) {
+            return column(numberOfReferences, FilmProjection.Field.NUMBER_OF_REFERENCES)[index];
+        }
+
+        /**
+         * @return token of the next page, null if there is none
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        /**
+         * @return the films in result order, fields that were not written have their default value
+         */
+        public List<Film> toFilms() {
+            final List<Film> films = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                films.add(new Film(
+                        includes(FilmProjection.Field.TITLE) ? titles[i] : null,
+                        includes(FilmProjection.Field.YEAR) ? years[i] : 0,
+                        includes(FilmProjection.Field.AWARDS) ? awards[i] : 0,
+                        includes(FilmProjection.Field.NOMINATIONS) ? nominations[i] : 0,
+                        includes(FilmProjection.Field.IS_BEST_PICTURE) && isBestPicture(i),
+                        includes(FilmProjection.Field.NUMBER_OF_REFERENCES) ? numberOfReferences[i] : 0));
+            }
+            return films;
+        }
+
+        private static <T> T column(final T values, final FilmProjection.Field field) {
+            if (values == null) {
+                throw new IllegalStateException("Field " + field.getParameter() + " was not written");
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package de.cyberport.core.utils;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmProjection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes catalog rows in a compact, columnar binary layout for service to service calls, the
+ * counterpart of {@link FilmBinaryReader}.
+ *
+ * The layout mirrors the fields of the json result, every column holds one value per row:
+ * <pre>
+ * magic     4 bytes "OSCR"
+ * version   1 byte
+ * fields    1 byte, bit i set if {@link FilmProjection.Field} with ordinal i is included
+ * count     varint
+ * columns   one per included field, in the documented field order:
+ *           title                UTF-8 byte length as varint, followed by the bytes, per row
+ *           year, awards,
+ *           nominations,
+ *           numberOfReferences   varint per row
+ *           isBestPicture        one bit per row, row i in bit i % 8 of byte i / 8
+ * cursor    ASCII length as varint, followed by the next cursor token, length 0 if there is none
+ * </pre>
+ * Varints are unsigned LEB128 of the 32 bit value: seven bits per byte, least significant first,
+ * the high bit set on every byte but the last. Numbers of a film mostly take a single byte, so a
+ * row is about the size of its title and decoding needs neither field names nor text parsing.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmBinaryWriter {
+
+    static final byte[] MAGIC = {'O', 'S', 'C', 'R'};
+    static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int length;
+
+    public FilmBinaryWriter(final OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the result with one entry per row, restricted to the fields of the projection, and
+     * the cursor of the next page.
+     * @param catalog catalog holding the rows
+     * @param rows row ids in result order
+     * @param projection fields to write per row
+     * @param nextCursor URL safe token of the next page, or null to leave it out
+     * @throws IOException if the stream fails
+     */
+    public void writeResult(final FilmCatalog catalog, final int[] rows, final FilmProjection projection,
+                            final String nextCursor) throws IOException {
+        write(MAGIC, 0, MAGIC.length);
+        writeByte(VERSION);
+        writeByte(mask(projection));
+        writeVarint(rows.length);
+        for (FilmProjection.Field field : FilmProjection.Field.values()) {
+            if (projection.includes(field)) {
+                writeColumn(catalog, rows, field);
+            }
+        }
+        final byte[] cursor = nextCursor == null ? new byte[0] : nextCursor.getBytes(StandardCharsets.US_ASCII);
+        writeVarint(cursor.length);
+        write(cursor, 0, cursor.length);
+        drain();
+    }
+
+    private void writeColumn(final FilmCatalog catalog, final int[] rows, final FilmProjection.Field field)
+            throws IOException {
+        switch (field) {
+            case TITLE:
+                // Copied from the pooled UTF-8 bytes, titles are never decoded
+                for (int row : rows) {
+                    final int count = catalog.getTitleLength(row);
+                    writeVarint(count);
+                    if (length + count > buffer.length) {
+                        drain();
+                        if (count > buffer.length) {
+                            catalog.writeTitle(row, out);
+                            continue;
+                        }
+                    }
+                    catalog.copyTitle(row, buffer, length);
+                    length += count;
+                }
+                break;
+            case YEAR:
+                for (int row : rows) {
+                    writeVarint(catalog.getYear(row));
+                }
+                break;
+            case AWARDS:
+                for (int row : rows) {
+                    writeVarint(catalog.getAwards(row));
+                }
+                break;
+            case NOMINATIONS:
+                for (int row : rows) {
+                    writeVarint(catalog.getNominations(row));
+                }
+                break;
+            case IS_BEST_PICTURE:
+                for (int i = 0; i < rows.length; i += Byte.SIZE) {
+                    int bits = 0;
+                    for (int bit = 0; bit < Byte.SIZE && i + bit < rows.length; bit++) {
+                        if (catalog.isBestPicture(rows[i + bit])) {
+                            bits |= 1 << bit;
+                        }
+                    }
+                    writeByte(bits);
+                }
+                break;
+            case NUMBER_OF_REFERENCES:
+                for (int row : rows) {
+                    writeVarint(catalog.getNumberOfReferences(row));
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unsupported field " + field);
+        }
+    }
+
+    /**
+     * @param projection
+     * @return bit mask of the included fields by ordinal
+     */
+    static int mask(final FilmProjection projection) {
+        int mask = 0;
+        for (FilmProjection.Field field : FilmProjection.Field.values()) {
+            if (projection.includes(field)) {
+                mask |= 1 << field.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    private void writeVarint(final int value) throws IOException {
+        if (length + MAX_VARINT_BYTES > buffer.length) {
+            drain();
+        }
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            buffer[length++] = (byte) (remaining & 0x7F | 0x80);
+            remaining >>>= 7;
+        }
+        buffer[length++] = (byte) remaining;
+    }
+
+    private void writeByte(final int value) throws IOException {
+        if (length == buffer.length) {
+            drain();
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private void write(final byte[] bytes, final int offset, final int count) throws IOException {
+        if (length + count > buffer.length) {
+            drain();
+            if (count > buffer.length) {
+                out.write(bytes, offset, count);
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, length, count);
+        length += count;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+}
@@ -0,0 +1,210 @@
+package de.cyberport.core.utils;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmFacets;
+import de.cyberport.core.catalog.FilmProjection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static de.cyberport.core.constants.OscarConstants.AVERAGE;
+import static de.cyberport.core.constants.OscarConstants.AWARDS;
+import static de.cyberport.core.constants.OscarConstants.COUNT;
+import static de.cyberport.core.constants.OscarConstants.FACETS;
+import static de.cyberport.core.constants.OscarConstants.IS_BEST_PICTURE;
+import static de.cyberport.core.constants.OscarConstants.NEXT_CURSOR;
+import static de.cyberport.core.constants.OscarConstants.NOMINATIONS;
+import static de.cyberport.core.constants.OscarConstants.NUMBER_OF_REFERENCES;
+import static de.cyberport.core.constants.OscarConstants.RESULT;
+import static de.cyberport.core.constants.OscarConstants.RESULTS;
+import static de.cyberport.core.constants.OscarConstants.SUM;
+import static de.cyberport.core.constants.OscarConstants.YEAR;
+
+/**
+ * Writes catalog rows as UTF-8 json directly into a stream, without building a document in memory.
+ *
+ * Every row is copied from its pre-encoded fragment in the catalog, so only the separators
+ * around them are written here; rows projected to fewer fields copy just the segments of their
+ * fields out of the same fragments. The schema of a full row is the documented one of the film container servlet:
+ * {"result":[{"title":"Parasite","year":"2019","awards":4,"nominations":6,"isBestPicture":true,"numberOfReferences":8855}]}
+ *
+ * @author ritendra_singh
+ */
+public final class FilmJsonWriter {
+
+    private static final byte[] RESULT_START = ("{\"" + RESULT + "\":[").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RESULT_END = "]}".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NEXT_CURSOR_START = ("],\"" + NEXT_CURSOR + "\":\"").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NEXT_CURSOR_END = "\"}".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RESULTS_START = ("{\"" + RESULTS + "\":{").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RESULTS_END = "}}".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+
+    /**
+     * Number of keyed results written since {@link #beginResults()}
+     */
+    private int keyedResults;
+
+    public FilmJsonWriter(final OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the result object with one entry per row.
+     * @param catalog catalog holding the rows
+     * @param rows row ids in result order
+     * @throws IOException if the stream fails
+     */
+    public void writeResult(final FilmCatalog catalog, final int[] rows) throws IOException {
+        writeResult(catalog, rows, null);
+    }
+
+    /**
+     * Writes the result object with one entry per row and the cursor of the next page.
+     * @param catalog catalog holding the rows
+     * @param rows row ids in result order
+     * @param nextCursor URL safe token of the next page, or null to leave it out
+     * @throws IOException if the stream fails
+     */
+    public void writeResult(final FilmCatalog catalog, final int[] rows, final String nextCursor) throws IOException {
+        writeResult(catalog, rows, FilmProjection.ALL, nextCursor);
+    }
+
+    /**
+     * Writes the result object with one entry per row, restricted to the fields of the projection,
+     * and the cursor of the next page.
+     * @param catalog catalog holding the rows
+     * @param rows row ids in result order
+     * @param projection fields to write per row
+     * @param nextCursor URL safe token of the next page, or null to leave it out
+     * @throws IOException if the stream fails
+     */
+    public void writeResult(final FilmCatalog catalog, final int[] rows, final FilmProjection projection,
+                            final String nextCursor) throws IOException {
+        writeResultObject(catalog, rows, projection, nextCursor);
+    }
+
+    /**
+     * Starts the object of a batch response, which maps a key per query to its result object:
+     * {"results":{"winners":{"result":[...]},"latest":{"result":[...],"nextCursor":"..."}}}
+     * @throws IOException if the stream fails
+     */
+    public void beginResults() throws IOException {
+        keyedResults = 0;
+        out.write(RESULTS_START);
+    }
+
+    /**
+     * Writes the result object of one query of a batch response.
+     * @param key key of the query, only letters, digits, '-' and '_'
+     * @param catalog catalog holding the rows
+     * @param rows row ids in result order
+     * @param projection fields to write per row
+     * @param nextCursor URL safe token of the next page, or null to leave it out
+     * @throws IOException if the stream fails
+     */
+    public void writeResult(final String key, final FilmCatalog catalog, final int[] rows,
+                            final FilmProjection projection, final String nextCursor) throws IOException {
+        if (keyedResults++ > 0) {
+            out.write(',');
+        }
+        out.write('"');
+        out.write(key.getBytes(StandardCharsets.US_ASCII));
+        out.write('"');
+        out.write(':');
+        writeResultObject(catalog, rows, projection, nextCursor);
+    }
+
+    /**
+     * Ends the object of a batch response.
+     * @throws IOException if the stream fails
+     */
+    public void endResults() throws IOException {
+        out.write(RESULTS_END);
+    }
+
+    /**
+     * Writes the facets object, keyed by the request parameter of every column:
+     * {"count":2,"facets":{"year":{"2019":2},"awards":{"1":1,"4":1},"nominations":{"6":2},
+     * "isBestPicture":{"true":1,"false":1}},"numberOfReferences":{"sum":9855,"average":4927.5}}
+     * Values without a matching film are left out, the average is null if no film matches.
+     * @param facets counts of the matching films
+     * @throws IOException if the stream fails
+     */
+    public void writeFacets(final FilmFacets facets) throws IOException {
+        out.write('{');
+        writeName(COUNT);
+        writeAscii(Integer.toString(facets.getCount()));
+        out.write(',');
+        writeName(FACETS);
+        out.write('{');
+        writeFacet(YEAR, facets.getYears());
+        out.write(',');
+        writeFacet(AWARDS, facets.getAwards());
+        out.write(',');
+        writeFacet(NOMINATIONS, facets.getNominations());
+        out.write(',');
+        writeName(IS_BEST_PICTURE);
+        out.write('{');
+        writeName(Boolean.TRUE.toString());
+        writeAscii(Integer.toString(facets.getBestPictures()));
+        out.write(',');
+        writeName(Boolean.FALSE.toString());
+        writeAscii(Integer.toString(facets.getCount() - facets.getBestPictures()));
+        out.write('}');
+        out.write('}');
+        out.write(',');
+        writeName(NUMBER_OF_REFERENCES);
+        out.write('{');
+        writeName(SUM);
+        writeAscii(Long.toString(facets.getReferencesSum()));
+        out.write(',');
+        writeName(AVERAGE);
+        writeAscii(facets.getCount() == 0 ? "null" : Double.toString(facets.getReferencesAverage()));
+        out.write('}');
+        out.write('}');
+    }
+
+    private void writeFacet(final String name, final FilmFacets.Facet facet) throws IOException {
+        writeName(name);
+        out.write('{');
+        final int[] values = facet.values();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeName(Integer.toString(values[i]));
+            writeAscii(Integer.toString(facet.getCount(values[i])));
+        }
+        out.write('}');
+    }
+
+    /**
+     * Writes a quoted name and the colon, the name must not need escaping
+     */
+    private void writeName(final String name) throws IOException {
+        out.write('"');
+        writeAscii(name);
+        out.write('"');
+        out.write(':');
+    }
+
+    private void writeAscii(final String value) throws IOException {
+        out.write(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void writeResultObject(final FilmCatalog catalog, final int[] rows, final FilmProjection projection,
+                                   final String nextCursor) throws IOException {
+        out.write(RESULT_START);
+        catalog.writeFragments(rows, projection, out);
+        if (nextCursor == null) {
+            out.write(RESULT_END);
+        } else {
+            out.write(NEXT_CURSOR_START);
+            out.write(nextCursor.getBytes(StandardCharsets.US_ASCII));
+            out.write(NEXT_CURSOR_END);
+        }
+    }
+}
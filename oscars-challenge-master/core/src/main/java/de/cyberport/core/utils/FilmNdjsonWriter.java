@@ -0,0 +1,87 @@
+package de.cyberport.core.utils;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.catalog.FilmQueryEngine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Streams the result of a query as newline delimited json: one film object per line, in the
+ * schema of {@link FilmJsonWriter} and without an enclosing document.
+ *
+ * Rows are written as soon as the query engine yields them and the stream is flushed after
+ * every chunk of rows, so a client can parse the first lines while the rest of the result is
+ * still being found, and the memory on both sides is bounded by the chunk instead of the result.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmNdjsonWriter {
+
+    /**
+     * Rows written between two flushes of the stream
+     */
+    static final int CHUNK_ROWS = 512;
+
+    private static final byte LINE_FEED = '\n';
+
+    private final OutputStream out;
+
+    public FilmNdjsonWriter(final OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Runs the query and writes one line per matching row, restricted to the projection of the query.
+     * @param catalog catalog holding the rows
+     * @param query parsed query
+     * @throws IOException if the stream fails
+     */
+    public void writeResult(final FilmCatalog catalog, final FilmQuery query) throws IOException {
+        final Chunk chunk = new Chunk(catalog, query);
+        try {
+            FilmQueryEngine.forEach(catalog, query, chunk::add);
+            chunk.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Rows found since the last flush
+     */
+    private final class Chunk {
+
+        private final FilmCatalog catalog;
+        private final FilmQuery query;
+        private final int[] rows = new int[CHUNK_ROWS];
+        private int count;
+
+        Chunk(final FilmCatalog catalog, final FilmQuery query) {
+            this.catalog = catalog;
+            this.query = query;
+        }
+
+        void add(final int row) {
+            rows[count++] = row;
+            if (count == rows.length) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            if (count > 0) {
+                catalog.writeFragments(rows, count, query.getProjection(), LINE_FEED, out);
+                out.write(LINE_FEED);
+                count = 0;
+            }
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package de.cyberport.core.utils;
+
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static de.cyberport.core.constants.OscarConstants.TITLE;
+import static de.cyberport.core.constants.OscarConstants.YEAR;
+
+/**
+ * Repository layout of film containers partitioned by decade and year, e.g.
+ * {@code /content/oscars/1960s/1964/42}.
+ *
+ * Every descendant of a container that is not a film is a partition. A partition named like
+ * a decade ("1960s") only holds films of that decade, and a four digit year partition directly
+ * below its decade ("1960s/1964") only films of that year, so year queries only have to read the
+ * matching partitions. Partitions with other names, e.g. numbered buckets like "19", are always
+ * read, and films directly below the container are always part of it, so a flat container is a
+ * container without partitions.
+ *
+ * @author ritendra_singh
+ */
+public final class FilmPartitions {
+
+    public static final String FILM_RESOURCE_TYPE = "test/filmEntry";
+
+    /**
+     * Highest year a film can be partitioned by, later ones stay directly below the container
+     */
+    public static final int MAX_YEAR = 9999;
+
+    private static final Logger LOG = LoggerFactory.getLogger(FilmPartitions.class);
+    private static final Pattern DECADE = Pattern.compile("(\\d{3})0s");
+    private static final Pattern YEAR_NAME = Pattern.compile("\\d{4}");
+    private static final String PRIMARY_TYPE = "jcr:primaryType";
+    private static final Map<String, Object> PARTITION_PROPERTIES =
+            Collections.singletonMap(PRIMARY_TYPE, "nt:unstructured");
+    private static final int COMMIT_INTERVAL = 1000;
+
+    private FilmPartitions() {
+    }
+
+    /**
+     * @param resource child of a container or partition
+     * @return true for a film entry, false for a partition
+     */
+    public static boolean isFilm(final Resource resource) {
+        return FILM_RESOURCE_TYPE.equals(resource.getResourceType()) || resource.getValueMap().containsKey(TITLE);
+    }
+
+    /**
+     * @param parentName name of the parent partition, empty for the container
+     * @param name name of a partition
+     * @param parentFirstYear first year of the films in the parent partition
+     * @return first year of the films in the partition
+     */
+    public static int firstYear(final String parentName, final String name, final int parentFirstYear) {
+        final int first = yearBound(parentName, name, 0);
+        return first < 0 ? parentFirstYear : Math.max(parentFirstYear, first);
+    }
+
+    /**
+     * @param parentName name of the parent partition, empty for the container
+     * @param name name of a partition
+     * @param parentLastYear last year of the films in the parent partition
+     * @return last year of the films in the partition
+     */
+    public static int lastYear(final String parentName, final String name, final int parentLastYear) {
+        final int last = yearBound(parentName, name, 9);
+        return last < 0 ? parentLastYear : Math.min(parentLastYear, last);
+    }
+
+    /**
+     * @param year year of a film, from 0 to {@link #MAX_YEAR}
+     * @return path of its partition relative to the container, e.g. 1960s/1964
+     */
+    public static String partitionPath(final int year) {
+        return decadeName(year) + "/" + String.format("%04d", year);
+    }
+
+    /**
+     * First or last year of a decade partition, or the year of a year partition below its decade
+     * @param parentName
+     * @param name
+     * @param lastDigit last digit of the bound of a decade, 0 or 9
+     * @return bound of the partition, -1 if it is not named after years
+     */
+    private static int yearBound(final String parentName, final String name, final int lastDigit) {
+        final Matcher decade = DECADE.matcher(name);
+        if (decade.matches()) {
+            return Integer.parseInt(decade.group(1)) * 10 + lastDigit;
+        }
+        final Matcher parentDecade = DECADE.matcher(parentName);
+        if (parentDecade.matches() && YEAR_NAME.matcher(name).matches() && name.startsWith(parentDecade.group(1))) {
+            return Integer.parseInt(name);
+        }
+        return -1;
+    }
+
+    private static String decadeName(final int year) {
+        return String.format("%03d0s", year / 10);
+    }
+
+    /**
+     * Moves the films directly below the container into their decade and year partitions, e.g.
+     * {@code /content/oscars/42} of 1964 to {@code /content/oscars/1960s/1964/42}. Films without a
+     * year from 0 to {@link #MAX_YEAR} stay where they are. Every film is moved by the repository
+     * with its descendants, so it keeps its identifier, mixin types and protected properties.
+     * Changes are committed in batches.
+     * @param resolver resolver with write access to the container
+     * @param container flat or partly partitioned film container
+     * @return number of moved films
+     * @throws PersistenceException if a film cannot be moved
+     */
+    public static int migrate(final ResourceResolver resolver, final Resource container) throws PersistenceException {
+        final List<Resource> films = new ArrayList<>();
+        for (Resource child : container.getChildren()) {
+            if (isFilm(child)) {
+                films.add(child);
+            }
+        }
+
+        int moved = 0;
+        for (Resource film : films) {
+            final int year = film.getValueMap().get(YEAR, -1);
+            if (year < 0 || year > MAX_YEAR) {
+                LOG.warn("Keeping film {} in place, year out of range: {}", film.getPath(), year);
+                continue;
+            }
+            final String decadePath = container.getPath() + "/" + decadeName(year);
+            final String yearPath = container.getPath() + "/" + partitionPath(year);
+            if (isFilmAt(resolver, decadePath) || isFilmAt(resolver, yearPath)) {
+                LOG.warn("Keeping film {} in place, its partition {} is a film", film.getPath(), yearPath);
+                continue;
+            }
+            ResourceUtil.getOrCreateResource(resolver, decadePath, PARTITION_PROPERTIES, null, false);
+            ResourceUtil.getOrCreateResource(resolver, yearPath, PARTITION_PROPERTIES, null, false);
+            resolver.move(film.getPath(), yearPath);
+            if (++moved % COMMIT_INTERVAL == 0) {
+                resolver.commit();
+            }
+        }
+        resolver.commit();
+        LOG.info("Moved {} films of container {} into partitions", moved, container.getPath());
+        return moved;
+    }
+
+    private static boolean isFilmAt(final ResourceResolver resolver, final String path) {
+        final Resource resource = resolver.getResource(path);
+        return resource != null && isFilm(resource);
+    }
+}
@@ -0,0 +1,40 @@
+package de.cyberport.core.utils;
+
+/**
+ * Immutable, completely encoded response body, e.g. a gzip compressed json result kept for
+ * repeated requests.
+ *
+ * @author ritendra_singh
+ */
+public final class ResponseBody {
+
+    private final byte[] bytes;
+    private final boolean gzipped;
+
+    /**
+     * @param bytes encoded body, not to be modified afterwards
+     * @param gzipped true if the bytes have the gzip content coding
+     */
+    public ResponseBody(final byte[] bytes, final boolean gzipped) {
+        this.bytes = bytes;
+        this.gzipped = gzipped;
+    }
+
+    /**
+     * @return encoded body, shared and not to be modified
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public boolean isGzipped() {
+        return gzipped;
+    }
+
+    /**
+     * @return length of the body in bytes
+     */
+    public int size() {
+        return bytes.length;
+    }
+}
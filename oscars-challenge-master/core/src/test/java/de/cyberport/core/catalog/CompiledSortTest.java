@@ -0,0 +1,72 @@
+package de.cyberport.core.catalog;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+class CompiledSortTest {
+
+    private final FilmCatalog catalog = FilmCatalog.builder()
+            .add("Roma", 2018, 3, 10, false, 1933)          // 0
+            .add("Amadeus", 1984, 8, 11, true, 1933)        // 1
+            .add("Roma", 2018, 3, 10, false, 1933)          // 2
+            .add("Wings", 1927, 2, 2, true, 17)             // 3
+            .build();
+
+    @Test
+    @DisplayName("Verify keys are packed by value range, most significant key first")
+    void verifyPackedKeys() {
+        int[] all = {0, 1, 2, 3};
+        CompiledSort sort = CompiledSort.compile(catalog, FilmSort.parse("-numberOfReferences,year"), all);
+        assertTrue(sort.isPacked());
+        assertTrue(sort.key(1) < sort.key(0));
+        assertTrue(sort.key(0) < sort.key(2));
+        assertTrue(sort.key(2) < sort.key(3));
+        assertArrayEquals(new int[] {1, 0, 2, 3}, sort.sort(all));
+        assertArrayEquals(new int[] {1, 0}, sort.top(all, 2));
+        assertArrayEquals(new int[] {3, 2, 0, 1}, CompiledSort.compile(catalog, FilmSort.parse("-title"), all).sort(all));
+    }
+
+    @Test
+    @DisplayName("Verify sorts wider than a long are compared key by key")
+    void verifyWideSortIsCompared() {
+        Random random = new Random(5);
+        FilmCatalogBuilder builder = FilmCatalog.builder();
+        for (int i = 0; i < 500; i++) {
+            builder.add("Film " + random.nextInt(100), 1 + random.nextInt(9999), random.nextInt(128),
+                    random.nextInt(128), false, random.nextInt());
+        }
+        builder.add("Film min", 1, 0, 0, false, Integer.MIN_VALUE);
+        builder.add("Film max", 9999, 127, 127, false, Integer.MAX_VALUE);
+        FilmCatalog wide = builder.build();
+        int[] all = IntStream.range(0, wide.size()).toArray();
+        FilmSort spec = FilmSort.parse("nominations,-numberOfReferences,-year,awards");
+
+        CompiledSort sort = CompiledSort.compile(wide, spec, all);
+        assertFalse(sort.isPacked());
+        int[] expected = IntStream.range(0, wide.size()).boxed()
+                .sorted(Comparator.<Integer>comparingInt(wide::getNominations)
+                        .thenComparing(Comparator.<Integer>comparingInt(wide::getNumberOfReferences).reversed())
+                        .thenComparing(Comparator.<Integer>comparingInt(wide::getYear).reversed())
+                        .thenComparingInt(wide::getAwards)
+                        .thenComparing(wide::getTitle)
+                        .thenComparing(Comparator.naturalOrder()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        assertArrayEquals(expected, sort.sort(all));
+        assertArrayEquals(Arrays.copyOf(expected, 10), sort.top(all, 10));
+        assertEquals(0, sort.sort(new int[0]).length);
+    }
+}
@@ -0,0 +1,209 @@
+package de.cyberport.core.catalog;
+
+import de.cyberport.core.models.Film;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.skyscreamer.jsonassert.JSONCompareMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+class FilmCatalogTest {
+
+    private FilmCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = FilmCatalog.builder()
+                .add(new Film("Parasite", 2019, 4, 6, true, 8855))
+                .add(new Film("Amélie", 2001, 0, 5, false, 1200))
+                .add(null, 1927, 2, 3, false, 17)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Verify the columns keep the values of every row")
+    void verifyColumnsKeepRowValues() {
+        assertEquals(3, catalog.size());
+        assertEquals("Parasite", catalog.getTitle(0));
+        assertEquals(2019, catalog.getYear(0));
+        assertEquals(4, catalog.getAwards(0));
+        assertEquals(6, catalog.getNominations(0));
+        assertTrue(catalog.isBestPicture(0));
+        assertEquals(8855, catalog.getNumberOfReferences(0));
+        assertFalse(catalog.isBestPicture(1));
+    }
+
+    @Test
+    @DisplayName("Verify titles are pooled as UTF-8")
+    void verifyTitlesArePooledAsUtf8() {
+        assertEquals("Amélie", catalog.getTitle(1));
+        TitlePool.Builder titles = new TitlePool.Builder();
+        titles.add("Amélie");
+        assertEquals(7, titles.build().byteLength(0));
+        assertEquals("", catalog.getTitle(2));
+    }
+
+    @Test
+    @DisplayName("Verify encoded titles compare like strings, also around surrogate pairs")
+    void verifyEncodedTitlesCompareLikeStrings() {
+        String[] titles = {"", "A", "Ab", "Amélie", "Amelie", "Z", "\u00e9", "\u4e2d", "\ud83c\udfac",
+                "\ud83c\udfac1", "\uff21", "\ue000", "x\ud83d\ude00", "x\uffe0"};
+        TitlePool.Builder builder = new TitlePool.Builder();
+        for (String title : titles) {
+            builder.add(title);
+        }
+        TitlePool pool = builder.build();
+        for (int row = 0; row < titles.length; row++) {
+            for (String other : titles) {
+                assertEquals(Integer.signum(titles[row].compareTo(other)),
+                        Integer.signum(pool.compare(row, other.getBytes(StandardCharsets.UTF_8))),
+                        titles[row] + " <> " + other);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Verify the pooled UTF-8 title bytes are copied without decoding")
+    void verifyTitleBytesAreCopied() throws IOException {
+        byte[] expected = "Amélie".getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected.length, catalog.getTitleLength(1));
+        byte[] target = new byte[expected.length + 2];
+        catalog.copyTitle(1, target, 2);
+        assertEquals("Amélie", new String(target, 2, expected.length, StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        catalog.writeTitle(1, out);
+        catalog.writeTitle(2, out);
+        assertEquals("Amélie", out.toString("UTF-8"));
+        assertEquals(0, catalog.getTitleLength(2));
+    }
+
+    @Test
+    @DisplayName("Verify a row can be materialized as film")
+    void verifyRowIsMaterializedAsFilm() {
+        Film film = catalog.getFilm(1);
+        assertEquals("Amélie", film.getTitle());
+        assertEquals(2001, film.getYear());
+        assertEquals(1200, film.getNumberOfReferences());
+    }
+
+    @Test
+    @DisplayName("Verify the builder grows beyond its initial capacity")
+    void verifyBuilderGrows() {
+        FilmCatalogBuilder builder = FilmCatalog.builder();
+        for (int i = 0; i < 1000; i++) {
+            builder.add("Film " + i, 1900 + i % 120, i % 12, i % 15, i % 7 == 0, i);
+        }
+        FilmCatalog large = builder.build();
+        assertEquals(1000, large.size());
+        assertEquals("Film 999", large.getTitle(999));
+        assertEquals(999, large.getNumberOfReferences(999));
+        assertTrue(large.isBestPicture(994));
+    }
+
+    @Test
+    @DisplayName("Verify values outside of the year and byte columns are rejected")
+    void verifyOutOfRangeValuesAreRejected() {
+        FilmCatalogBuilder builder = FilmCatalog.builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.add("Far future", 1000000000, 1, 1, false, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("Before time", Integer.MIN_VALUE, 1, 1, false, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("Too late", FilmCatalogBuilder.MAX_YEAR + 1, 1, 1, false, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("Too many", 2000, 200, 1, false, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("Negative", 2000, 1, -1, false, 0));
+        assertEquals(0, builder.build().size());
+
+        FilmCatalog bounds = builder.add("First", FilmCatalogBuilder.MIN_YEAR, 0, 0, false, 0)
+                .add("Last", FilmCatalogBuilder.MAX_YEAR, 0, 0, false, 0)
+                .build();
+        assertEquals(2, FilmQueryEngine.match(bounds, FilmQuery.parse(name -> null)).length);
+    }
+
+    @Test
+    @DisplayName("Verify every row is pre-encoded as UTF-8 json object")
+    void verifyRowsArePreEncoded() throws IOException {
+        assertEquals("{\"title\":\"Parasite\",\"year\":\"2019\",\"awards\":4,\"nominations\":6,"
+                + "\"isBestPicture\":true,\"numberOfReferences\":8855}", fragment(catalog, 0));
+        assertTrue(fragment(catalog, 1).startsWith("{\"title\":\"Amélie\","));
+        assertTrue(fragment(catalog, 2).startsWith("{\"title\":\"\","));
+    }
+
+    @Test
+    @DisplayName("Verify special characters in titles are escaped in the fragments")
+    void verifyFragmentTitlesAreEscaped() throws IOException, JSONException {
+        String title = "Say \"Anything\"\\\n\u0001 \u2028 Café";
+        FilmCatalog escaped = FilmCatalog.builder().add(title, 1989, 0, 0, false, -1).build();
+        String fragment = fragment(escaped, 0);
+        assertTrue(fragment.startsWith("{\"title\":\"Say \\\"Anything\\\"\\\\\\n\\u0001 \\u2028 Café\","));
+        assertEquals(title, new JSONObject(fragment).getString("title"));
+        assertEquals(-1, new JSONObject(fragment).getInt("numberOfReferences"));
+    }
+
+    @Test
+    @DisplayName("Verify updated references are re-encoded in a copy of the catalog")
+    void verifyReferencesAreUpdatedInCopy() throws IOException {
+        String unchanged = fragment(catalog, 1);
+        FilmCatalog updated = catalog.withReferences(new int[] {2, 0}, new int[] {1234567, 9});
+
+        assertEquals(8855, catalog.getNumberOfReferences(0));
+        assertTrue(fragment(catalog, 0).endsWith("\"numberOfReferences\":8855}"));
+        assertEquals(9, updated.getNumberOfReferences(0));
+        assertTrue(fragment(updated, 0).endsWith("\"numberOfReferences\":9}"));
+        assertEquals(unchanged, fragment(updated, 1));
+        assertTrue(fragment(updated, 2).endsWith("\"numberOfReferences\":1234567}"));
+        assertEquals(catalog.getTitle(2), updated.getTitle(2));
+        assertEquals("{\"title\":\"Parasite\",\"numberOfReferences\":9},{\"title\":\"Amélie\",\"numberOfReferences\":1200}",
+                fragments(updated, new int[] {0, 1}, FilmProjection.parse("title,numberOfReferences")));
+    }
+
+    @Test
+    @DisplayName("Verify a projection writes only its fields, like the full fragments without the others")
+    void verifyProjectedFragments() throws IOException, JSONException {
+        FilmCatalog escaped = FilmCatalog.builder()
+                .add("Say \"Hi\"\n\u2028", 2019, 4, 6, true, 8855)
+                .add("Amélie", 2001, 0, 5, false, 1200)
+                .build();
+        int[] rows = {1, 0};
+        for (FilmProjection.Field field : FilmProjection.Field.values()) {
+            FilmProjection projection = FilmProjection.parse(field.getParameter() + ",year");
+            String[] projected = fragments(escaped, rows, projection).split("(?<=}),(?=\\{)");
+            assertEquals(rows.length, projected.length);
+            for (int i = 0; i < rows.length; i++) {
+                JSONObject full = new JSONObject(fragment(escaped, rows[i]));
+                JSONObject expected = new JSONObject(full, new String[] {field.getParameter(), "year"});
+                JSONAssert.assertEquals(expected, new JSONObject(projected[i]), JSONCompareMode.STRICT);
+            }
+        }
+        assertEquals("{\"title\":\"Amélie\",\"year\":\"2001\"}", fragments(escaped, new int[] {1},
+                FilmProjection.parse("year,title")));
+        assertEquals(fragment(escaped, 0) + "," + fragment(escaped, 1),
+                fragments(escaped, new int[] {0, 1}, FilmProjection.ALL));
+        assertEquals("", fragments(escaped, new int[0], FilmProjection.parse("title")));
+    }
+
+    private static String fragments(final FilmCatalog catalog, final int[] rows, final FilmProjection projection)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        catalog.writeFragments(rows, projection, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String fragment(final FilmCatalog catalog, final int row) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        catalog.writeFragment(row, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
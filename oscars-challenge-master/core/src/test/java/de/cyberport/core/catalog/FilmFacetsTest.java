@@ -0,0 +1,122 @@
+package de.cyberport.core.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+class FilmFacetsTest {
+
+    private FilmCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = FilmCatalog.builder()
+                .add("Parasite", 2019, 4, 6, true, 8855)          // 0
+                .add("Joker", 2019, 2, 11, false, 1000)           // 1
+                .add("Green Book", 2018, 3, 5, true, 3102)        // 2
+                .add("Roma", 2018, 3, 10, false, 1500)            // 3
+                .add("Wings", 1927, 2, 2, true, 40)               // 4
+                .build();
+    }
+
+    @Test
+    @DisplayName("Verify the facets of all films are read from the indexes")
+    void verifyFacetsWithoutFilter() {
+        final FilmFacets facets = FilmFacets.compute(catalog, query(new HashMap<>()));
+
+        assertEquals(5, facets.getCount());
+        assertArrayEquals(new int[] {1927, 2018, 2019}, facets.getYears().values());
+        assertEquals(2, facets.getYears().getCount(2019));
+        assertEquals(0, facets.getYears().getCount(2000));
+        assertArrayEquals(new int[] {2, 3, 4}, facets.getAwards().values());
+        assertEquals(2, facets.getAwards().getCount(3));
+        assertArrayEquals(new int[] {2, 5, 6, 10, 11}, facets.getNominations().values());
+        assertEquals(3, facets.getBestPictures());
+        assertEquals(14497, facets.getReferencesSum());
+        assertEquals(2899.4, facets.getReferencesAverage(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Verify only the films matching the filters are counted, ignoring sort and limit")
+    void verifyFacetsWithFilter() {
+        final Map<String, String> params = new HashMap<>();
+        params.put("minYear", "2018");
+        params.put("minAwards", "3");
+        params.put("sortBy", "title");
+        params.put("limit", "1");
+        final FilmFacets facets = FilmFacets.compute(catalog, query(params));
+
+        assertEquals(3, facets.getCount());
+        assertArrayEquals(new int[] {2018, 2019}, facets.getYears().values());
+        assertEquals(2, facets.getYears().getCount(2018));
+        assertArrayEquals(new int[] {3, 4}, facets.getAwards().values());
+        assertArrayEquals(new int[] {5, 6, 10}, facets.getNominations().values());
+        assertEquals(2, facets.getBestPictures());
+        assertEquals(13457, facets.getReferencesSum());
+    }
+
+    @Test
+    @DisplayName("Verify no matching film yields empty facets")
+    void verifyEmptyFacets() {
+        final Map<String, String> params = new HashMap<>();
+        params.put("title", "Unknown");
+        final FilmFacets facets = FilmFacets.compute(catalog, query(params));
+
+        assertEquals(0, facets.getCount());
+        assertEquals(0, facets.getYears().values().length);
+        assertEquals(0, facets.getBestPictures());
+        assertEquals(0, facets.getReferencesSum());
+        assertTrue(Double.isNaN(facets.getReferencesAverage()));
+
+        final FilmFacets empty = FilmFacets.compute(FilmCatalog.builder().build(), query(new HashMap<>()));
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getAwards().values().length);
+    }
+
+    @Test
+    @DisplayName("Verify the indexes and the column pass count the same")
+    void verifyIndexesMatchColumnPass() {
+        final Random random = new Random(42);
+        final FilmCatalogBuilder builder = FilmCatalog.builder();
+        for (int i = 0; i < 2000; i++) {
+            builder.add("Film " + i, 1927 + random.nextInt(93), random.nextInt(12),
+                    random.nextInt(15), random.nextInt(10) == 0, random.nextInt(10000));
+        }
+        final FilmCatalog large = builder.build();
+
+        final FilmFacets indexed = FilmFacets.compute(large, query(new HashMap<>()));
+        final Map<String, String> params = new HashMap<>();
+        params.put("minYear", "0");
+        final FilmFacets scanned = FilmFacets.compute(large, query(params));
+
+        assertEquals(indexed.getCount(), scanned.getCount());
+        assertArrayEquals(indexed.getYears().values(), scanned.getYears().values());
+        for (int year : indexed.getYears().values()) {
+            assertEquals(indexed.getYears().getCount(year), scanned.getYears().getCount(year));
+        }
+        for (int awards : indexed.getAwards().values()) {
+            assertEquals(indexed.getAwards().getCount(awards), scanned.getAwards().getCount(awards));
+        }
+        for (int nominations : indexed.getNominations().values()) {
+            assertEquals(indexed.getNominations().getCount(nominations),
+                    scanned.getNominations().getCount(nominations));
+        }
+        assertEquals(indexed.getBestPictures(), scanned.getBestPictures());
+        assertEquals(indexed.getReferencesSum(), scanned.getReferencesSum());
+    }
+
+    private static FilmQuery query(final Map<String, String> params) {
+        return FilmQuery.parse(params::get);
+    }
+}
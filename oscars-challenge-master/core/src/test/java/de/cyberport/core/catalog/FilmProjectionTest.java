@@ -0,0 +1,38 @@
+package de.cyberport.core.catalog;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+class FilmProjectionTest {
+
+    @Test
+    @DisplayName("Verify fields are parsed case insensitively and kept in documented order")
+    void verifyFieldsAreParsed() {
+        FilmProjection projection = FilmProjection.parse(" numberOfReferences, YEAR,title,unknown,year");
+        assertTrue(projection.includes(FilmProjection.Field.TITLE));
+        assertTrue(projection.includes(FilmProjection.Field.YEAR));
+        assertTrue(projection.includes(FilmProjection.Field.NUMBER_OF_REFERENCES));
+        assertFalse(projection.includes(FilmProjection.Field.AWARDS));
+        assertFalse(projection.isAll());
+        assertEquals("title,year,numberOfReferences", projection.toString());
+        assertEquals(projection, FilmProjection.parse("title,numberofreferences,year"));
+    }
+
+    @Test
+    @DisplayName("Verify missing, unsupported or all fields write every field")
+    void verifyAllFields() {
+        assertSame(FilmProjection.ALL, FilmProjection.parse(null));
+        assertSame(FilmProjection.ALL, FilmProjection.parse("popularity, ,"));
+        assertSame(FilmProjection.ALL,
+                FilmProjection.parse("title,year,awards,nominations,isBestPicture,numberOfReferences"));
+        assertTrue(FilmProjection.ALL.isAll());
+    }
+}
@@ -0,0 +1,486 @@
+package de.cyberport.core.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+class FilmQueryEngineTest {
+
+    private FilmCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = FilmCatalog.builder()
+                .add("Parasite", 2019, 4, 6, true, 8855)        // 0
+                .add("1917", 2019, 3, 10, false, 1675)          // 1
+                .add("Joker", 2019, 2, 11, false, 3000)         // 2
+                .add("Green Book", 2018, 3, 5, true, 2945)      // 3
+                .add("Bohemian Rhapsody", 2018, 4, 5, false, 387) // 4
+                .add("Roma", 2018, 3, 10, false, 1933)          // 5
+                .add("Wings", 1927, 2, 2, true, 17)             // 6
+                .build();
+    }
+
+    @Test
+    @DisplayName("Verify a query without exact match filters does not build a bitmap")
+    void verifyNoExactFiltersMeansAllRows() {
+        assertNull(FilmQueryEngine.matchExact(catalog, query(new HashMap<>())));
+    }
+
+    @Test
+    @DisplayName("Verify exact match filters are intersected")
+    void verifyExactFiltersAreIntersected() {
+        Map<String, String> params = new HashMap<>();
+        params.put("year", "2019");
+        params.put("isBestPicture", "true");
+        BitSet candidates = FilmQueryEngine.matchExact(catalog, query(params));
+        assertEquals(1, candidates.cardinality());
+        assertTrue(candidates.get(0));
+    }
+
+    @Test
+    @DisplayName("Verify isBestPicture=false excludes the winners")
+    void verifyBestPictureFalseExcludesWinners() {
+        Map<String, String> params = new HashMap<>();
+        params.put("nominations", "5");
+        params.put("isBestPicture", "false");
+        assertArrayEquals(new int[] {4}, FilmQueryEngine.execute(catalog, query(params)));
+
+        params.remove("nominations");
+        assertEquals(4, FilmQueryEngine.execute(catalog, query(params)).length);
+    }
+
+    @Test
+    @DisplayName("Verify an unknown exact value returns no rows")
+    void verifyUnknownExactValueReturnsNoRows() {
+        Map<String, String> params = new HashMap<>();
+        params.put("year", "1800");
+        params.put("nominations", "5");
+        assertTrue(FilmQueryEngine.matchExact(catalog, query(params)).isEmpty());
+        assertEquals(0, FilmQueryEngine.execute(catalog, query(params)).length);
+    }
+
+    @Test
+    @DisplayName("Verify bitmap candidates are combined with the remaining filters")
+    void verifyBitmapsAreCombinedWithResidualFilters() {
+        Map<String, String> params = new HashMap<>();
+        params.put("year", "2018");
+        params.put("minAwards", "4");
+        assertArrayEquals(new int[] {4}, FilmQueryEngine.execute(catalog, query(params)));
+    }
+
+    @Test
+    @DisplayName("Verify the shared index bitmaps are not modified by a query")
+    void verifyIndexBitmapsAreNotModified() {
+        Map<String, String> params = new HashMap<>();
+        params.put("year", "2019");
+        params.put("isBestPicture", "false");
+        FilmQueryEngine.execute(catalog, query(params));
+        assertEquals(3, catalog.yearIndex().get(2019).cardinality());
+        assertEquals(3, catalog.bestPictureRows().cardinality());
+    }
+
+    @Test
+    @DisplayName("Verify rows are sorted and limited")
+    void verifyRowsAreSortedAndLimited() {
+        Map<String, String> params = new HashMap<>();
+        params.put("minYear", "2018");
+        params.put("sortBy", "awards");
+        params.put("limit", "2");
+        int[] rows = FilmQueryEngine.execute(catalog, query(params));
+        assertEquals(2, rows.length);
+        assertEquals(2, catalog.getAwards(rows[0]));
+        assertEquals(3, catalog.getAwards(rows[1]));
+    }
+
+    @Test
+    @DisplayName("Verify year and awards ranges are answered by the range indexes")
+    void verifyRangesAreAnswered() {
+        Map<String, String> params = new HashMap<>();
+        params.put("minYear", "2018");
+        params.put("maxAwards", "3");
+        params.put("isBestPicture", "false");
+        assertArrayEquals(new int[] {1, 2, 5}, FilmQueryEngine.match(catalog, query(params)));
+
+        params.put("minAwards", "3");
+        params.put("maxYear", "2018");
+        assertArrayEquals(new int[] {5}, FilmQueryEngine.match(catalog, query(params)));
+    }
+
+    @Test
+    @DisplayName("Verify the indexes return the same rows as a full scan")
+    void verifyIndexesMatchFullScan() {
+        Random random = new Random(42);
+        FilmCatalogBuilder builder = FilmCatalog.builder();
+        for (int i = 0; i < 2000; i++) {
+            builder.add("Film " + random.nextInt(500), 1927 + random.nextInt(93), random.nextInt(12),
+                    random.nextInt(15), random.nextInt(10) == 0, random.nextInt(10000));
+        }
+        FilmCatalog large = builder.build();
+
+        for (int i = 0; i < 500; i++) {
+            Map<String, String> params = new HashMap<>();
+            putRandomly(random, params, "year", String.valueOf(1920 + random.nextInt(100)));
+            putRandomly(random, params, "minYear", String.valueOf(1920 + random.nextInt(100)));
+            putRandomly(random, params, "maxYear", String.valueOf(1920 + random.nextInt(100)));
+            putRandomly(random, params, "minAwards", String.valueOf(random.nextInt(13)));
+            putRandomly(random, params, "maxAwards", String.valueOf(random.nextInt(13)));
+            putRandomly(random, params, "nominations", String.valueOf(random.nextInt(16)));
+            putRandomly(random, params, "isBestPicture", String.valueOf(random.nextBoolean()));
+            putRandomly(random, params, "title", "film " + random.nextInt(500));
+            FilmQuery query = query(params);
+
+            assertArrayEquals(fullScan(large, query), FilmQueryEngine.match(large, query), params.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Verify ties in the sort order are broken by title")
+    void verifyTiesAreSortedByTitle() {
+        Map<String, String> params = new HashMap<>();
+        params.put("minYear", "2018");
+        params.put("sortBy", "awards");
+        assertArrayEquals(new int[] {2, 1, 3, 5, 4, 0}, FilmQueryEngine.execute(catalog, query(params)));
+
+        params.put("limit", "3");
+        assertArrayEquals(new int[] {2, 1, 3}, FilmQueryEngine.execute(catalog, query(params)));
+    }
+
+    @Test
+    @DisplayName("Verify the bounded heap and the counting sort agree with a full sort")
+    void verifySortStrategiesMatchFullSort() {
+        Random random = new Random(7);
+        FilmCatalogBuilder builder = FilmCatalog.builder();
+        for (int i = 0; i < 3000; i++) {
+            builder.add("Film " + random.nextInt(800), 1927 + random.nextInt(93), random.nextInt(12),
+                    random.nextInt(15), random.nextInt(10) == 0, random.nextInt(10000));
+        }
+        builder.add("Film far future", 9999, 1, 1, false, 0);
+        builder.add("Film far past", 1, 1, 1, false, 0);
+        FilmCatalog large = builder.build();
+        int[] all = IntStream.range(0, large.size()).toArray();
+
+        for (FilmQuery.SortBy sortBy : FilmQuery.SortBy.values()) {
+            int[] expected = IntStream.range(0, large.size()).boxed()
+                    .sorted(referenceOrder(large, sortBy))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            if (sortBy != FilmQuery.SortBy.TITLE) {
+                assertArrayEquals(expected, FilmQueryEngine.countingSort(large, sortBy, all), sortBy.name());
+            }
+            for (int limit : new int[] {1, 4, 50}) {
+                assertArrayEquals(Arrays.copyOf(expected, limit),
+                        FilmQueryEngine.topK(large, FilmSort.of(sortBy), all, limit), sortBy + " limit " + limit);
+            }
+            Map<String, String> params = new HashMap<>();
+            params.put("sortBy", sortBy.getParameter());
+            assertArrayEquals(expected, FilmQueryEngine.execute(large, query(params)), sortBy.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Verify limited queries return the first rows of a full sort, whether walked or collected")
+    void verifyLimitedQueriesMatchFullSort() {
+        Random random = new Random(11);
+        FilmCatalogBuilder builder = FilmCatalog.builder();
+        for (int i = 0; i < 2000; i++) {
+            builder.add("Film " + random.nextInt(500), 1927 + random.nextInt(93), random.nextInt(12),
+                    random.nextInt(15), random.nextInt(10) == 0, random.nextInt(10000));
+        }
+        FilmCatalog large = builder.build();
+
+        for (int i = 0; i < 500; i++) {
+            Map<String, String> params = new HashMap<>();
+            putRandomly(random, params, "year", String.valueOf(1920 + random.nextInt(100)));
+            putRandomly(random, params, "minYear", String.valueOf(1920 + random.nextInt(100)));
+            putRandomly(random, params, "maxAwards", String.valueOf(random.nextInt(13)));
+            putRandomly(random, params, "nominations", String.valueOf(random.nextInt(16)));
+            putRandomly(random, params, "isBestPicture", String.valueOf(random.nextBoolean()));
+            FilmQuery.SortBy sortBy = FilmQuery.SortBy.values()[random.nextInt(4)];
+            int limit = random.nextInt(30);
+            params.put("sortBy", sortBy.name());
+            params.put("limit", String.valueOf(limit));
+            FilmQuery query = query(params);
+
+            int[] expected = Arrays.stream(fullScan(large, query)).boxed()
+                    .sorted(referenceOrder(large, sortBy))
+                    .limit(limit)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            assertArrayEquals(expected, FilmQueryEngine.execute(large, query), params.toString());
+            FilmQueryEngine.Selection selection = new FilmQueryEngine.Selection(large, query);
+            assertArrayEquals(expected, FilmQueryEngine.walk(large, query, selection, 0, limit), params.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Verify pages of a cursor chain add up to the full result, whether walked or collected")
+    void verifyCursorPagesMatchFullSort() {
+        Random random = new Random(13);
+        FilmCatalogBuilder builder = FilmCatalog.builder();
+        for (int i = 0; i < 2000; i++) {
+            builder.add("Film " + random.nextInt(500), 1927 + random.nextInt(93), random.nextInt(12),
+                    random.nextInt(15), random.nextInt(10) == 0, random.nextInt(10000));
+        }
+        FilmCatalog large = builder.build();
+
+        for (int i = 0; i < 100; i++) {
+            Map<String, String> params = new HashMap<>();
+            putRandomly(random, params, "minYear", String.valueOf(1920 + random.nextInt(100)));
+            putRandomly(random, params, "maxAwards", String.valueOf(random.nextInt(13)));
+            putRandomly(random, params, "isBestPicture", String.valueOf(random.nextBoolean()));
+            params.put("sortBy", randomSort(random));
+            params.put("limit", String.valueOf(1 + random.nextInt(300)));
+
+            int[] expected = Arrays.stream(fullScan(large, query(params))).boxed()
+                    .sorted(referenceOrder(large, query(params).getSort()))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            IntStream.Builder paged = IntStream.builder();
+            FilmQuery page = query(params);
+            while (page != null) {
+                int[] rows = FilmQueryEngine.execute(large, page);
+                Arrays.stream(rows).forEach(paged::add);
+                FilmCursor next = FilmQueryEngine.nextCursor(large, page, rows);
+                if (next != null) {
+                    params.put("cursor", next.toToken());
+                }
+                page = next == null ? null : query(params);
+            }
+            assertArrayEquals(expected, paged.build().toArray(), params.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Verify a batch returns the executed result of every query, sharing walks of the same sort")
+    void verifyExecuteAllMatchesExecute() {
+        Random random = new Random(34);
+        FilmCatalogBuilder builder = FilmCatalog.builder();
+        for (int i = 0; i < 2000; i++) {
+            builder.add("Film " + random.nextInt(500), 1927 + random.nextInt(93), random.nextInt(12),
+                    random.nextInt(15), random.nextInt(10) == 0, random.nextInt(10000));
+        }
+        FilmCatalog large = builder.build();
+
+        for (int batch = 0; batch < 30; batch++) {
+            FilmQuery[] queries = new FilmQuery[1 + random.nextInt(8)];
+            for (int i = 0; i < queries.length; i++) {
+                Map<String, String> params = new HashMap<>();
+                putRandomly(random, params, "title", "Film " + random.nextInt(500));
+                putRandomly(random, params, "minYear", String.valueOf(1920 + random.nextInt(100)));
+                putRandomly(random, params, "maxAwards", String.valueOf(random.nextInt(13)));
+                putRandomly(random, params, "isBestPicture", String.valueOf(random.nextBoolean()));
+                params.put("limit", String.valueOf(random.nextInt(40)));
+                params.put("sortBy", random.nextBoolean() ? (random.nextBoolean() ? "title" : "year") : randomSort(random));
+                if (random.nextBoolean()) {
+                    FilmQuery first = query(params);
+                    FilmCursor next = FilmQueryEngine.nextCursor(large, first, FilmQueryEngine.execute(large, first));
+                    if (next != null) {
+                        params.put("cursor", next.toToken());
+                    }
+                }
+                queries[i] = query(params);
+            }
+
+            int[][] results = FilmQueryEngine.executeAll(large, queries);
+            for (int i = 0; i < queries.length; i++) {
+                assertArrayEquals(FilmQueryEngine.execute(large, queries[i]), results[i], queries[i].toString());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Verify streamed rows equal the executed result, with and without permutation, limit and cursor")
+    void verifyForEachMatchesExecute() {
+        Random random = new Random(21);
+        FilmCatalogBuilder builder = FilmCatalog.builder();
+        for (int i = 0; i < 2000; i++) {
+            builder.add("Film " + random.nextInt(500), 1927 + random.nextInt(93), random.nextInt(12),
+                    random.nextInt(15), random.nextInt(10) == 0, random.nextInt(10000));
+        }
+        FilmCatalog large = builder.build();
+
+        for (int i = 0; i < 200; i++) {
+            Map<String, String> params = new HashMap<>();
+            putRandomly(random, params, "title", "Film " + random.nextInt(500));
+            putRandomly(random, params, "minYear", String.valueOf(1920 + random.nextInt(100)));
+            putRandomly(random, params, "maxAwards", String.valueOf(random.nextInt(13)));
+            putRandomly(random, params, "isBestPicture", String.valueOf(random.nextBoolean()));
+            putRandomly(random, params, "limit", String.valueOf(1 + random.nextInt(300)));
+            params.put("sortBy", random.nextBoolean()
+                    ? FilmQuery.SortBy.values()[random.nextInt(FilmQuery.SortBy.values().length)].getParameter()
+                    : randomSort(random));
+            if (random.nextBoolean()) {
+                params.put("limit", String.valueOf(1 + random.nextInt(50)));
+                FilmQuery first = query(params);
+                FilmCursor next = FilmQueryEngine.nextCursor(large, first, FilmQueryEngine.execute(large, first));
+                if (next != null) {
+                    params.put("cursor", next.toToken());
+                }
+            }
+
+            IntStream.Builder streamed = IntStream.builder();
+            FilmQueryEngine.forEach(large, query(params), streamed::add);
+            assertArrayEquals(FilmQueryEngine.execute(large, query(params)), streamed.build().toArray(), params.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Verify multi-key and descending sorts match a chain of comparators, with and without limit")
+    void verifyMultiKeySortsMatchComparatorChain() {
+        Random random = new Random(17);
+        FilmCatalogBuilder builder = FilmCatalog.builder();
+        for (int i = 0; i < 3000; i++) {
+            builder.add("Film " + random.nextInt(800), 1927 + random.nextInt(93), random.nextInt(12),
+                    random.nextInt(15), random.nextInt(10) == 0, random.nextInt(10000));
+        }
+        FilmCatalog large = builder.build();
+
+        for (int i = 0; i < 200; i++) {
+            Map<String, String> params = new HashMap<>();
+            putRandomly(random, params, "minYear", String.valueOf(1920 + random.nextInt(100)));
+            putRandomly(random, params, "nominations", String.valueOf(random.nextInt(15)));
+            params.put("sortBy", randomSort(random));
+            FilmQuery query = query(params);
+            int[] expected = Arrays.stream(fullScan(large, query)).boxed()
+                    .sorted(referenceOrder(large, query.getSort()))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            assertArrayEquals(expected, FilmQueryEngine.execute(large, query), params.toString());
+
+            int limit = 1 + random.nextInt(100);
+            params.put("limit", String.valueOf(limit));
+            assertArrayEquals(Arrays.copyOf(expected, Math.min(limit, expected.length)),
+                    FilmQueryEngine.execute(large, query(params)), params.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Verify popularity sorts by descending references, ties by title")
+    void verifyPopularitySort() {
+        Map<String, String> params = new HashMap<>();
+        params.put("sortBy", "-numberOfReferences");
+        params.put("limit", "3");
+        assertArrayEquals(new int[] {0, 2, 3}, FilmQueryEngine.execute(catalog, query(params)));
+        params.put("sortBy", "year,-awards");
+        params.put("limit", "4");
+        assertArrayEquals(new int[] {6, 4, 3, 5}, FilmQueryEngine.execute(catalog, query(params)));
+    }
+
+    @Test
+    @DisplayName("Verify a cursor resumes after its sort key in a reloaded catalog")
+    void verifyCursorResumesInReloadedCatalog() {
+        Map<String, String> params = new HashMap<>();
+        params.put("sortBy", "year");
+        params.put("limit", "3");
+        int[] firstPage = FilmQueryEngine.execute(catalog, query(params));
+        assertArrayEquals(new int[] {6, 4, 3}, firstPage);
+        params.put("cursor", FilmQueryEngine.nextCursor(catalog, query(params), firstPage).toToken());
+
+        FilmCatalog reloaded = FilmCatalog.builder()
+                .add("Roma", 2018, 3, 10, false, 1933)          // 0
+                .add("Parasite", 2019, 4, 6, true, 8855)        // 1
+                .add("Green Book", 2018, 3, 5, true, 2945)      // 2
+                .add("Argo", 2012, 3, 7, true, 1200)            // 3
+                .add("Joker", 2019, 2, 11, false, 3000)         // 4
+                .add("Bohemian Rhapsody", 2018, 4, 5, false, 387) // 5
+                .add("Wings", 1927, 2, 2, true, 17)             // 6
+                .build();
+        assertArrayEquals(new int[] {0, 4, 1}, FilmQueryEngine.execute(reloaded, query(params)));
+    }
+
+    @Test
+    @DisplayName("Verify the permutation is walked only for unselective filters")
+    void verifyWalkIsPreferredForUnselectiveFilters() {
+        assertTrue(FilmQueryEngine.prefersWalk(1316, 1316, 4));
+        assertTrue(FilmQueryEngine.prefersWalk(1316, 900, 10));
+        assertFalse(FilmQueryEngine.prefersWalk(1316, 12, 4));
+        assertFalse(FilmQueryEngine.prefersWalk(1316, 1316, 1316));
+    }
+
+    private static Comparator<Integer> referenceOrder(final FilmCatalog catalog, final FilmQuery.SortBy sortBy) {
+        return referenceOrder(catalog, FilmSort.of(sortBy));
+    }
+
+    private static Comparator<Integer> referenceOrder(final FilmCatalog catalog, final FilmSort sort) {
+        Comparator<Integer> order = (left, right) -> 0;
+        for (int i = 0; i < sort.size(); i++) {
+            Comparator<Integer> byKey;
+            switch (sort.getKey(i)) {
+                case YEAR:
+                    byKey = Comparator.comparingInt(catalog::getYear);
+                    break;
+                case AWARDS:
+                    byKey = Comparator.comparingInt(catalog::getAwards);
+                    break;
+                case NOMINATIONS:
+                    byKey = Comparator.comparingInt(catalog::getNominations);
+                    break;
+                case NUMBER_OF_REFERENCES:
+                    byKey = Comparator.comparingInt(catalog::getNumberOfReferences);
+                    break;
+                default:
+                    byKey = Comparator.<Integer, String>comparing(catalog::getTitle)
+                            .thenComparing(Comparator.naturalOrder());
+            }
+            order = order.thenComparing(sort.isDescending(i) ? byKey.reversed() : byKey);
+        }
+        return order.thenComparing(catalog::getTitle).thenComparing(Comparator.naturalOrder());
+    }
+
+    /**
+     * @return one to three distinct keys, each ascending or descending
+     */
+    private static String randomSort(final Random random) {
+        List<FilmQuery.SortBy> keys = new ArrayList<>(Arrays.asList(FilmQuery.SortBy.values()));
+        Collections.shuffle(keys, random);
+        return keys.subList(0, 1 + random.nextInt(3)).stream()
+                .map(key -> (random.nextBoolean() ? "-" : "") + key.getParameter())
+                .collect(Collectors.joining(","));
+    }
+
+    private static void putRandomly(final Random random, final Map<String, String> params,
+                                    final String name, final String value) {
+        if (random.nextInt(3) == 0) {
+            params.put(name, value);
+        }
+    }
+
+    private static int[] fullScan(final FilmCatalog catalog, final FilmQuery query) {
+        return IntStream.range(0, catalog.size())
+                .filter(row -> query.getTitle() == null || query.getTitle().equalsIgnoreCase(catalog.getTitle(row)))
+                .filter(row -> query.getYear() == null || catalog.getYear(row) == query.getYear())
+                .filter(row -> query.getMinYear() == null || catalog.getYear(row) >= query.getMinYear())
+                .filter(row -> query.getMaxYear() == null || catalog.getYear(row) <= query.getMaxYear())
+                .filter(row -> query.getMinAwards() == null || catalog.getAwards(row) >= query.getMinAwards())
+                .filter(row -> query.getMaxAwards() == null || catalog.getAwards(row) <= query.getMaxAwards())
+                .filter(row -> query.getNominations() == null || catalog.getNominations(row) == query.getNominations())
+                .filter(row -> query.getIsBestPicture() == null || catalog.isBestPicture(row) == query.getIsBestPicture())
+                .toArray();
+    }
+
+    private static FilmQuery query(final Map<String, String> params) {
+        return FilmQuery.parse(params::get);
+    }
+}
@@ -0,0 +1,121 @@
+package de.cyberport.core.catalog;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+class FilmQueryTest {
+
+    @Test
+    @DisplayName("Verify missing and empty parameters are ignored")
+    void verifyMissingParametersAreIgnored() {
+        Map<String, String> params = new HashMap<>();
+        params.put("title", "");
+        params.put("year", " ");
+        FilmQuery query = FilmQuery.parse(params::get);
+        assertNull(query.getTitle());
+        assertNull(query.getYear());
+        assertNull(query.getIsBestPicture());
+        assertEquals(FilmSort.TITLE, query.getSort());
+        assertEquals(FilmQuery.NO_LIMIT, query.getLimit());
+    }
+
+    @Test
+    @DisplayName("Verify all supported parameters are parsed")
+    void verifyParametersAreParsed() {
+        Map<String, String> params = new HashMap<>();
+        params.put("title", "Parasite");
+        params.put("year", "2019");
+        params.put("minYear", "2000");
+        params.put("maxYear", "2020");
+        params.put("minAwards", "1");
+        params.put("maxAwards", "5");
+        params.put("nominations", "6");
+        params.put("isBestPicture", "TRUE");
+        params.put("sortBy", "Nominations");
+        params.put("limit", "3");
+        FilmQuery query = FilmQuery.parse(params::get);
+        assertEquals("Parasite", query.getTitle());
+        assertEquals(2019, query.getYear().intValue());
+        assertEquals(2000, query.getMinYear().intValue());
+        assertEquals(2020, query.getMaxYear().intValue());
+        assertEquals(1, query.getMinAwards().intValue());
+        assertEquals(5, query.getMaxAwards().intValue());
+        assertEquals(6, query.getNominations().intValue());
+        assertTrue(query.getIsBestPicture());
+        assertEquals(FilmSort.of(FilmQuery.SortBy.NOMINATIONS), query.getSort());
+        assertEquals(3, query.getLimit());
+    }
+
+    @Test
+    @DisplayName("Verify unsupported sortBy values fall back to title")
+    void verifyUnsupportedSortByFallsBackToTitle() {
+        Map<String, String> params = new HashMap<>();
+        params.put("sortBy", "popularity");
+        assertEquals(FilmSort.TITLE, FilmQuery.parse(params::get).getSort());
+    }
+
+    @Test
+    @DisplayName("Verify invalid numbers are rejected")
+    void verifyInvalidNumbersAreRejected() {
+        Map<String, String> params = new HashMap<>();
+        params.put("year", "nineteen");
+        assertThrows(IllegalArgumentException.class, () -> FilmQuery.parse(params::get));
+        params.put("year", "2019");
+        params.put("limit", "-1");
+        assertThrows(IllegalArgumentException.class, () -> FilmQuery.parse(params::get));
+    }
+
+    @Test
+    @DisplayName("Verify equal queries share one canonical form regardless of spelling")
+    void verifyCanonicalForm() {
+        Map<String, String> params = new HashMap<>();
+        params.put("title", "Parasite");
+        params.put("year", " 2019");
+        Map<String, String> other = new HashMap<>();
+        other.put("year", "2019");
+        other.put("title", "PARASITE");
+        other.put("sortBy", "Title");
+        FilmQuery query = FilmQuery.parse(params::get);
+        assertEquals("title=parasite&year=2019&sortBy=title&limit=-1", query.getCanonicalForm());
+        assertEquals(query, FilmQuery.parse(other::get));
+        assertEquals(query.hashCode(), FilmQuery.parse(other::get).hashCode());
+
+        params.put("title", "A&year=1");
+        assertEquals("title=a%26year%3D1&year=2019&sortBy=title&limit=-1", FilmQuery.parse(params::get).getCanonicalForm());
+
+        params.put("fields", "year, Title");
+        assertEquals("title=a%26year%3D1&year=2019&sortBy=title&limit=-1&fields=title,year",
+                FilmQuery.parse(params::get).getCanonicalForm());
+    }
+
+    @Test
+    @DisplayName("Verify cursors are parsed from their token and must match the sort order")
+    void verifyCursorIsParsed() {
+        FilmCatalog catalog = FilmCatalog.builder().add("Parasite", 2019, 4, 6, true, 8855).build();
+        String token = FilmCursor.after(catalog, FilmSort.of(FilmQuery.SortBy.YEAR), 0).toToken();
+        Map<String, String> params = new HashMap<>();
+        params.put("sortBy", "year");
+        params.put("cursor", token);
+        FilmQuery query = FilmQuery.parse(params::get);
+        assertEquals(token, query.getCursor().toToken());
+        assertTrue(query.getCanonicalForm().endsWith("&cursor=" + token));
+
+        params.put("sortBy", "title");
+        assertThrows(IllegalArgumentException.class, () -> FilmQuery.parse(params::get));
+        params.put("cursor", "not a cursor");
+        assertThrows(IllegalArgumentException.class, () -> FilmQuery.parse(params::get));
+        params.put("cursor", "eWVhcg");
+        assertThrows(IllegalArgumentException.class, () -> FilmQuery.parse(params::get));
+    }
+}
@@ -0,0 +1,50 @@
+package de.cyberport.core.catalog;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+class FilmSortTest {
+
+    @Test
+    @DisplayName("Verify keys and directions are parsed case insensitively")
+    void verifyKeysAndDirections() {
+        FilmSort sort = FilmSort.parse(" Year, -AWARDS ,numberofreferences");
+        assertEquals(3, sort.size());
+        assertEquals(FilmQuery.SortBy.YEAR, sort.getKey(0));
+        assertFalse(sort.isDescending(0));
+        assertEquals(FilmQuery.SortBy.AWARDS, sort.getKey(1));
+        assertTrue(sort.isDescending(1));
+        assertEquals(FilmQuery.SortBy.NUMBER_OF_REFERENCES, sort.getKey(2));
+        assertEquals("year,-awards,numberOfReferences", sort.toString());
+    }
+
+    @Test
+    @DisplayName("Verify the canonical form drops keys which cannot change the order")
+    void verifyCanonicalForm() {
+        assertEquals(FilmSort.of(FilmQuery.SortBy.YEAR), FilmSort.parse("year,title,awards"));
+        assertEquals("year,-title", FilmSort.parse("year,-title,awards").toString());
+        assertEquals("-awards,nominations", FilmSort.parse("-awards,popularity,nominations,-awards").toString());
+        assertSame(FilmSort.TITLE, FilmSort.parse(null));
+        assertEquals(FilmSort.TITLE, FilmSort.parse("popularity, ,-"));
+    }
+
+    @Test
+    @DisplayName("Verify only single ascending keys use a precomputed permutation")
+    void verifyPermutation() {
+        FilmCatalog catalog = FilmCatalog.builder().add("Parasite", 2019, 4, 6, true, 8855).build();
+        assertSame(catalog.order(FilmQuery.SortBy.AWARDS), FilmSort.parse("awards").permutation(catalog));
+        assertSame(catalog.titleOrder(), FilmSort.TITLE.permutation(catalog));
+        assertNull(FilmSort.parse("-awards").permutation(catalog));
+        assertNull(FilmSort.parse("awards,year").permutation(catalog));
+        assertNull(FilmSort.parse("numberOfReferences").permutation(catalog));
+    }
+}
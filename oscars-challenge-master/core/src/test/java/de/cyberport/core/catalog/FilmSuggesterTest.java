@@ -0,0 +1,75 @@
+package de.cyberport.core.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author ritendra_singh
+ */
+class FilmSuggesterTest {
+
+    private FilmCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = FilmCatalog.builder()
+                .add("The Godfather Part II", 1974, 6, 11, true, 6797)   // 0
+                .add("Gone with the Wind", 1939, 8, 13, true, 5000)      // 1
+                .add("The Godfather", 1972, 3, 10, true, 7867)           // 2
+                .add("The Graduate", 1967, 1, 7, false, 900)             // 3
+                .add("Star Wars", 1977, 6, 10, false, 762)               // 4
+                .add("The Goddess", 1958, 0, 1, false, 12)               // 5
+                .add("the godfather", 1990, 0, 1, false, 1)              // 6
+                .build();
+    }
+
+    @Test
+    @DisplayName("Verify prefix matches ignore case and are ranked by references")
+    void verifyPrefixMatchesAreRankedByReferences() {
+        assertArrayEquals(new int[] {2, 0, 6}, FilmSuggester.suggest(catalog, "THE GODF", 10, false));
+        assertArrayEquals(new int[] {2, 0, 3, 5, 6}, FilmSuggester.suggest(catalog, "the g", 10, false));
+    }
+
+    @Test
+    @DisplayName("Verify the amount of suggestions is limited")
+    void verifySuggestionsAreLimited() {
+        assertArrayEquals(new int[] {2, 0}, FilmSuggester.suggest(catalog, "the g", 2, true));
+    }
+
+    @Test
+    @DisplayName("Verify typos are only tolerated when fuzzy matching is requested")
+    void verifyTyposAreToleratedWhenFuzzy() {
+        assertEquals(0, FilmSuggester.suggest(catalog, "teh godf", 10, false).length);
+        assertArrayEquals(new int[] {2, 0, 6}, FilmSuggester.suggest(catalog, "teh godf", 10, true));
+        assertArrayEquals(new int[] {4}, FilmSuggester.suggest(catalog, "stat w", 10, true));
+    }
+
+    @Test
+    @DisplayName("Verify exact matches come before fuzzy matches")
+    void verifyExactMatchesComeFirst() {
+        // "the godd" matches The Goddess exactly, the Godfather titles and The Graduate within two edits
+        assertArrayEquals(new int[] {5, 2, 0, 3, 6}, FilmSuggester.suggest(catalog, "the godd", 10, true));
+    }
+
+    @Test
+    @DisplayName("Verify short and empty prefixes are never fuzzy")
+    void verifyShortPrefixes() {
+        assertEquals(0, FilmSuggester.suggest(catalog, "", 10, true).length);
+        assertEquals(0, FilmSuggester.suggest(catalog, null, 10, true).length);
+        assertArrayEquals(new int[] {4}, FilmSuggester.suggest(catalog, "st", 10, true));
+        assertEquals(0, FilmSuggester.maxEdits(2));
+        assertEquals(1, FilmSuggester.maxEdits(3));
+        assertEquals(2, FilmSuggester.maxEdits(8));
+    }
+
+    @Test
+    @DisplayName("Verify unknown prefixes return no suggestions")
+    void verifyUnknownPrefix() {
+        assertEquals(0, FilmSuggester.suggest(catalog, "xyz", 10, true).length);
+        assertEquals(0, FilmSuggester.suggest(FilmCatalog.builder().build(), "the", 10, true).length);
+    }
+}
@@ -0,0 +1,56 @@
+package de.cyberport.core.catalog;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author ritendra_singh
+ */
+class RangeIndexTest {
+
+    private static final int[] YEARS = {1964, 1938, 1964, 2019, 1927, 2001, 1938};
+
+    private final RangeIndex underTest = RangeIndex.build(YEARS.length, row -> YEARS[row]);
+
+    @Test
+    @DisplayName("Verify a range returns the rows ordered by value and row id")
+    void verifyRangeIsOrderedByValue() {
+        assertArrayEquals(new int[] {1, 6, 0, 2}, rows(underTest.range(1930, 1964)));
+    }
+
+    @Test
+    @DisplayName("Verify open bounds cover the whole column")
+    void verifyOpenBounds() {
+        assertEquals(YEARS.length, underTest.range(null, null).size());
+        assertArrayEquals(new int[] {5, 3}, rows(underTest.range(2000, null)));
+        assertArrayEquals(new int[] {4}, rows(underTest.range(null, 1930)));
+    }
+
+    @Test
+    @DisplayName("Verify ranges outside or between the values are empty")
+    void verifyEmptyRanges() {
+        assertEquals(0, underTest.range(2020, null).size());
+        assertEquals(0, underTest.range(null, 1900).size());
+        assertEquals(0, underTest.range(1965, 2000).size());
+        assertEquals(0, underTest.range(2000, 1990).size());
+        assertEquals(0, underTest.range(Integer.MIN_VALUE, Integer.MIN_VALUE).size());
+        assertEquals(7, underTest.range(Integer.MIN_VALUE, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    @DisplayName("Verify an empty column has empty ranges")
+    void verifyEmptyColumn() {
+        assertEquals(0, RangeIndex.build(0, row -> 0).range(null, null).size());
+    }
+
+    private static int[] rows(final RangeIndex.Slice slice) {
+        int[] rows = new int[slice.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = slice.row(i);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,54 @@
+package de.cyberport.core.catalog;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author ritendra_singh
+ */
+class SortPermutationTest {
+
+    private static final String[] TITLES = {"Roma", "Amadeus", "Roma", "1917", "Wings"};
+    private static final int[] AWARDS = {3, 8, 3, 3, 2};
+
+    private final SortPermutation titleOrder = SortPermutation.byTitle(TITLES.length, titles());
+
+    @Test
+    @DisplayName("Verify rows are ordered by title and equal titles by row id")
+    void verifyTitleOrder() {
+        assertArrayEquals(new int[] {3, 1, 0, 2, 4}, rows(titleOrder));
+    }
+
+    @Test
+    @DisplayName("Verify rows are ordered by column value and equal values by title")
+    void verifyColumnOrder() {
+        SortPermutation awardsOrder = SortPermutation.byColumn(AWARDS.length, row -> AWARDS[row], titleOrder);
+        assertArrayEquals(new int[] {4, 3, 0, 2, 1}, rows(awardsOrder));
+    }
+
+    @Test
+    @DisplayName("Verify the rank is the inverse of the permutation")
+    void verifyRankIsInverse() {
+        for (int rank = 0; rank < titleOrder.size(); rank++) {
+            assertEquals(rank, titleOrder.rank(titleOrder.row(rank)));
+        }
+        assertEquals(0, SortPermutation.byColumn(0, row -> 0, titleOrder).size());
+    }
+
+    private static TitlePool titles() {
+        TitlePool.Builder builder = new TitlePool.Builder();
+        for (String title : TITLES) {
+            builder.add(title);
+        }
+        return builder.build();
+    }
+
+    private static int[] rows(final SortPermutation order) {
+        return IntStream.range(0, order.size()).map(order::row).toArray();
+    }
+}
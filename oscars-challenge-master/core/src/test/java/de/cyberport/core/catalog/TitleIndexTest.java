@@ -0,0 +1,56 @@
+package de.cyberport.core.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author ritendra_singh
+ */
+class TitleIndexTest {
+
+    private TitleIndex underTest;
+
+    @BeforeEach
+    void setUp() {
+        TitlePool.Builder titles = new TitlePool.Builder();
+        titles.add("Little Women");      // 0
+        titles.add("Parasite");          // 1
+        titles.add("Amélie");            // 2
+        titles.add("LITTLE WOMEN");      // 3
+        titles.add(null);                // 4
+        titles.add("Little Women");      // 5
+        underTest = TitleIndex.build(6, titles.build());
+    }
+
+    @Test
+    @DisplayName("Verify a lookup ignores case and returns all rows with the title")
+    void verifyLookupIgnoresCase() {
+        assertArrayEquals(new int[] {0, 3, 5}, underTest.lookup("little women"));
+        assertArrayEquals(new int[] {1}, underTest.lookup("PARASITE"));
+        assertArrayEquals(new int[] {2}, underTest.lookup("AMÉLIE"));
+    }
+
+    @Test
+    @DisplayName("Verify a lookup of an unknown title returns no rows")
+    void verifyUnknownTitleReturnsNoRows() {
+        assertEquals(0, underTest.lookup("I Am Invalid Title").length);
+        assertEquals(0, underTest.lookup("Little Women 2").length);
+    }
+
+    @Test
+    @DisplayName("Verify titles equal ignoring case have the same hash")
+    void verifyHashIgnoresCase() {
+        assertEquals(TitleIndex.hash("Spider-Man 2"), TitleIndex.hash("SPIDER-man 2"));
+        assertEquals(TitleIndex.hash("Amélie"), TitleIndex.hash("AMÉLIE"));
+    }
+
+    @Test
+    @DisplayName("Verify an empty index finds nothing")
+    void verifyEmptyIndex() {
+        assertEquals(0, TitleIndex.build(0, new TitlePool.Builder().build()).lookup("Parasite").length);
+    }
+}
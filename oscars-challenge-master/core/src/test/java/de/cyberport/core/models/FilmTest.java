@@ -2,65 +2,101 @@ package de.cyberport.core.models;
 
 import io.wcm.testing.mock.aem.junit5.AemContext;
 import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.api.resource.Resource;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author ritendra_singh
  *
  */
-@ExtendWith({ AemContextExtension.class, MockitoExtension.class })
+@ExtendWith(AemContextExtension.class)
 public class FilmTest {
 
-    @InjectMocks
+    private final AemContext ctx = new AemContext();
+
     private Film filmModel;
 
-    private final AemContext ctx = new AemContext();
+    @BeforeEach
+    void setUp() {
+        Resource resource = ctx.create().resource("/content/oscars/parasite",
+                "title", "Parasite",
+                "year", 2019L,
+                "awards", 4L,
+                "nominations", 6L,
+                "isBestPicture", true,
+                "numberOfReferences", 8855L,
+                "sling:resourceType", "test/filmEntry");
+        filmModel = resource.adaptTo(Film.class);
+        assertNotNull(filmModel);
+    }
 
     @Test
     void getTitle_givenTitleExists_thenReturnTitle() {
-        filmModel.setTitle("some title text");
-        String actual = filmModel.getTitle();
-        assertEquals(actual,"some title text");
+        assertEquals("Parasite", filmModel.getTitle());
     }
 
     @Test
     void getAwards_givenAwardsExists_thenReturnAwards() {
-        filmModel.setAwards("some awards text");
-        String actual = filmModel.getAwards();
-        assertEquals(actual,"some awards text");
+        assertEquals(4, filmModel.getAwards());
     }
 
     @Test
     void getYear_givenYearExists_thenReturnYear() {
-        filmModel.setYear("some year text");
-        String actual = filmModel.getYear();
-        assertEquals(actual,"some year text");
+        assertEquals(2019, filmModel.getYear());
     }
 
     @Test
     void getNominations_givenNominationsExists_thenReturnNominations() {
-        filmModel.setNominations("some Nominations text");
-        String actual = filmModel.getNominations();
-        assertEquals(actual,"some Nominations text");
+        assertEquals(6, filmModel.getNominations());
     }
 
     @Test
     void getIsBestPicture_givenIsBestPictureExists_thenReturnIsBestPicture() {
-        filmModel.setIsBestPicture("IsBestPicture text");
-        String actual = filmModel.getIsBestPicture();
-        assertEquals(actual,"IsBestPicture text");
+        assertTrue(filmModel.getIsBestPicture());
     }
 
     @Test
     void getNoOfReferences_givenNoOfReferencesExists_thenReturnNoOfReferences() {
-        filmModel.setNumberOfReferences("No of references text");
-        String actual = filmModel.getNumberOfReferences();
-        assertEquals(actual,"No of references text");
+        assertEquals(8855, filmModel.getNumberOfReferences());
+    }
+
+    @Test
+    void getYear_givenYearStoredAsString_thenReturnParsedYear() {
+        Film film = ctx.create().resource("/content/oscars/roma", "title", "Roma", "year", "2018")
+                .adaptTo(Film.class);
+        assertNotNull(film);
+        assertEquals(2018, film.getYear());
+    }
+
+    @Test
+    void adaptTo_givenMissingProperties_thenReturnDefaults() {
+        Film film = ctx.create().resource("/content/oscars/empty").adaptTo(Film.class);
+        assertNotNull(film);
+        assertNull(film.getTitle());
+        assertEquals(0, film.getYear());
+        assertEquals(0, film.getAwards());
+        assertEquals(0, film.getNominations());
+        assertFalse(film.getIsBestPicture());
+        assertEquals(0, film.getNumberOfReferences());
+    }
+
+    @Test
+    void constructor_givenValues_thenReturnValues() {
+        Film film = new Film("Green Book", 2018, 3, 5, true, 2945);
+        assertEquals("Green Book", film.getTitle());
+        assertEquals(2018, film.getYear());
+        assertEquals(3, film.getAwards());
+        assertEquals(5, film.getNominations());
+        assertTrue(film.getIsBestPicture());
+        assertEquals(2945, film.getNumberOfReferences());
     }
 
 }
@@ -0,0 +1,312 @@
+package de.cyberport.core.services.impl;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.services.FilmCatalogService;
+import de.cyberport.core.testing.FilmGenerator;
+import de.cyberport.core.testing.FilmGenerator.Layout;
+import de.cyberport.core.testing.PartitionedContent;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceWrapper;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+@ExtendWith(AemContextExtension.class)
+class FilmCatalogServiceImplTest {
+
+    private static final String CONTAINER_PATH = "/content/oscars";
+
+    private final AemContext context = new AemContext();
+
+    private FilmCatalogServiceImpl underTest;
+
+    private Resource container;
+
+    @BeforeEach
+    public void setUp() {
+        context.load().json("/oscars.json", CONTAINER_PATH);
+        container = context.resourceResolver().getResource(CONTAINER_PATH);
+        underTest = context.registerInjectActivateService(new FilmCatalogServiceImpl());
+    }
+
+    @Test
+    @DisplayName("Verify all children of the container are loaded")
+    void verifyAllFilmsAreLoaded() {
+        assertEquals(1316, underTest.getCatalog(container).size());
+    }
+
+    @Test
+    @DisplayName("Verify the films are read by the service user, not with the resolver of the first requester")
+    void verifyFilmsAreReadByServiceUser() {
+        Resource restricted = new ResourceWrapper(container) {
+            @Override
+            public Iterable<Resource> getChildren() {
+                return Collections.emptyList();
+            }
+        };
+        assertEquals(1316, underTest.getCatalog(restricted).size());
+        assertSame(underTest.getCatalog(restricted), underTest.getCatalog(container));
+    }
+
+    @Test
+    @DisplayName("Verify catalog is loaded only once per container")
+    void verifyCatalogIsKeptInMemory() {
+        FilmCatalog catalog = underTest.getCatalog(container);
+        assertSame(catalog, underTest.getCatalog(container));
+    }
+
+    @Test
+    @DisplayName("Verify a changed title below the container rebuilds its catalog")
+    void verifyChangeBelowContainerInvalidatesCatalog() throws PersistenceException {
+        FilmCatalog catalog = underTest.getCatalog(container);
+        changeFilm("0", "title", "Zorba");
+        FilmCatalog reloaded = underTest.getCatalog(container);
+        assertNotSame(catalog, reloaded);
+        assertEquals("Zorba", reloaded.getTitle(0));
+    }
+
+    @Test
+    @DisplayName("Verify changed references only update the rows of the changed films")
+    void verifyChangedReferencesUpdateRows() throws PersistenceException, IOException {
+        FilmCatalog catalog = underTest.getCatalog(container);
+        changeFilm("0", "numberOfReferences", 900);
+        FilmCatalog updated = underTest.getCatalog(container);
+        assertNotSame(catalog, updated);
+        assertEquals(875, catalog.getNumberOfReferences(0));
+        assertEquals(900, updated.getNumberOfReferences(0));
+        assertEquals(catalog.getNumberOfReferences(1), updated.getNumberOfReferences(1));
+        assertEquals(fragment(catalog, 1), fragment(updated, 1));
+        assertTrue(fragment(updated, 0).endsWith("\"numberOfReferences\":900}"));
+        assertSame(updated, underTest.getCatalog(container));
+    }
+
+    @Test
+    @DisplayName("Verify a change event without changed values keeps the catalog")
+    void verifyUnchangedFilmKeepsCatalog() {
+        FilmCatalog catalog = underTest.getCatalog(container);
+        underTest.onChange(Collections.singletonList(
+                new ResourceChange(ChangeType.CHANGED, CONTAINER_PATH + "/0", false)));
+        assertSame(catalog, underTest.getCatalog(container));
+    }
+
+    @Test
+    @DisplayName("Verify an added film below the container rebuilds its catalog")
+    void verifyAddedFilmInvalidatesCatalog() throws PersistenceException {
+        FilmCatalog catalog = underTest.getCatalog(container);
+        context.create().resource(CONTAINER_PATH + "/new", "title", "New Film", "year", 2020);
+        context.resourceResolver().commit();
+        underTest.onChange(Collections.singletonList(
+                new ResourceChange(ChangeType.ADDED, CONTAINER_PATH + "/new", false)));
+        assertEquals(catalog.size() + 1, underTest.getCatalog(container).size());
+    }
+
+    @Test
+    @DisplayName("Verify removal of an ancestor rebuilds the catalog of the container")
+    void verifyRemovalOfAncestorInvalidatesCatalog() {
+        FilmCatalog catalog = underTest.getCatalog(container);
+        underTest.onChange(Collections.singletonList(
+                new ResourceChange(ChangeType.REMOVED, "/content", false)));
+        assertNotSame(catalog, underTest.getCatalog(container));
+    }
+
+    @Test
+    @DisplayName("Verify a change outside of the container keeps its catalog")
+    void verifyUnrelatedChangeKeepsCatalog() {
+        FilmCatalog catalog = underTest.getCatalog(container);
+        underTest.onChange(Collections.singletonList(
+                new ResourceChange(ChangeType.ADDED, "/content/oscars-archive/0", false)));
+        assertSame(catalog, underTest.getCatalog(container));
+    }
+
+    @Test
+    @DisplayName("Verify the revision of a container only changes with changes below it")
+    void verifyRevision() {
+        String revision = underTest.getRevision(container);
+        assertEquals(revision, underTest.getRevision(container));
+        underTest.onChange(Collections.singletonList(
+                new ResourceChange(ChangeType.ADDED, "/content/oscars-archive/0", false)));
+        assertEquals(revision, underTest.getRevision(container));
+        underTest.onChange(Collections.singletonList(
+                new ResourceChange(ChangeType.CHANGED, CONTAINER_PATH + "/0", false)));
+        assertNotEquals(revision, underTest.getRevision(container));
+        assertNotEquals(revision, new FilmCatalogServiceImpl().getRevision(container));
+    }
+
+    @Test
+    @DisplayName("Verify the service is registered as listener for changes below the configured paths")
+    void verifyListenerRegistration() throws InvalidSyntaxException {
+        ServiceReference<?>[] references = context.bundleContext().getServiceReferences(
+                ResourceChangeListener.class.getName(), "(objectClass=" + FilmCatalogService.class.getName() + ")");
+        assertEquals(1, references.length);
+        assertArrayEquals(new String[] {"/content"}, (String[]) references[0].getProperty(ResourceChangeListener.PATHS));
+        assertArrayEquals(new String[] {"ADDED", "CHANGED", "REMOVED"},
+                (String[]) references[0].getProperty(ResourceChangeListener.CHANGES));
+        assertSame(underTest, context.bundleContext().getService(references[0]));
+    }
+
+    @Test
+    @DisplayName("Verify the affected check on container paths")
+    void verifyIsAffected() {
+        assertTrue(FilmCatalogServiceImpl.isAffected(CONTAINER_PATH, CONTAINER_PATH));
+        assertTrue(FilmCatalogServiceImpl.isAffected(CONTAINER_PATH, CONTAINER_PATH + "/12"));
+        assertTrue(FilmCatalogServiceImpl.isAffected(CONTAINER_PATH, "/"));
+        assertFalse(FilmCatalogServiceImpl.isAffected(CONTAINER_PATH, "/content/oscars2"));
+        assertFalse(FilmCatalogServiceImpl.isAffected(CONTAINER_PATH, "/content/other"));
+    }
+
+    @Test
+    @DisplayName("Verify paths of changed resources relative to the container")
+    void verifyRelativePath() {
+        assertEquals("12", FilmCatalogServiceImpl.relativePath(CONTAINER_PATH, CONTAINER_PATH + "/12"));
+        assertEquals("1960s/1964/12", FilmCatalogServiceImpl.relativePath(CONTAINER_PATH, CONTAINER_PATH + "/1960s/1964/12"));
+        assertNull(FilmCatalogServiceImpl.relativePath(CONTAINER_PATH, CONTAINER_PATH));
+        assertNull(FilmCatalogServiceImpl.relativePath(CONTAINER_PATH, "/content"));
+        assertNull(FilmCatalogServiceImpl.relativePath(CONTAINER_PATH, "/content/oscars2/12"));
+    }
+
+    @Test
+    @DisplayName("Verify films of a partitioned container are found recursively")
+    void verifyPartitionedFilmsAreLoaded() throws PersistenceException {
+        PartitionedContent.partition(context.resourceResolver(), container);
+        assertEquals(1316, underTest.getCatalog(container).size());
+    }
+
+    @Test
+    @DisplayName("Verify a year query only reads the partitions of its years")
+    void verifyYearQueryPrunesPartitions() throws PersistenceException {
+        PartitionedContent.partition(context.resourceResolver(), container);
+        FilmCatalog pruned = underTest.getCatalog(container, query("year", "2019"));
+        assertTrue(pruned.size() > 0 && pruned.size() < 100);
+        for (int row = 0; row < pruned.size(); row++) {
+            assertEquals(2019, pruned.getYear(row));
+        }
+        assertSame(pruned, underTest.getCatalog(container, query("minYear", "2019")));
+
+        FilmCatalog extended = underTest.getCatalog(container, query("minYear", "2010"));
+        assertTrue(extended.size() > pruned.size() && extended.size() < 1316);
+        assertEquals(1316, underTest.getCatalog(container).size());
+    }
+
+    @Test
+    @DisplayName("Verify changed references of a partitioned film only update its row")
+    void verifyPartitionedReferencesUpdateRows() throws PersistenceException {
+        PartitionedContent.partition(context.resourceResolver(), container);
+        FilmCatalog catalog = underTest.getCatalog(container);
+        Resource film = context.resourceResolver().getResource(CONTAINER_PATH + "/1960s/1964/0");
+        film.adaptTo(ModifiableValueMap.class).put("numberOfReferences", 900);
+        context.resourceResolver().commit();
+        underTest.onChange(Collections.singletonList(
+                new ResourceChange(ChangeType.CHANGED, film.getPath(), false)));
+
+        FilmCatalog updated = underTest.getCatalog(container);
+        assertNotSame(catalog, updated);
+        assertEquals(catalog.size(), updated.size());
+        int row = 0;
+        while (!"Zorba the Greek".equals(updated.getTitle(row))) {
+            row++;
+        }
+        assertEquals(875, catalog.getNumberOfReferences(row));
+        assertEquals(900, updated.getNumberOfReferences(row));
+    }
+
+    @Test
+    @DisplayName("Verify a film in the partition of another year is skipped")
+    void verifyMisplacedFilmIsSkipped() throws PersistenceException {
+        PartitionedContent.partition(context.resourceResolver(), container);
+        context.create().resource(CONTAINER_PATH + "/1960s/1964/misplaced", "title", "Misplaced", "year", 2020);
+        context.resourceResolver().commit();
+        assertEquals(1316, underTest.getCatalog(container).size());
+    }
+
+    @Test
+    @DisplayName("Verify a film with an outlier year is skipped instead of stretching the year indexes")
+    void verifyOutlierYearIsSkipped() throws PersistenceException {
+        context.create().resource(CONTAINER_PATH + "/outlier", "title", "Outlier", "year", 1000000000);
+        context.resourceResolver().commit();
+        assertEquals(1316, underTest.getCatalog(container).size());
+    }
+
+    @Test
+    @DisplayName("Verify every layout of the generated films loads the catalog of the flat container")
+    void verifyLayoutsLoadFlatCatalog() throws PersistenceException, IOException {
+        FilmGenerator generator = FilmGenerator.fromOscars(7);
+        Resource flat = generator.load(context.resourceResolver(), "/content/generated/flat", 2000, Layout.FLAT);
+        List<String> expected = fragments(underTest.getCatalog(flat), Integer.MIN_VALUE);
+        List<String> expectedSince2000 = fragments(underTest.getCatalog(flat), 2000);
+        assertEquals(2000, expected.size());
+
+        for (Layout layout : Layout.values()) {
+            String path = "/content/generated/" + layout.name().toLowerCase(Locale.ROOT) + "-layout";
+            Resource container = generator.load(context.resourceResolver(), path, 2000, layout);
+            assertEquals(expectedSince2000, fragments(underTest.getCatalog(container, query("minYear", "2000")), 2000),
+                    layout.name());
+            assertEquals(expected, fragments(underTest.getCatalog(container), Integer.MIN_VALUE), layout.name());
+        }
+    }
+
+    private void changeFilm(final String name, final String property, final Object value) throws PersistenceException {
+        Resource film = container.getChild(name);
+        film.adaptTo(ModifiableValueMap.class).put(property, value);
+        context.resourceResolver().commit();
+        underTest.onChange(Collections.singletonList(
+                new ResourceChange(ChangeType.CHANGED, film.getPath(), false)));
+    }
+
+    private static FilmQuery query(final String name, final String value) {
+        return FilmQuery.parse(Collections.singletonMap(name, value)::get);
+    }
+
+    /**
+     * @param catalog
+     * @param minYear
+     * @return fragments of the rows from the minimum year on, in an order independent of the order
+     * the films were found in
+     */
+    private static List<String> fragments(final FilmCatalog catalog, final int minYear) throws IOException {
+        List<String> fragments = new ArrayList<>();
+        for (int row = 0; row < catalog.size(); row++) {
+            if (catalog.getYear(row) >= minYear) {
+                fragments.add(fragment(catalog, row));
+            }
+        }
+        Collections.sort(fragments);
+        return fragments;
+    }
+
+    private static String fragment(final FilmCatalog catalog, final int row) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        catalog.writeFragment(row, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
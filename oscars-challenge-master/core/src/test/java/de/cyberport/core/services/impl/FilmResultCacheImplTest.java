@@ -0,0 +1,257 @@
+package de.cyberport.core.services.impl;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.utils.ResponseBody;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+@ExtendWith(AemContextExtension.class)
+class FilmResultCacheImplTest {
+
+    private static final String CONTAINER_PATH = "/content/oscars";
+
+    private final AemContext context = new AemContext();
+
+    private FilmCatalog catalog;
+
+    @BeforeEach
+    public void setUp() {
+        catalog = catalog();
+    }
+
+    @Test
+    @DisplayName("Verify a repeated query in another spelling is served from the cache")
+    void verifyRepeatedQueryIsCached() {
+        FilmResultCacheImpl underTest = context.registerInjectActivateService(new FilmResultCacheImpl());
+        int[] rows = underTest.getResult(CONTAINER_PATH, catalog, query("title", "Parasite", "year", "2019"));
+        int[] cached = underTest.getResult(CONTAINER_PATH, catalog,
+                query("year", " 2019", "title", "PARASITE", "sortBy", "Title"));
+        assertSame(rows, cached);
+        assertArrayEquals(new int[]{0}, cached);
+        assertEquals(1, underTest.getHitCount());
+        assertEquals(1, underTest.getMissCount());
+        assertEquals(1, underTest.size());
+    }
+
+    @Test
+    @DisplayName("Verify results of a replaced catalog are not served")
+    void verifyReplacedCatalogIsExecuted() {
+        FilmResultCacheImpl underTest = context.registerInjectActivateService(new FilmResultCacheImpl());
+        int[] rows = underTest.getResult(CONTAINER_PATH, catalog, query("year", "2019"));
+        int[] replaced = underTest.getResult(CONTAINER_PATH, catalog(), query("year", "2019"));
+        assertNotSame(rows, replaced);
+        assertArrayEquals(rows, replaced);
+        assertEquals(2, underTest.getMissCount());
+        assertEquals(1, underTest.size());
+    }
+
+    @Test
+    @DisplayName("Verify the least recently used result is evicted first")
+    void verifyLeastRecentlyUsedIsEvicted() {
+        FilmResultCacheImpl underTest = context.registerInjectActivateService(new FilmResultCacheImpl(),
+                "max.entries", 2);
+        int[] year2019 = underTest.getResult(CONTAINER_PATH, catalog, query("year", "2019"));
+        underTest.getResult(CONTAINER_PATH, catalog, query("year", "2018"));
+        underTest.getResult(CONTAINER_PATH, catalog, query("year", "2019"));
+        underTest.getResult(CONTAINER_PATH, catalog, query("year", "2017"));
+
+        assertEquals(2, underTest.size());
+        assertEquals(1, underTest.getEvictionCount());
+        assertSame(year2019, underTest.getResult(CONTAINER_PATH, catalog, query("year", "2019")));
+        underTest.getResult(CONTAINER_PATH, catalog, query("year", "2018"));
+        assertEquals(4, underTest.getMissCount());
+    }
+
+    @Test
+    @DisplayName("Verify a batch reuses cached results and caches the executed ones")
+    void verifyBatchUsesCache() {
+        FilmResultCacheImpl underTest = context.registerInjectActivateService(new FilmResultCacheImpl());
+        int[] year2019 = underTest.getResult(CONTAINER_PATH, catalog, query("year", "2019"));
+        int[][] results = underTest.getResults(CONTAINER_PATH, catalog, new FilmQuery[] {
+                query("year", "2018"), query("year", "2019"), query("sortBy", "year", "limit", "2")});
+        assertSame(year2019, results[1]);
+        assertArrayEquals(new int[]{2}, results[0]);
+        assertArrayEquals(new int[]{2, 1}, results[2]);
+        assertEquals(1, underTest.getHitCount());
+        assertEquals(3, underTest.getMissCount());
+        assertSame(results[2], underTest.getResult(CONTAINER_PATH, catalog, query("limit", "2", "sortBy", "year")));
+    }
+
+    @Test
+    @DisplayName("Verify an encoded body is kept per variant with its result and dropped with it")
+    void verifyBodiesAreCachedWithResult() {
+        FilmResultCacheImpl underTest = context.registerInjectActivateService(new FilmResultCacheImpl());
+        int[] encodings = {0};
+        Function<int[], ResponseBody> encoder = rows -> {
+            encodings[0]++;
+            return new ResponseBody(new byte[] {(byte) rows.length}, true);
+        };
+        ResponseBody body = underTest.getBody(CONTAINER_PATH, catalog, query("year", "2019"), "json+gzip", encoder);
+        long size = underTest.sizeInBytes();
+        assertSame(body, underTest.getBody(CONTAINER_PATH, catalog, query("year", " 2019"), "json+gzip", encoder));
+        assertNotSame(body, underTest.getBody(CONTAINER_PATH, catalog, query("year", "2019"), "bin+gzip", encoder));
+        assertEquals(2, encodings[0]);
+        assertEquals(1, underTest.getBodyHitCount());
+        assertEquals(1, underTest.size());
+        assertTrue(underTest.sizeInBytes() > size);
+
+        underTest.invalidate(CONTAINER_PATH);
+        assertEquals(0, underTest.sizeInBytes());
+        underTest.getBody(CONTAINER_PATH, catalog, query("year", "2019"), "json+gzip", encoder);
+        assertEquals(3, encodings[0]);
+    }
+
+    @Test
+    @DisplayName("Verify a body exceeding the byte bound is encoded for every request")
+    void verifyBodyExceedingByteBoundIsNotCached() {
+        FilmResultCacheImpl underTest = context.registerInjectActivateService(new FilmResultCacheImpl(),
+                "max.bytes", 500L);
+        int[] encodings = {0};
+        Function<int[], ResponseBody> encoder = rows -> {
+            encodings[0]++;
+            return new ResponseBody(new byte[1000], true);
+        };
+        underTest.getBody(CONTAINER_PATH, catalog, query("year", "2019"), "json+gzip", encoder);
+        underTest.getBody(CONTAINER_PATH, catalog, query("year", "2019"), "json+gzip", encoder);
+        assertEquals(2, encodings[0]);
+        assertEquals(1, underTest.getHitCount());
+        assertTrue(underTest.sizeInBytes() <= 500);
+    }
+
+    @Test
+    @DisplayName("Verify the estimated size of all results stays within the byte bound")
+    void verifyByteBound() {
+        FilmResultCacheImpl underTest = context.registerInjectActivateService(new FilmResultCacheImpl(),
+                "max.bytes", 500L);
+        for (int year = 2000; year < 2020; year++) {
+            underTest.getResult(CONTAINER_PATH, catalog, query("year", String.valueOf(year)));
+            assertTrue(underTest.sizeInBytes() <= 500);
+        }
+        assertTrue(underTest.size() > 0 && underTest.size() < 20);
+        assertEquals(20 - underTest.size(), underTest.getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("Verify removed results are swept from the eviction queue while the cache is within its bounds")
+    void verifyEvictionQueueIsSwept() {
+        FilmResultCacheImpl underTest = context.registerInjectActivateService(new FilmResultCacheImpl());
+        underTest.getResult("/content/other", catalog, query("year", "2018"));
+        for (int i = 0; i < 1000; i++) {
+            underTest.getResult(CONTAINER_PATH, catalog, query("year", "2019"));
+            underTest.invalidate(CONTAINER_PATH);
+        }
+        assertTrue(underTest.queueLength() < 100, String.valueOf(underTest.queueLength()));
+        assertEquals(1, underTest.size());
+        assertEquals(0, underTest.getEvictionCount());
+        assertEquals(1, underTest.getResults("/content/other", catalog, new FilmQuery[] {query("year", "2018")}).length);
+        assertEquals(1, underTest.getHitCount());
+    }
+
+    @Test
+    @DisplayName("Verify concurrent lookups, evictions and invalidations keep the bounds and the size accounting")
+    void verifyConcurrentAccounting() throws InterruptedException {
+        FilmResultCacheImpl underTest = context.registerInjectActivateService(new FilmResultCacheImpl(),
+                "max.entries", 8, "max.bytes", 4000L);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            final int offset = thread;
+            executor.execute(() -> {
+                for (int i = 0; i < 500; i++) {
+                    FilmQuery query = query("year", String.valueOf(2000 + (i + offset) % 20));
+                    underTest.getBody(CONTAINER_PATH, catalog, query, "json", rows -> new ResponseBody(new byte[64], false));
+                    if (i % 50 == 0) {
+                        underTest.invalidate(CONTAINER_PATH);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertTrue(underTest.size() <= 8);
+        assertTrue(underTest.sizeInBytes() <= 4000);
+        underTest.invalidate(CONTAINER_PATH);
+        assertEquals(0, underTest.size());
+        assertEquals(0, underTest.sizeInBytes());
+    }
+
+    @Test
+    @DisplayName("Verify a result is executed again after its time to live")
+    void verifyExpiredResultIsExecuted() {
+        FilmResultCacheImpl underTest = context.registerInjectActivateService(new FilmResultCacheImpl(),
+                "ttl.seconds", 3600L);
+        long[] now = {0};
+        underTest.clock = () -> now[0];
+        int[] rows = underTest.getResult(CONTAINER_PATH, catalog, query("year", "2019"));
+        now[0] = 3_599_999;
+        assertSame(rows, underTest.getResult(CONTAINER_PATH, catalog, query("year", "2019")));
+        now[0] = 3_600_000;
+        assertNotSame(rows, underTest.getResult(CONTAINER_PATH, catalog, query("year", "2019")));
+        assertEquals(1, underTest.getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("Verify a change below the container drops its results only")
+    void verifyChangeDropsResultsOfContainer() {
+        FilmResultCacheImpl underTest = context.registerInjectActivateService(new FilmResultCacheImpl());
+        underTest.getResult(CONTAINER_PATH, catalog, query("year", "2019"));
+        underTest.getResult("/content/other", catalog, query("year", "2019"));
+        underTest.onChange(Collections.singletonList(
+                new ResourceChange(ChangeType.CHANGED, CONTAINER_PATH + "/0", false)));
+        assertEquals(1, underTest.size());
+        underTest.invalidate("/content/other");
+        assertEquals(0, underTest.size());
+        assertEquals(0, underTest.sizeInBytes());
+    }
+
+    @Test
+    @DisplayName("Verify no result is kept when the cache is disabled")
+    void verifyDisabledCache() {
+        FilmResultCacheImpl underTest = context.registerInjectActivateService(new FilmResultCacheImpl(),
+                "max.entries", 0);
+        underTest.getResult(CONTAINER_PATH, catalog, query("year", "2019"));
+        underTest.getResult(CONTAINER_PATH, catalog, query("year", "2019"));
+        assertEquals(0, underTest.size());
+        assertEquals(2, underTest.getMissCount());
+    }
+
+    private static FilmCatalog catalog() {
+        return FilmCatalog.builder()
+                .add("Parasite", 2019, 4, 6, true, 8279)
+                .add("Joker", 2019, 2, 11, false, 5000)
+                .add("Roma", 2018, 3, 10, false, 900)
+                .build();
+    }
+
+    private static FilmQuery query(final String... parameters) {
+        final Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < parameters.length; i += 2) {
+            values.put(parameters[i], parameters[i + 1]);
+        }
+        return FilmQuery.parse(values::get);
+    }
+}
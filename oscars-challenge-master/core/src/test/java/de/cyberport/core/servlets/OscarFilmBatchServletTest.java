@@ -0,0 +1,167 @@
+package de.cyberport.core.servlets;
+
+import de.cyberport.core.services.impl.FilmCatalogServiceImpl;
+import de.cyberport.core.services.impl.FilmResultCacheImpl;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.skyscreamer.jsonassert.JSONCompareMode;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author ritendra_singh
+ */
+@ExtendWith(AemContextExtension.class)
+class OscarFilmBatchServletTest {
+
+    private OscarFilmBatchServlet underTest;
+
+    private OscarFilmContainerServlet containerServlet;
+
+    private AemContext context = new AemContext();
+
+    @BeforeEach
+    public void setUp() {
+        context.load().json("/oscars.json", "/content/oscars");
+        context.currentResource("/content/oscars");
+        context.registerInjectActivateService(new FilmCatalogServiceImpl());
+        context.registerInjectActivateService(new FilmResultCacheImpl());
+        containerServlet = context.registerInjectActivateService(new OscarFilmContainerServlet());
+        underTest = context.registerInjectActivateService(new OscarFilmBatchServlet());
+    }
+
+    @Test
+    @DisplayName("Verify every keyed result equals the response of the container servlet for its query")
+    void verifyResultsMatchSingleQueries() throws IOException, JSONException {
+        final Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("winners", "isBestPicture=true&minYear=1990&maxYear=1999&limit=5");
+        queries.put("topNominated", "year=2019&sortBy=-nominations&limit=3");
+        queries.put("lookup", "title=Parasite&fields=title,year");
+        queries.put("recent", "minYear=2010&sortBy=year&limit=4");
+        queries.put("early", "maxYear=1940&sortBy=year&limit=4");
+        queries.put("all_awarded", "minAwards=1&sortBy=awards,-year");
+
+        final Map<String, Object> params = new LinkedHashMap<>();
+        for (Map.Entry<String, String> query : queries.entrySet()) {
+            params.put(query.getKey(), query.getValue());
+        }
+        final MockSlingHttpServletResponse batch = doBatch(params);
+        assertEquals(HttpServletResponse.SC_OK, batch.getStatus());
+
+        final JSONObject results = new JSONObject(batch.getOutputAsString()).getJSONObject("results");
+        assertEquals(queries.size(), results.length());
+        for (Map.Entry<String, String> query : queries.entrySet()) {
+            final Map<String, Object> single = new HashMap<>();
+            for (String pair : query.getValue().split("&")) {
+                single.put(pair.substring(0, pair.indexOf('=')), pair.substring(pair.indexOf('=') + 1));
+            }
+            JSONAssert.assertEquals(doSingle(single).getOutputAsString(),
+                    results.getJSONObject(query.getKey()), JSONCompareMode.STRICT);
+        }
+    }
+
+    @Test
+    @DisplayName("Verify the parameters of a query are URL decoded")
+    void verifyEncodedParameters() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("film", "title=" + URLEncoder.encode("Bohemian Rhapsody", StandardCharsets.UTF_8.name()));
+        JSONAssert.assertEquals("{results:{film:{result:[{title:\"Bohemian Rhapsody\"}]}}}",
+                doBatch(params).getOutputAsString(), JSONCompareMode.LENIENT);
+    }
+
+    @Test
+    @DisplayName("Verify a request without queries returns an empty map")
+    void verifyEmptyBatch() throws IOException, JSONException {
+        JSONAssert.assertEquals("{results:{}}", doBatch(new HashMap<>()).getOutputAsString(),
+                JSONCompareMode.STRICT);
+    }
+
+    @Test
+    @DisplayName("Verify Bad Request for invalid keys, invalid queries and too many queries")
+    void verifyBadRequests() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("a b", "year=2019");
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, doBatch(params).getStatus());
+
+        params.clear();
+        params.put("valid", "year=2019");
+        params.put("invalid", "minYear=twenty");
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, doBatch(params).getStatus());
+
+        params.clear();
+        for (int i = 0; i <= 20; i++) {
+            params.put("q" + i, "year=" + (1990 + i));
+        }
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, doBatch(params).getStatus());
+        params.remove("q20");
+        assertEquals(HttpServletResponse.SC_OK, doBatch(params).getStatus());
+    }
+
+    @Test
+    @DisplayName("Verify a repeated batch is answered with 304 Not Modified")
+    void verifyNotModified() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("winners", "isBestPicture=true");
+        final MockSlingHttpServletResponse first = doBatch(params);
+        final String entityTag = first.getHeader("ETag");
+        assertEquals("public, max-age=60", first.getHeader("Cache-Control"));
+        assertNull(first.getHeader("Vary"));
+
+        final MockSlingHttpServletRequest request = newRequest(params);
+        request.addHeader("If-None-Match", entityTag);
+        final MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+        underTest.doGet(request, response);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Verify batches of queries with colliding hash codes have different ETags")
+    void verifyCollidingBatchesHaveDifferentEntityTags() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("film", "title=aan");
+        final String entityTag = doBatch(params).getHeader("ETag");
+        params.put("film", "title=ac0");
+        assertNotEquals(entityTag, doBatch(params).getHeader("ETag"));
+        params.put("film", "title=aan");
+        assertEquals(entityTag, doBatch(params).getHeader("ETag"));
+    }
+
+    private MockSlingHttpServletResponse doBatch(final Map<String, Object> params) throws IOException {
+        final MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+        underTest.doGet(newRequest(params), response);
+        return response;
+    }
+
+    private MockSlingHttpServletResponse doSingle(final Map<String, Object> params) throws IOException {
+        final MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+        containerServlet.doGet(newRequest(params), response);
+        return response;
+    }
+
+    private MockSlingHttpServletRequest newRequest(final Map<String, Object> params) {
+        final MockSlingHttpServletRequest request =
+                new MockSlingHttpServletRequest(context.resourceResolver(), context.bundleContext());
+        request.setResource(context.currentResource());
+        request.setParameterMap(params);
+        return request;
+    }
+}
@@ -0,0 +1,194 @@
+package de.cyberport.core.servlets;
+
+import de.cyberport.core.services.impl.FilmCatalogServiceImpl;
+import de.cyberport.core.services.impl.FilmResultCacheImpl;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.skyscreamer.jsonassert.JSONCompareMode;
+import org.skyscreamer.jsonassert.comparator.ArraySizeComparator;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fires mixed queries from many threads at one servlet instance and checks that every
+ * response is exactly the one of the same query run alone.
+ *
+ * @author ritendra_singh
+ */
+@ExtendWith(AemContextExtension.class)
+class OscarFilmContainerServletStressTest {
+
+    private static final int THREADS = 32;
+    private static final int REQUESTS_PER_THREAD = 250;
+
+    /**
+     * Far below what a servlet keeping results across requests would retain after 8000 requests
+     */
+    private static final long MAX_HEAP_GROWTH = 64L * 1024 * 1024;
+
+    private static final String[] QUERIES = {
+            "",
+            "year=2019&minAwards=4",
+            "minYear=2018&minAwards=3&sortBy=nominations&limit=4",
+            "title=nonExisting",
+            "title=Spider-Man 2",
+            "nominations=5&isBestPicture=true&sortBy=year",
+            "minYear=1990&maxYear=1999&sortBy=awards&limit=10",
+            "isBestPicture=true&sortBy=title",
+            "minAwards=5&sortBy=year&limit=3"
+    };
+
+    private final AemContext context = new AemContext();
+
+    private OscarFilmContainerServlet underTest;
+
+    private Resource container;
+
+    private final String[] expectedResponses = new String[QUERIES.length];
+
+    @BeforeEach
+    public void setUp() {
+        context.load().json("/oscars.json", "/content/oscars");
+        container = context.resourceResolver().getResource("/content/oscars");
+        context.registerInjectActivateService(new FilmCatalogServiceImpl());
+    }
+
+    @Test
+    @DisplayName("Verify concurrent requests return the same results as sequential ones without retaining heap")
+    void verifyConcurrentRequests() throws Exception {
+        // Without cached results every request runs the query engine and the json writer
+        start(0);
+        JSONAssert.assertEquals("{result:[1316]}", expectedResponses[0],
+                new ArraySizeComparator(JSONCompareMode.LENIENT));
+        assertTrue(expectedResponses[1].contains("\"title\":\"Parasite\""));
+        assertEquals("{\"result\":[]}", expectedResponses[3]);
+
+        // Warm up, so lazily built structures are part of the baseline
+        runConcurrently(REQUESTS_PER_THREAD / 10);
+        final long heapBefore = usedHeapAfterGc();
+
+        runConcurrently(REQUESTS_PER_THREAD);
+
+        final long heapGrowth = usedHeapAfterGc() - heapBefore;
+        assertTrue(heapGrowth < MAX_HEAP_GROWTH, "Heap grew by " + heapGrowth + " bytes");
+    }
+
+    @Test
+    @DisplayName("Verify concurrent requests served from the result cache return the same results")
+    void verifyConcurrentCachedRequests() throws Exception {
+        final FilmResultCacheImpl cache = start(1000);
+        final long hitsBefore = cache.getHitCount();
+
+        runConcurrently(REQUESTS_PER_THREAD);
+
+        assertEquals(QUERIES.length, cache.size());
+        assertEquals(THREADS * REQUESTS_PER_THREAD, cache.getHitCount() - hitsBefore);
+    }
+
+    /**
+     * Registers the result cache and the servlet, then runs every query once alone, which also
+     * loads the catalog and fills the cache before the threads start
+     * @param maxEntries cached results, 0 disables the cache
+     * @return the registered cache
+     * @throws IOException
+     */
+    private FilmResultCacheImpl start(final int maxEntries) throws IOException {
+        final FilmResultCacheImpl cache =
+                context.registerInjectActivateService(new FilmResultCacheImpl(), "max.entries", maxEntries);
+        underTest = context.registerInjectActivateService(new OscarFilmContainerServlet());
+        for (int i = 0; i < QUERIES.length; i++) {
+            expectedResponses[i] = execute(QUERIES[i]);
+        }
+        return cache;
+    }
+
+    /**
+     * Every thread runs the queries round robin, starting at its own offset
+     * @param requestsPerThread
+     * @throws Exception
+     */
+    private void runConcurrently(final int requestsPerThread) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        final int query = (offset + i) % QUERIES.length;
+                        assertEquals(expectedResponses[query], execute(QUERIES[query]), QUERIES[query]);
+                    }
+                    return requestsPerThread;
+                }));
+            }
+            start.countDown();
+
+            int requests = 0;
+            for (Future<Integer> result : results) {
+                requests += result.get(2, TimeUnit.MINUTES);
+            }
+            assertEquals(THREADS * requestsPerThread, requests);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the query with its own request and response, as the servlet engine does
+     * @param query
+     * @return response body
+     * @throws IOException
+     */
+    private String execute(final String query) throws IOException {
+        final MockSlingHttpServletRequest request =
+                new MockSlingHttpServletRequest(context.resourceResolver(), context.bundleContext());
+        request.setResource(container);
+        request.setParameterMap(parameters(query));
+        final MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+        underTest.doGet(request, response);
+        assertEquals(200, response.getStatus(), query);
+        return response.getOutputAsString();
+    }
+
+    private static Map<String, Object> parameters(final String query) {
+        final Map<String, Object> params = new HashMap<>();
+        for (String pair : query.split("&")) {
+            final int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(pair.substring(0, separator), pair.substring(separator + 1));
+            }
+        }
+        return params;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -1,24 +1,54 @@
 package de.cyberport.core.servlets;
 
+import de.cyberport.core.catalog.FilmQuery;
+import de.cyberport.core.services.FilmCatalogService;
+import de.cyberport.core.services.FilmResultCache;
+import de.cyberport.core.services.impl.FilmCatalogServiceImpl;
+import de.cyberport.core.services.impl.FilmResultCacheImpl;
+import de.cyberport.core.testing.PartitionedContent;
+import de.cyberport.core.testing.ResourceChanges;
+import de.cyberport.core.utils.FilmBinaryReader;
 import io.wcm.testing.mock.aem.junit5.AemContext;
 import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.testing.mock.sling.servlet.MockRequestPathInfo;
 import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
 import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.json.JSONArray;
 import org.json.JSONException;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.osgi.framework.InvalidSyntaxException;
 import org.skyscreamer.jsonassert.JSONAssert;
 import org.skyscreamer.jsonassert.JSONCompareMode;
 import org.skyscreamer.jsonassert.comparator.ArraySizeComparator;
 
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Vitalii Afonin
@@ -27,7 +57,7 @@ import static org.hamcrest.Matchers.containsString;
 @ExtendWith(AemContextExtension.class)
 class OscarFilmContainerServletTest {
 
-    private OscarFilmContainerServlet underTest = new OscarFilmContainerServlet();
+    private OscarFilmContainerServlet underTest;
 
     private AemContext context = new AemContext();
 
@@ -39,6 +69,9 @@ class OscarFilmContainerServletTest {
         context.load().json("/oscars.json", "/content/oscars");
         context.currentResource("/content/oscars");
         request.setResource(context.currentResource());
+        context.registerInjectActivateService(new FilmCatalogServiceImpl());
+        context.registerInjectActivateService(new FilmResultCacheImpl());
+        underTest = context.registerInjectActivateService(new OscarFilmContainerServlet());
     }
 
     @Test
@@ -490,4 +523,411 @@ class OscarFilmContainerServletTest {
                 new ArraySizeComparator(JSONCompareMode.LENIENT));
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Verify Response is sorted numerically when sortBy nominations is passed as request parameter")
+    void verifyResponseIsSortedNumericallyByNominations() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("minYear", "2018");
+        params.put("minAwards", "3");
+        params.put("sortBy", "nominations");
+        params.put("limit", "4");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        JSONAssert.assertEquals(
+                "{result:["
+                        + "{title:\"Bohemian Rhapsody\",nominations:5},"
+                        + "{title:\"Green Book\",nominations:5},"
+                        + "{title:\"Parasite\",nominations:6},"
+                        + "{title:\"Black Panther\",nominations:7}]}",
+                response.getOutputAsString(),
+                JSONCompareMode.STRICT_ORDER);
+    }
+
+    @Test
+    @DisplayName("Verify Response matches the documented sample for year and minAwards")
+    void verifyResponseMatchesDocumentedSample() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("year", "2019");
+        params.put("minAwards", "4");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        JSONAssert.assertEquals(
+                "{\"result\":[{\"title\":\"Parasite\",\"year\":\"2019\",\"awards\":4,\"nominations\":6,"
+                        + "\"isBestPicture\":true,\"numberOfReferences\":8279}]}",
+                response.getOutputAsString(),
+                JSONCompareMode.STRICT);
+    }
+
+    @Test
+    @DisplayName("Verify a container partitioned by decade and year responds like the flat one")
+    void verifyPartitionedContainerMatchesFlatContainer() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("minYear", "2018");
+        params.put("minAwards", "3");
+        params.put("sortBy", "nominations");
+        params.put("limit", "4");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+
+        context.load().json("/oscars.json", "/content/partitioned");
+        PartitionedContent.partition(context.resourceResolver(), context.resourceResolver().getResource("/content/partitioned"));
+        final MockSlingHttpServletRequest partitionedRequest =
+                new MockSlingHttpServletRequest(context.resourceResolver(), context.bundleContext());
+        partitionedRequest.setResource(context.resourceResolver().getResource("/content/partitioned"));
+        partitionedRequest.setParameterMap(params);
+        final MockSlingHttpServletResponse partitionedResponse = new MockSlingHttpServletResponse();
+        underTest.doGet(partitionedRequest, partitionedResponse);
+
+        // The next cursors hold row ids, which depend on the load order of the layout
+        JSONAssert.assertEquals(new JSONObject(response.getOutputAsString()).getJSONArray("result"),
+                new JSONObject(partitionedResponse.getOutputAsString()).getJSONArray("result"),
+                JSONCompareMode.STRICT);
+    }
+
+    @Test
+    @DisplayName("Verify the pages of a next cursor chain add up to the whole result")
+    void verifyCursorPagesAddUpToWholeResult() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("minYear", "1990");
+        params.put("sortBy", "awards");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        final JSONObject whole = new JSONObject(response.getOutputAsString());
+        assertFalse(whole.has("nextCursor"));
+
+        params.put("limit", "7");
+        final JSONArray paged = new JSONArray();
+        JSONObject page = new JSONObject(doGet(params, null).getOutputAsString());
+        while (true) {
+            final JSONArray result = page.getJSONArray("result");
+            for (int i = 0; i < result.length(); i++) {
+                paged.put(result.get(i));
+            }
+            if (!page.has("nextCursor")) {
+                break;
+            }
+            assertEquals(7, result.length());
+            params.put("cursor", page.getString("nextCursor"));
+            page = new JSONObject(doGet(params, null).getOutputAsString());
+        }
+        JSONAssert.assertEquals(whole.getJSONArray("result"), paged, JSONCompareMode.STRICT);
+    }
+
+    @Test
+    @DisplayName("Verify Response is sorted by several keys, descending ones and references")
+    void verifyResponseIsSortedByMultipleKeys() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("minYear", "2018");
+        params.put("sortBy", "-year,-numberOfReferences");
+        params.put("limit", "2");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        JSONAssert.assertEquals(
+                "{\"result\":[{\"title\":\"Parasite\",\"year\":\"2019\"},{\"title\":\"Joker\",\"year\":\"2019\"}]}",
+                response.getOutputAsString(),
+                JSONCompareMode.STRICT_ORDER);
+    }
+
+    @Test
+    @DisplayName("Verify Response only contains the requested fields")
+    void verifyResponseWhenFieldsAreProvided() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("year", "2019");
+        params.put("minAwards", "4");
+        params.put("fields", "title,year,unknown");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        JSONAssert.assertEquals(
+                "{\"result\":[{\"title\":\"Parasite\",\"year\":\"2019\"}]}",
+                response.getOutputAsString(),
+                JSONCompareMode.STRICT);
+
+        params.remove("fields");
+        assertNotEquals(response.getHeader("ETag"), doGet(params, null).getHeader("ETag"));
+    }
+
+    @Test
+    @DisplayName("Verify the ndjson extension streams the films of the json result one per line")
+    void verifyNdjsonStreamsResultLines() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("minYear", "2000");
+        params.put("fields", "title,nominations");
+        for (String sortBy : new String[] {"title", "-nominations,year"}) {
+            params.put("sortBy", sortBy);
+            final MockSlingHttpServletResponse json = doGet(params, null);
+            final MockSlingHttpServletResponse ndjson = doGet(params, null, "ndjson");
+
+            assertThat(ndjson.getContentType(), startsWith("application/x-ndjson"));
+            assertNotEquals(json.getHeader("ETag"), ndjson.getHeader("ETag"));
+            final JSONArray expected = new JSONObject(json.getOutputAsString()).getJSONArray("result");
+            final String[] lines = ndjson.getOutputAsString().split("\n");
+            assertEquals(expected.length(), lines.length);
+            for (int i = 0; i < lines.length; i++) {
+                JSONAssert.assertEquals(expected.getJSONObject(i), new JSONObject(lines[i]), JSONCompareMode.STRICT);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Verify the bin extension and the Accept header select the binary format of the json result")
+    void verifyBinaryFormatMatchesJsonResult() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("minYear", "2015");
+        params.put("sortBy", "-awards");
+        params.put("limit", "5");
+        final MockSlingHttpServletResponse json = doGet(params, null);
+        final MockSlingHttpServletRequest accepting = newRequest(params, "json");
+        accepting.addHeader("Accept", "application/x-oscars-films;q=0.9, application/json;q=0.5");
+
+        for (MockSlingHttpServletResponse binary : new MockSlingHttpServletResponse[] {
+                doGet(params, null, "bin"), doGet(accepting)}) {
+            assertEquals("application/x-oscars-films", binary.getContentType());
+            assertEquals("Accept, Accept-Encoding", binary.getHeader("Vary"));
+            assertNotEquals(json.getHeader("ETag"), binary.getHeader("ETag"));
+
+            final FilmBinaryReader.Result result =
+                    new FilmBinaryReader(new ByteArrayInputStream(binary.getOutput())).read();
+            final JSONObject expected = new JSONObject(json.getOutputAsString());
+            final JSONArray films = expected.getJSONArray("result");
+            assertEquals(films.length(), result.size());
+            for (int i = 0; i < films.length(); i++) {
+                final JSONObject film = films.getJSONObject(i);
+                assertEquals(film.getString("title"), result.getTitle(i));
+                assertEquals(film.getString("year"), String.valueOf(result.getYear(i)));
+                assertEquals(film.getInt("awards"), result.getAwards(i));
+                assertEquals(film.getInt("nominations"), result.getNominations(i));
+                assertEquals(film.getBoolean("isBestPicture"), result.isBestPicture(i));
+                assertEquals(film.getInt("numberOfReferences"), result.getNumberOfReferences(i));
+            }
+            assertEquals(expected.getString("nextCursor"), result.getNextCursor());
+        }
+    }
+
+    @Test
+    @DisplayName("Verify clients accepting gzip get the compressed body, cached with the result")
+    void verifyGzipResponse() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("minYear", "2000");
+        final MockSlingHttpServletResponse plain = doGet(params, null);
+        final MockSlingHttpServletRequest accepting = newRequest(params, "json");
+        accepting.addHeader("Accept-Encoding", "deflate, gzip;q=0.8");
+        final MockSlingHttpServletResponse compressed = doGet(accepting);
+
+        assertEquals("gzip", compressed.getHeader("Content-Encoding"));
+        assertEquals("Accept, Accept-Encoding", compressed.getHeader("Vary"));
+        assertNotEquals(plain.getHeader("ETag"), compressed.getHeader("ETag"));
+        assertTrue(compressed.getOutput().length < plain.getOutput().length);
+        assertEquals(plain.getOutputAsString(), gunzip(compressed.getOutput()));
+
+        final long bodyHits = context.getService(FilmResultCache.class).getBodyHitCount();
+        assertArrayEquals(compressed.getOutput(), doGet(accepting).getOutput());
+        assertEquals(bodyHits + 1, context.getService(FilmResultCache.class).getBodyHitCount());
+
+        final MockSlingHttpServletRequest refusing = newRequest(params, "json");
+        refusing.addHeader("Accept-Encoding", "gzip;q=0");
+        assertNull(doGet(refusing).getHeader("Content-Encoding"));
+    }
+
+    @Test
+    @DisplayName("Verify small responses are not compressed and the level and threshold are configurable")
+    void verifyGzipThresholdAndLevel() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("title", "Parasite");
+        final MockSlingHttpServletRequest accepting = newRequest(params, "json");
+        accepting.addHeader("Accept-Encoding", "gzip");
+        final MockSlingHttpServletResponse small = doGet(accepting);
+        assertNull(small.getHeader("Content-Encoding"));
+        final MockSlingHttpServletResponse plain = doGet(params, null);
+        assertEquals(plain.getOutputAsString(), small.getOutputAsString());
+        assertEquals(plain.getHeader("ETag"), small.getHeader("ETag"));
+
+        underTest = context.registerInjectActivateService(new OscarFilmContainerServlet(), "gzip.min.bytes", 0);
+        assertEquals("gzip", doGet(accepting).getHeader("Content-Encoding"));
+
+        underTest = context.registerInjectActivateService(new OscarFilmContainerServlet(), "gzip.level", 0);
+        final MockSlingHttpServletResponse disabled = doGet(accepting);
+        assertNull(disabled.getHeader("Content-Encoding"));
+        assertEquals(small.getHeader("ETag"), disabled.getHeader("ETag"));
+    }
+
+    @Test
+    @DisplayName("Verify the ETag names the content coding actually applied to the body")
+    void verifyGzipEntityTagFollowsAppliedEncoding() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("title", "Parasite");
+        final MockSlingHttpServletRequest accepting = newRequest(params, "json");
+        accepting.addHeader("Accept-Encoding", "gzip");
+        final String plainTag = doGet(accepting).getHeader("ETag");
+
+        accepting.addHeader("If-None-Match", plainTag);
+        final MockSlingHttpServletResponse notModified = doGet(accepting);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, notModified.getStatus());
+        assertEquals(plainTag, notModified.getHeader("ETag"));
+
+        underTest = context.registerInjectActivateService(new OscarFilmContainerServlet(), "gzip.min.bytes", 0);
+        final MockSlingHttpServletRequest compressing = newRequest(params, "json");
+        compressing.addHeader("Accept-Encoding", "gzip");
+        final MockSlingHttpServletResponse compressed = doGet(compressing);
+        assertEquals("gzip", compressed.getHeader("Content-Encoding"));
+        assertNotEquals(plainTag, compressed.getHeader("ETag"));
+    }
+
+    @Test
+    @DisplayName("Verify streamed ndjson is compressed on the fly")
+    void verifyGzipNdjson() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("minYear", "2000");
+        final MockSlingHttpServletRequest accepting = newRequest(params, "ndjson");
+        accepting.addHeader("Accept-Encoding", "gzip");
+        final MockSlingHttpServletResponse compressed = doGet(accepting);
+
+        assertEquals("gzip", compressed.getHeader("Content-Encoding"));
+        assertEquals(doGet(params, null, "ndjson").getOutputAsString(), gunzip(compressed.getOutput()));
+    }
+
+    @Test
+    @DisplayName("Verify Bad Request when the cursor is invalid or of another sort order")
+    void verifyBadRequestWhenInvalidCursorIsProvided() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("sortBy", "year");
+        params.put("limit", "2");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        final String nextCursor = new JSONObject(response.getOutputAsString()).getString("nextCursor");
+
+        params.put("sortBy", "title");
+        params.put("cursor", nextCursor);
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, doGet(params, null).getStatus());
+        params.put("cursor", "%%%");
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, doGet(params, null).getStatus());
+    }
+
+    @Test
+    @DisplayName("Verify the response has an ETag of container and query and a Cache-Control header")
+    void verifyCachingHeaders() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("year", "2019");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        final String entityTag = response.getHeader("ETag");
+        assertThat(entityTag, startsWith("\""));
+        assertEquals("public, max-age=60", response.getHeader("Cache-Control"));
+
+        params.put("year", "2018");
+        final MockSlingHttpServletResponse otherResponse = doGet(params, null);
+        assertNotEquals(entityTag, otherResponse.getHeader("ETag"));
+    }
+
+    @Test
+    @DisplayName("Verify queries with colliding hash codes have different ETags")
+    void verifyCollidingQueriesHaveDifferentEntityTags() throws IOException {
+        assertEquals(FilmQuery.parse(Collections.singletonMap("title", "aan")::get).hashCode(),
+                FilmQuery.parse(Collections.singletonMap("title", "ac0")::get).hashCode());
+        final String entityTag = doGet(Collections.singletonMap("title", "aan"), null).getHeader("ETag");
+        final MockSlingHttpServletResponse other = doGet(Collections.singletonMap("title", "ac0"), entityTag);
+        assertEquals(HttpServletResponse.SC_OK, other.getStatus());
+        assertNotEquals(entityTag, other.getHeader("ETag"));
+    }
+
+    @Test
+    @DisplayName("Verify Not Modified for a matching If-None-Match without running the query")
+    void verifyNotModifiedWhenEntityTagMatches() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("year", "2019");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        final String entityTag = response.getHeader("ETag");
+        final FilmResultCache resultCache = context.getService(FilmResultCache.class);
+        final long executed = resultCache.getMissCount() + resultCache.getHitCount();
+
+        params.put("year", " 2019");
+        final MockSlingHttpServletResponse notModified = doGet(params, "\"other\", " + entityTag);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, notModified.getStatus());
+        assertEquals(entityTag, notModified.getHeader("ETag"));
+        assertEquals(0, notModified.getOutput().length);
+        assertEquals(executed, resultCache.getMissCount() + resultCache.getHitCount());
+    }
+
+    @Test
+    @DisplayName("Verify a change below the container changes the ETag")
+    void verifyChangedContainerChangesEntityTag() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        final String entityTag = response.getHeader("ETag");
+
+        context.getService(FilmCatalogService.class).invalidate("/content/oscars");
+        final MockSlingHttpServletResponse changed = doGet(params, entityTag);
+        assertEquals(HttpServletResponse.SC_OK, changed.getStatus());
+        assertNotEquals(entityTag, changed.getHeader("ETag"));
+    }
+
+    @Test
+    @DisplayName("Verify changed content is delivered to the registered listeners and changes the ETag")
+    void verifyContentChangeChangesEntityTag() throws IOException, InvalidSyntaxException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("year", "1964");
+        final MockSlingHttpServletResponse response = doGet(params, null);
+        final String entityTag = response.getHeader("ETag");
+
+        final Resource film = context.resourceResolver().getResource("/content/oscars/0");
+        film.adaptTo(ModifiableValueMap.class).put("numberOfReferences", 900);
+        context.resourceResolver().commit();
+        assertEquals(2, ResourceChanges.dispatch(context.bundleContext(),
+                new ResourceChange(ChangeType.CHANGED, film.getPath(), false)));
+
+        final MockSlingHttpServletResponse changed = doGet(params, entityTag);
+        assertEquals(HttpServletResponse.SC_OK, changed.getStatus());
+        assertNotEquals(entityTag, changed.getHeader("ETag"));
+        assertThat(changed.getOutputAsString(), containsString("\"numberOfReferences\":900"));
+    }
+
+    @Test
+    @DisplayName("Verify Bad Request when a numeric request parameter is invalid")
+    void verifyBadRequestWhenInvalidNumberIsProvided() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("minYear", "twenty");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+    }
+
+    private MockSlingHttpServletResponse doGet(final Map<String, Object> params, final String ifNoneMatch) throws IOException {
+        return doGet(params, ifNoneMatch, "json");
+    }
+
+    private MockSlingHttpServletResponse doGet(final Map<String, Object> params, final String ifNoneMatch,
+                                               final String extension) throws IOException {
+        final MockSlingHttpServletRequest otherRequest = newRequest(params, extension);
+        if (ifNoneMatch != null) {
+            otherRequest.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return doGet(otherRequest);
+    }
+
+    private MockSlingHttpServletResponse doGet(final MockSlingHttpServletRequest otherRequest) throws IOException {
+        final MockSlingHttpServletResponse otherResponse = new MockSlingHttpServletResponse();
+        underTest.doGet(otherRequest, otherResponse);
+        return otherResponse;
+    }
+
+    private static String gunzip(final byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private MockSlingHttpServletRequest newRequest(final Map<String, Object> params, final String extension) {
+        final MockSlingHttpServletRequest otherRequest =
+                new MockSlingHttpServletRequest(context.resourceResolver(), context.bundleContext());
+        otherRequest.setResource(context.currentResource());
+        ((MockRequestPathInfo) otherRequest.getRequestPathInfo()).setExtension(extension);
+        otherRequest.setParameterMap(params);
+        return otherRequest;
+    }
+}
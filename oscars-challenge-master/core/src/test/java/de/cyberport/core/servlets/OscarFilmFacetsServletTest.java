@@ -0,0 +1,159 @@
+package de.cyberport.core.servlets;
+
+import de.cyberport.core.services.impl.FilmCatalogServiceImpl;
+import de.cyberport.core.services.impl.FilmResultCacheImpl;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.skyscreamer.jsonassert.JSONCompareMode;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author ritendra_singh
+ */
+@ExtendWith(AemContextExtension.class)
+class OscarFilmFacetsServletTest {
+
+    private OscarFilmFacetsServlet underTest;
+
+    private OscarFilmContainerServlet containerServlet;
+
+    private AemContext context = new AemContext();
+
+    @BeforeEach
+    public void setUp() {
+        context.load().json("/oscars.json", "/content/oscars");
+        context.currentResource("/content/oscars");
+        context.registerInjectActivateService(new FilmCatalogServiceImpl());
+        context.registerInjectActivateService(new FilmResultCacheImpl());
+        containerServlet = context.registerInjectActivateService(new OscarFilmContainerServlet());
+        underTest = context.registerInjectActivateService(new OscarFilmFacetsServlet());
+    }
+
+    @Test
+    @DisplayName("Verify the facets count the films returned by the container servlet for the same filters")
+    void verifyFacetsMatchResult() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        verifyFacets(params);
+        params.put("minYear", "1990");
+        params.put("isBestPicture", "false");
+        verifyFacets(params);
+        params.put("maxAwards", "0");
+        params.put("sortBy", "-year");
+        params.put("limit", "2");
+        verifyFacets(params);
+    }
+
+    @Test
+    @DisplayName("Verify Bad Request for invalid filters")
+    void verifyBadRequest() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("minYear", "twenty");
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, doGet(params, null).getStatus());
+    }
+
+    @Test
+    @DisplayName("Verify sort, limit, cursor and fields are neither validated nor part of the ETag")
+    void verifyNonFilterParametersAreIgnored() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("year", "2019");
+        final MockSlingHttpServletResponse response = doGet(params, null);
+        final String entityTag = response.getHeader("ETag");
+        assertEquals("public, max-age=60", response.getHeader("Cache-Control"));
+        assertNull(response.getHeader("Vary"));
+
+        params.put("sortBy", "-awards");
+        params.put("limit", "3");
+        assertEquals(entityTag, doGet(params, null).getHeader("ETag"));
+        params.put("sortBy", "unknown");
+        params.put("limit", "many");
+        params.put("cursor", "not-a-cursor");
+        params.put("fields", "budget");
+        final MockSlingHttpServletResponse ignored = doGet(params, null);
+        assertEquals(HttpServletResponse.SC_OK, ignored.getStatus());
+        assertEquals(entityTag, ignored.getHeader("ETag"));
+        assertEquals(response.getOutputAsString(), ignored.getOutputAsString());
+    }
+
+    @Test
+    @DisplayName("Verify repeated facets are answered with 304 Not Modified")
+    void verifyNotModified() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("year", "2019");
+        final String entityTag = doGet(params, null).getHeader("ETag");
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, doGet(params, entityTag).getStatus());
+    }
+
+    private void verifyFacets(final Map<String, Object> params) throws IOException, JSONException {
+        final MockSlingHttpServletResponse response = doGet(params, null);
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        final JSONObject facets = new JSONObject(response.getOutputAsString());
+
+        final Map<String, Object> filters = new HashMap<>(params);
+        filters.remove("sortBy");
+        filters.remove("limit");
+        final MockSlingHttpServletResponse single = new MockSlingHttpServletResponse();
+        containerServlet.doGet(newRequest(filters), single);
+        final JSONArray films = new JSONObject(single.getOutputAsString()).getJSONArray("result");
+
+        final JSONObject expected = new JSONObject();
+        long sum = 0;
+        for (int i = 0; i < films.length(); i++) {
+            final JSONObject film = films.getJSONObject(i);
+            for (String name : new String[] {"year", "awards", "nominations", "isBestPicture"}) {
+                final JSONObject counts = expected.has(name) ? expected.getJSONObject(name) : new JSONObject();
+                final String value = String.valueOf(film.get(name));
+                counts.put(value, counts.optInt(value) + 1);
+                expected.put(name, counts);
+            }
+            sum += film.getLong("numberOfReferences");
+        }
+
+        assertEquals(films.length(), facets.getInt("count"), params.toString());
+        for (String name : new String[] {"year", "awards", "nominations"}) {
+            final JSONObject counts = facets.getJSONObject("facets").getJSONObject(name);
+            JSONAssert.assertEquals(expected.getJSONObject(name), counts, JSONCompareMode.STRICT);
+        }
+        final JSONObject bestPictures = facets.getJSONObject("facets").getJSONObject("isBestPicture");
+        assertEquals(expected.getJSONObject("isBestPicture").optInt("true"), bestPictures.getInt("true"));
+        assertEquals(expected.getJSONObject("isBestPicture").optInt("false"), bestPictures.getInt("false"));
+        assertEquals(sum, facets.getJSONObject("numberOfReferences").getLong("sum"));
+        assertEquals((double) sum / films.length(),
+                facets.getJSONObject("numberOfReferences").getDouble("average"), 1e-9);
+    }
+
+    private MockSlingHttpServletResponse doGet(final Map<String, Object> params, final String ifNoneMatch)
+            throws IOException {
+        final MockSlingHttpServletRequest request = newRequest(params);
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        final MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+        underTest.doGet(request, response);
+        return response;
+    }
+
+    private MockSlingHttpServletRequest newRequest(final Map<String, Object> params) {
+        final MockSlingHttpServletRequest request =
+                new MockSlingHttpServletRequest(context.resourceResolver(), context.bundleContext());
+        request.setResource(context.currentResource());
+        request.setParameterMap(params);
+        return request;
+    }
+}
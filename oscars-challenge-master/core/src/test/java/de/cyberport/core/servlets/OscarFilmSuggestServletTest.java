@@ -0,0 +1,138 @@
+package de.cyberport.core.servlets;
+
+import de.cyberport.core.services.impl.FilmCatalogServiceImpl;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.json.JSONException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.skyscreamer.jsonassert.JSONCompareMode;
+import org.skyscreamer.jsonassert.comparator.ArraySizeComparator;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author ritendra_singh
+ */
+@ExtendWith(AemContextExtension.class)
+class OscarFilmSuggestServletTest {
+
+    private OscarFilmSuggestServlet underTest;
+
+    private AemContext context = new AemContext();
+
+    private MockSlingHttpServletRequest request = context.request();
+    private MockSlingHttpServletResponse response = context.response();
+
+    @BeforeEach
+    public void setUp() {
+        context.load().json("/oscars.json", "/content/oscars");
+        context.currentResource("/content/oscars");
+        request.setResource(context.currentResource());
+        context.requestPathInfo().setSelectorString("suggest");
+        context.requestPathInfo().setExtension("json");
+        context.registerInjectActivateService(new FilmCatalogServiceImpl());
+        underTest = context.registerInjectActivateService(new OscarFilmSuggestServlet());
+    }
+
+    @Test
+    @DisplayName("Verify suggestions for a prefix are ranked by references")
+    void verifySuggestionsForPrefix() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("q", "the godf");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        JSONAssert.assertEquals(
+                "{result:[{title:\"The Godfather\",year:\"1972\",numberOfReferences:7867},"
+                        + "{title:\"The Godfather Part II\",year:\"1974\",numberOfReferences:6797}]}",
+                response.getOutputAsString(),
+                JSONCompareMode.STRICT);
+    }
+
+    @Test
+    @DisplayName("Verify fuzzy suggestions tolerate typos")
+    void verifyFuzzySuggestions() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("q", "Spidr-Man");
+        params.put("fuzzy", "true");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        JSONAssert.assertEquals(
+                "{result:[{title:\"Spider-Man: Into the Spider-Verse\"},{title:\"Spider-Man 2\"}]}",
+                response.getOutputAsString(),
+                JSONCompareMode.STRICT_ORDER);
+    }
+
+    @Test
+    @DisplayName("Verify the default and the maximum amount of suggestions")
+    void verifySuggestionLimits() throws IOException, JSONException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("q", "the");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        JSONAssert.assertEquals("{result:[10]}", response.getOutputAsString(),
+                new ArraySizeComparator(JSONCompareMode.LENIENT));
+
+        MockSlingHttpServletResponse limitedResponse = new MockSlingHttpServletResponse();
+        params.put("limit", "500");
+        request.setParameterMap(params);
+        underTest.doGet(request, limitedResponse);
+        JSONAssert.assertEquals("{result:[50]}", limitedResponse.getOutputAsString(),
+                new ArraySizeComparator(JSONCompareMode.LENIENT));
+    }
+
+    @Test
+    @DisplayName("Verify a missing prefix returns an empty array")
+    void verifyMissingPrefix() throws IOException, JSONException {
+        request.setParameterMap(new HashMap<>());
+        underTest.doGet(request, response);
+        JSONAssert.assertEquals("{result:[]}", response.getOutputAsString(), JSONCompareMode.STRICT);
+    }
+
+    @Test
+    @DisplayName("Verify titles outside of Latin-1 are written as UTF-8")
+    void verifyUtf8Titles() throws IOException, JSONException {
+        final Map<String, Object> film = new HashMap<>();
+        film.put("title", "千と千尋の神隠し");
+        film.put("year", 2001);
+        film.put("awards", 1);
+        film.put("nominations", 1);
+        film.put("isBestPicture", false);
+        film.put("numberOfReferences", 4200);
+        film.put("sling:resourceType", "test/filmEntry");
+        context.create().resource("/content/oscars/spiritedAway", film);
+        context.resourceResolver().commit();
+
+        final Map<String, Object> params = new HashMap<>();
+        params.put("q", "千と");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        assertEquals("UTF-8", response.getCharacterEncoding());
+        JSONAssert.assertEquals(
+                "{result:[{title:\"千と千尋の神隠し\",year:\"2001\",numberOfReferences:4200}]}",
+                new String(response.getOutput(), StandardCharsets.UTF_8),
+                JSONCompareMode.STRICT);
+    }
+
+    @Test
+    @DisplayName("Verify an invalid limit is rejected")
+    void verifyInvalidLimit() throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("q", "the");
+        params.put("limit", "ten");
+        request.setParameterMap(params);
+        underTest.doGet(request, response);
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+    }
+}
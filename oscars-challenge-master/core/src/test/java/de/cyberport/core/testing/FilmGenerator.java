@@ -0,0 +1,301 @@
+package de.cyberport.core.testing;
+
+import de.cyberport.core.models.Film;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Generates any number of synthetic {@code test/filmEntry} nodes for scale and load tests.
+ *
+ * The distributions are taken from oscars.json: every generated film copies year, awards,
+ * nominations and the best picture flag of a random real film, so their joint distribution
+ * is kept, and varies its references by up to 50%. Titles are built from the words of the
+ * real titles with the real number of words.
+ *
+ * Film {@code n} only depends on the seed and on {@code n}, so the same film can be generated
+ * again at any time, e.g. to verify a result, without keeping millions of films in memory.
+ *
+ * Besides the flat container of oscars.json, the films can be stored in nested layouts.
+ * Usage from the command line (test classpath): {@code FilmGenerator <count> [layout] [file]}
+ *
+ * @author ritendra_singh
+ */
+public final class FilmGenerator {
+
+    public static final String CONTAINER_RESOURCE_TYPE = "test/filmEntryContainer";
+    public static final String FILM_RESOURCE_TYPE = "test/filmEntry";
+
+    private static final String PRIMARY_TYPE = "jcr:primaryType";
+    private static final String RESOURCE_TYPE = "sling:resourceType";
+    private static final String UNSTRUCTURED = "nt:unstructured";
+    private static final int COMMIT_INTERVAL = 10_000;
+
+    /**
+     * Repository structure below the container, each film node is named by its number
+     */
+    public enum Layout {
+        /** All films directly below the container, like oscars.json */
+        FLAT {
+            @Override
+            String parentPath(final int index, final Film film) {
+                return "";
+            }
+        },
+        /** One node per year, e.g. 1994/42 */
+        YEAR {
+            @Override
+            String parentPath(final int index, final Film film) {
+                return String.valueOf(film.getYear());
+            }
+        },
+        /** One node per decade and year, e.g. 1990s/1994/42 */
+        DECADE_YEAR {
+            @Override
+            String parentPath(final int index, final Film film) {
+                return film.getYear() / 10 * 10 + "s/" + film.getYear();
+            }
+        },
+        /** 256 buckets by number, independent of the film values, e.g. 2a/42 */
+        BUCKETS {
+            @Override
+            String parentPath(final int index, final Film film) {
+                return String.format("%02x", index & 0xFF);
+            }
+        };
+
+        /**
+         * @param index number of the film
+         * @param film generated film
+         * @return path of the parent node relative to the container, empty for direct children
+         */
+        abstract String parentPath(int index, Film film);
+    }
+
+    private final long seed;
+    private final int[] years;
+    private final int[] awards;
+    private final int[] nominations;
+    private final boolean[] bestPictures;
+    private final int[] references;
+    private final String[] words;
+    private final int[] wordCounts;
+
+    private FilmGenerator(final long seed, final List<Film> prototypes) {
+        this.seed = seed;
+        this.years = new int[prototypes.size()];
+        this.awards = new int[prototypes.size()];
+        this.nominations = new int[prototypes.size()];
+        this.bestPictures = new boolean[prototypes.size()];
+        this.references = new int[prototypes.size()];
+        this.wordCounts = new int[prototypes.size()];
+        final List<String> vocabulary = new ArrayList<>();
+        for (int i = 0; i < prototypes.size(); i++) {
+            final Film film = prototypes.get(i);
+            years[i] = film.getYear();
+            awards[i] = film.getAwards();
+            nominations[i] = film.getNominations();
+            bestPictures[i] = film.getIsBestPicture();
+            references[i] = film.getNumberOfReferences();
+            final String[] titleWords = film.getTitle().trim().split("\\s+");
+            wordCounts[i] = titleWords.length;
+            for (String word : titleWords) {
+                vocabulary.add(word);
+            }
+        }
+        this.words = vocabulary.toArray(new String[0]);
+    }
+
+    /**
+     * Generator with the distributions of oscars.json on the classpath
+     * @param seed seed of the generated values
+     * @return generator
+     */
+    public static FilmGenerator fromOscars(final long seed) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                FilmGenerator.class.getResourceAsStream("/oscars.json"), StandardCharsets.UTF_8))) {
+            final JSONObject container = new JSONObject(in.lines().collect(Collectors.joining("\n")));
+            final List<Film> prototypes = new ArrayList<>();
+            for (Iterator<?> names = container.keys(); names.hasNext();) {
+                final Object child = container.get((String) names.next());
+                if (child instanceof JSONObject && ((JSONObject) child).has("title")) {
+                    final JSONObject film = (JSONObject) child;
+                    prototypes.add(new Film(film.getString("title"), film.getInt("year"), film.getInt("awards"),
+                            film.getInt("nominations"), film.getBoolean("isBestPicture"),
+                            film.getInt("numberOfReferences")));
+                }
+            }
+            return new FilmGenerator(seed, prototypes);
+        } catch (IOException | JSONException e) {
+            throw new IllegalStateException("Cannot read oscars.json", e);
+        }
+    }
+
+    /**
+     * @param index number of the film
+     * @return the film with the given number, always the same one for the same seed
+     */
+    public Film film(final int index) {
+        final SplittableRandom random = new SplittableRandom(seed ^ index * 0x9E3779B97F4A7C15L);
+        final int prototype = random.nextInt(years.length);
+        final int wordCount = wordCounts[random.nextInt(wordCounts.length)];
+        final StringBuilder title = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(words[random.nextInt(words.length)]);
+        }
+        final int numberOfReferences = (int) Math.max(1, Math.round(references[prototype] * (0.5 + random.nextDouble())));
+        return new Film(title.toString(), years[prototype], awards[prototype], nominations[prototype],
+                bestPictures[prototype], numberOfReferences);
+    }
+
+    /**
+     * Creates the container and the given number of films below it, committing in batches.
+     * @param resolver resolver to write with, e.g. of an AemContext
+     * @param containerPath path of the film container
+     * @param count number of films
+     * @param layout structure below the container
+     * @return container resource
+     * @throws PersistenceException if the nodes cannot be created
+     */
+    public Resource load(final ResourceResolver resolver, final String containerPath, final int count,
+                         final Layout layout) throws PersistenceException {
+        final Map<String, Object> containerProperties = new HashMap<>();
+        containerProperties.put(PRIMARY_TYPE, UNSTRUCTURED);
+        containerProperties.put(RESOURCE_TYPE, CONTAINER_RESOURCE_TYPE);
+        final Resource container = ResourceUtil.getOrCreateResource(resolver, containerPath,
+                containerProperties, UNSTRUCTURED, false);
+
+        final Map<String, Resource> parents = new HashMap<>();
+        parents.put("", container);
+        for (int i = 0; i < count; i++) {
+            final Film film = film(i);
+            final Resource parent = parent(resolver, parents, layout.parentPath(i, film));
+            resolver.create(parent, String.valueOf(i), properties(film));
+            if ((i + 1) % COMMIT_INTERVAL == 0) {
+                resolver.commit();
+            }
+        }
+        resolver.commit();
+        return container;
+    }
+
+    /**
+     * Writes the container with the given number of films as json, in the format of oscars.json
+     * @param out target, not closed
+     * @param count number of films
+     * @param layout structure below the container
+     * @throws IOException if writing fails
+     */
+    public void writeJson(final Writer out, final int count, final Layout layout) throws IOException {
+        final JsonNode root = new JsonNode();
+        for (int i = 0; i < count; i++) {
+            final String parentPath = layout.parentPath(i, film(i));
+            JsonNode node = root;
+            if (!parentPath.isEmpty()) {
+                for (String name : parentPath.split("/")) {
+                    node = node.children.computeIfAbsent(name, key -> new JsonNode());
+                }
+            }
+            node.films.add(i);
+        }
+        write(out, root, true);
+        out.flush();
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: FilmGenerator <count> [FLAT|YEAR|DECADE_YEAR|BUCKETS] [file]");
+            return;
+        }
+        final int count = Integer.parseInt(args[0]);
+        final Layout layout = args.length > 1 ? Layout.valueOf(args[1]) : Layout.FLAT;
+        final FilmGenerator generator = fromOscars(0);
+        try (Writer out = args.length > 2
+                ? Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            generator.writeJson(out, count, layout);
+        }
+    }
+
+    private Resource parent(final ResourceResolver resolver, final Map<String, Resource> parents,
+                            final String path) throws PersistenceException {
+        Resource parent = parents.get(path);
+        if (parent == null) {
+            final int separator = path.lastIndexOf('/');
+            final Resource grandParent = parent(resolver, parents, separator < 0 ? "" : path.substring(0, separator));
+            final Map<String, Object> properties = new HashMap<>();
+            properties.put(PRIMARY_TYPE, UNSTRUCTURED);
+            parent = resolver.create(grandParent, path.substring(separator + 1), properties);
+            parents.put(path, parent);
+        }
+        return parent;
+    }
+
+    private static Map<String, Object> properties(final Film film) {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("title", film.getTitle());
+        properties.put("year", film.getYear());
+        properties.put("awards", film.getAwards());
+        properties.put("nominations", film.getNominations());
+        properties.put("isBestPicture", film.getIsBestPicture());
+        properties.put("numberOfReferences", film.getNumberOfReferences());
+        properties.put(PRIMARY_TYPE, UNSTRUCTURED);
+        properties.put(RESOURCE_TYPE, FILM_RESOURCE_TYPE);
+        return properties;
+    }
+
+    private void write(final Writer out, final JsonNode node, final boolean container) throws IOException {
+        out.write("{\n  \"" + PRIMARY_TYPE + "\": \"" + UNSTRUCTURED + "\"");
+        if (container) {
+            out.write(",\n  \"" + RESOURCE_TYPE + "\": \"" + CONTAINER_RESOURCE_TYPE + "\"");
+        }
+        for (int index : node.films) {
+            final Film film = film(index);
+            out.write(",\n  \"" + index + "\": {\"title\": " + JSONObject.quote(film.getTitle())
+                    + ", \"year\": " + film.getYear()
+                    + ", \"awards\": " + film.getAwards()
+                    + ", \"nominations\": " + film.getNominations()
+                    + ", \"isBestPicture\": " + film.getIsBestPicture()
+                    + ", \"numberOfReferences\": " + film.getNumberOfReferences()
+                    + ", \"" + PRIMARY_TYPE + "\": \"" + UNSTRUCTURED + "\""
+                    + ", \"" + RESOURCE_TYPE + "\": \"" + FILM_RESOURCE_TYPE + "\"}");
+        }
+        for (Map.Entry<String, JsonNode> child : node.children.entrySet()) {
+            out.write(",\n  \"" + child.getKey() + "\": ");
+            write(out, child.getValue(), false);
+        }
+        out.write("\n}");
+    }
+
+    /**
+     * Node of the nested layout, holding the numbers of its films
+     */
+    private static final class JsonNode {
+        private final Map<String, JsonNode> children = new TreeMap<>();
+        private final List<Integer> films = new ArrayList<>();
+    }
+}
@@ -0,0 +1,113 @@
+package de.cyberport.core.testing;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.models.Film;
+import de.cyberport.core.services.impl.FilmCatalogServiceImpl;
+import de.cyberport.core.testing.FilmGenerator.Layout;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+@ExtendWith(AemContextExtension.class)
+class FilmGeneratorTest {
+
+    private static final String CONTAINER_PATH = "/content/films";
+
+    private final AemContext context = new AemContext();
+
+    private final FilmGenerator underTest = FilmGenerator.fromOscars(42);
+
+    @Test
+    @DisplayName("Verify the same seed and number always generate the same film")
+    void verifyFilmsAreDeterministic() {
+        FilmGenerator other = FilmGenerator.fromOscars(42);
+        for (int i = 0; i < 100; i++) {
+            assertSameFilm(underTest.film(i), other.film(i));
+        }
+        assertNotEquals(underTest.film(0).getTitle(), FilmGenerator.fromOscars(43).film(0).getTitle());
+    }
+
+    @Test
+    @DisplayName("Verify generated values follow the ranges of oscars.json")
+    void verifyDistributions() {
+        int bestPictures = 0;
+        for (int i = 0; i < 10_000; i++) {
+            Film film = underTest.film(i);
+            assertFalse(film.getTitle().isEmpty());
+            assertTrue(film.getYear() >= 1927 && film.getYear() <= 2019);
+            assertTrue(film.getNumberOfReferences() > 0);
+            if (film.getIsBestPicture()) {
+                bestPictures++;
+            }
+        }
+        // 92 of the 1316 real films won best picture
+        assertTrue(bestPictures > 500 && bestPictures < 900, "best pictures: " + bestPictures);
+    }
+
+    @Test
+    @DisplayName("Verify a generated flat container is loaded as catalog")
+    void verifyFlatContainerLoadsIntoCatalog() throws PersistenceException {
+        Resource container = underTest.load(context.resourceResolver(), CONTAINER_PATH, 10_000, Layout.FLAT);
+        FilmCatalog catalog = context.registerInjectActivateService(new FilmCatalogServiceImpl()).getCatalog(container);
+        assertEquals(10_000, catalog.size());
+        assertEquals(FilmGenerator.CONTAINER_RESOURCE_TYPE, container.getResourceType());
+    }
+
+    @Test
+    @DisplayName("Verify nested layouts store every film below its decade and year")
+    void verifyNestedLayout() throws PersistenceException {
+        underTest.load(context.resourceResolver(), CONTAINER_PATH, 1000, Layout.DECADE_YEAR);
+        Film film = underTest.film(7);
+        String path = CONTAINER_PATH + "/" + film.getYear() / 10 * 10 + "s/" + film.getYear() + "/7";
+        Resource resource = context.resourceResolver().getResource(path);
+        assertNotNull(resource, path);
+        assertEquals(FilmGenerator.FILM_RESOURCE_TYPE, resource.getResourceType());
+        assertEquals(film.getTitle(), resource.getValueMap().get("title", String.class));
+    }
+
+    @Test
+    @DisplayName("Verify the json output can be loaded like oscars.json")
+    void verifyJsonLoadsIntoContext() throws IOException {
+        StringWriter json = new StringWriter();
+        underTest.writeJson(json, 500, Layout.BUCKETS);
+        context.load().json(new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)), CONTAINER_PATH);
+
+        Film film = underTest.film(300);
+        ValueMap properties = context.resourceResolver()
+                .getResource(CONTAINER_PATH + "/2c/300").getValueMap();
+        assertEquals(film.getTitle(), properties.get("title", String.class));
+        assertEquals(film.getYear(), properties.get("year", Integer.class));
+        assertEquals(film.getAwards(), properties.get("awards", Integer.class));
+        assertEquals(film.getNominations(), properties.get("nominations", Integer.class));
+        assertEquals(film.getIsBestPicture(), properties.get("isBestPicture", Boolean.class));
+        assertEquals(film.getNumberOfReferences(), properties.get("numberOfReferences", Integer.class));
+    }
+
+    private static void assertSameFilm(final Film expected, final Film actual) {
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getYear(), actual.getYear());
+        assertEquals(expected.getAwards(), actual.getAwards());
+        assertEquals(expected.getNominations(), actual.getNominations());
+        assertEquals(expected.getIsBestPicture(), actual.getIsBestPicture());
+        assertEquals(expected.getNumberOfReferences(), actual.getNumberOfReferences());
+    }
+}
@@ -0,0 +1,53 @@
+package de.cyberport.core.testing;
+
+import de.cyberport.core.utils.FilmPartitions;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rearranges the films of a flat container into decade and year partitions on the mocked
+ * resource resolver, which cannot move resources like {@link FilmPartitions#migrate} does in a
+ * repository. Films are recreated with their properties, node identity is irrelevant here.
+ *
+ * @author ritendra_singh
+ */
+public final class PartitionedContent {
+
+    private static final Map<String, Object> PARTITION_PROPERTIES =
+            Collections.singletonMap("jcr:primaryType", "nt:unstructured");
+
+    private PartitionedContent() {
+    }
+
+    /**
+     * @param resolver mocked resource resolver
+     * @param container flat film container
+     * @throws PersistenceException if a film cannot be recreated
+     */
+    public static void partition(final ResourceResolver resolver, final Resource container)
+            throws PersistenceException {
+        final List<Resource> films = new ArrayList<>();
+        for (Resource child : container.getChildren()) {
+            if (FilmPartitions.isFilm(child)) {
+                films.add(child);
+            }
+        }
+        for (Resource film : films) {
+            final String yearPath = container.getPath() + "/"
+                    + FilmPartitions.partitionPath(film.getValueMap().get("year", 0));
+            final Resource partition = ResourceUtil.getOrCreateResource(resolver, yearPath,
+                    PARTITION_PROPERTIES, null, false);
+            resolver.create(partition, film.getName(), new HashMap<>(film.getValueMap()));
+            resolver.delete(film);
+        }
+        resolver.commit();
+    }
+}
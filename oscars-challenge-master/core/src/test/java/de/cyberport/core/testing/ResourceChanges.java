@@ -0,0 +1,69 @@
+package de.cyberport.core.testing;
+
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Delivers a resource change to the registered {@link ResourceChangeListener} services the way
+ * the observation of Sling selects them, since the mocked resource resolvers send no events:
+ * a listener only gets the change if its {@code resource.paths} cover the changed path and its
+ * {@code resource.change.types}, if any, include the type. A listener without paths gets nothing.
+ *
+ * @author ritendra_singh
+ */
+public final class ResourceChanges {
+
+    private ResourceChanges() {
+    }
+
+    /**
+     * @param bundleContext bundle context of the test, e.g. of an AemContext
+     * @param change change of a resource
+     * @return number of listeners the change was delivered to
+     * @throws InvalidSyntaxException never, no filter is used
+     */
+    public static int dispatch(final BundleContext bundleContext, final ResourceChange change)
+            throws InvalidSyntaxException {
+        final ServiceReference<?>[] references =
+                bundleContext.getServiceReferences(ResourceChangeListener.class.getName(), null);
+        if (references == null) {
+            return 0;
+        }
+        int delivered = 0;
+        for (ServiceReference<?> reference : references) {
+            final List<String> types = values(reference.getProperty(ResourceChangeListener.CHANGES));
+            if (!covers(values(reference.getProperty(ResourceChangeListener.PATHS)), change.getPath())
+                    || !types.isEmpty() && !types.contains(change.getType().name())) {
+                continue;
+            }
+            final ResourceChangeListener listener = (ResourceChangeListener) bundleContext.getService(reference);
+            listener.onChange(Collections.singletonList(change));
+            delivered++;
+        }
+        return delivered;
+    }
+
+    private static boolean covers(final List<String> paths, final String path) {
+        for (String observed : paths) {
+            final String prefix = observed.endsWith("/") ? observed : observed + "/";
+            if (path.equals(observed) || path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> values(final Object property) {
+        if (property instanceof String[]) {
+            return Arrays.asList((String[]) property);
+        }
+        return property instanceof String ? Collections.singletonList((String) property) : Collections.emptyList();
+    }
+}
@@ -0,0 +1,25 @@
+package de.cyberport.core.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+class AcceptHeadersTest {
+
+    @Test
+    @DisplayName("Verify listed values match regardless of case and parameters, refused and missing ones do not")
+    void verifyLists() {
+        assertTrue(AcceptHeaders.lists("gzip", "gzip"));
+        assertTrue(AcceptHeaders.lists("deflate, GZIP;q=0.5", "gzip"));
+        assertTrue(AcceptHeaders.lists("application/x-oscars-films; q=1, application/json", "application/x-oscars-films"));
+        assertFalse(AcceptHeaders.lists("gzip;q=0", "gzip"));
+        assertFalse(AcceptHeaders.lists("gzip; q=0.0", "gzip"));
+        assertFalse(AcceptHeaders.lists("x-gzip, br", "gzip"));
+        assertFalse(AcceptHeaders.lists(null, "gzip"));
+    }
+}
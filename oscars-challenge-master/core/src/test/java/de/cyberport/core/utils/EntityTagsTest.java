@@ -0,0 +1,41 @@
+package de.cyberport.core.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+class EntityTagsTest {
+
+    @Test
+    @DisplayName("Verify If-None-Match lists, weak tags and the wildcard match the current tag")
+    void verifyMatches() {
+        String tag = EntityTags.strong("abc-1");
+        assertEquals("\"abc-1\"", tag);
+        assertTrue(EntityTags.matches("\"abc-1\"", tag));
+        assertTrue(EntityTags.matches("\"other\", W/\"abc-1\"", tag));
+        assertTrue(EntityTags.matches("*", tag));
+        assertFalse(EntityTags.matches("\"abc-2\"", tag));
+        assertFalse(EntityTags.matches("abc-1", tag));
+        assertFalse(EntityTags.matches(null, tag));
+    }
+
+    @Test
+    @DisplayName("Verify digests only depend on the parts and keep them apart")
+    void verifyDigest() {
+        String digest = EntityTags.digest("title=Parasite");
+        assertEquals(digest, EntityTags.digest("title=Parasite"));
+        assertEquals(22, digest.length());
+        assertTrue(digest.matches("[A-Za-z0-9_-]+"));
+        // Same 32 bit hash code, different queries
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertNotEquals(EntityTags.digest("Aa"), EntityTags.digest("BB"));
+        assertNotEquals(EntityTags.digest("ab", "c"), EntityTags.digest("a", "bc"));
+    }
+}
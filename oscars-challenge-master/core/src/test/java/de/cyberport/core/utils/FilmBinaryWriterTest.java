@@ -0,0 +1,117 @@
+package de.cyberport.core.utils;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmCatalogBuilder;
+import de.cyberport.core.catalog.FilmProjection;
+import de.cyberport.core.models.Film;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+class FilmBinaryWriterTest {
+
+    private final FilmCatalog catalog = FilmCatalog.builder()
+            .add("Parasite", 2019, 4, 6, true, 8855)
+            .add("Amélie", 2001, 0, 5, false, 1200)
+            .build();
+
+    @Test
+    @DisplayName("Verify all fields, the row order and the cursor are read back")
+    void verifyRoundTrip() throws IOException {
+        FilmBinaryReader.Result result = roundTrip(catalog, new int[] {1, 0}, FilmProjection.ALL, "WUVBUn4yMDE5");
+
+        assertEquals(2, result.size());
+        assertEquals("Amélie", result.getTitle(0));
+        assertEquals(2001, result.getYear(0));
+        assertEquals(0, result.getAwards(0));
+        assertEquals(5, result.getNominations(0));
+        assertFalse(result.isBestPicture(0));
+        assertEquals(1200, result.getNumberOfReferences(0));
+        assertEquals("Parasite", result.getTitle(1));
+        assertTrue(result.isBestPicture(1));
+        assertEquals(8855, result.getNumberOfReferences(1));
+        assertEquals("WUVBUn4yMDE5", result.getNextCursor());
+
+        List<Film> films = result.toFilms();
+        assertEquals("Parasite", films.get(1).getTitle());
+        assertEquals(6, films.get(1).getNominations());
+    }
+
+    @Test
+    @DisplayName("Verify only the projected fields are written")
+    void verifyProjection() throws IOException {
+        FilmBinaryReader.Result result = roundTrip(catalog, new int[] {0}, FilmProjection.parse("title,year"), null);
+
+        assertTrue(result.includes(FilmProjection.Field.YEAR));
+        assertFalse(result.includes(FilmProjection.Field.AWARDS));
+        assertEquals("Parasite", result.getTitle(0));
+        assertEquals(2019, result.getYear(0));
+        assertNull(result.getNextCursor());
+        assertThrows(IllegalStateException.class, () -> result.getAwards(0));
+        assertEquals(0, result.toFilms().get(0).getAwards());
+    }
+
+    @Test
+    @DisplayName("Verify results larger than the buffers, long titles and large numbers are read back")
+    void verifyLargeResult() throws IOException {
+        Random random = new Random(5);
+        char[] longTitle = new char[20000];
+        Arrays.fill(longTitle, 'é');
+        FilmCatalogBuilder builder = FilmCatalog.builder().add(new String(longTitle), 2020, 1, 1, true, Integer.MAX_VALUE);
+        for (int i = 0; i < 5000; i++) {
+            builder.add("Film " + i, 1927 + random.nextInt(93), random.nextInt(12), random.nextInt(15),
+                    random.nextBoolean(), random.nextInt(1 << 20));
+        }
+        FilmCatalog large = builder.build();
+        int[] rows = new int[large.size()];
+        Arrays.setAll(rows, row -> rows.length - 1 - row);
+
+        FilmBinaryReader.Result result = roundTrip(large, rows, FilmProjection.ALL, null);
+
+        assertEquals(rows.length, result.size());
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals(large.getTitle(rows[i]), result.getTitle(i));
+            assertEquals(large.getYear(rows[i]), result.getYear(i));
+            assertEquals(large.getAwards(rows[i]), result.getAwards(i));
+            assertEquals(large.getNominations(rows[i]), result.getNominations(i));
+            assertEquals(large.isBestPicture(rows[i]), result.isBestPicture(i));
+            assertEquals(large.getNumberOfReferences(rows[i]), result.getNumberOfReferences(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Verify other content and truncated results are rejected")
+    void verifyInvalidInputIsRejected() throws IOException {
+        assertThrows(IOException.class, () -> new FilmBinaryReader(
+                new ByteArrayInputStream("{\"result\":[]}".getBytes("UTF-8"))).read());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FilmBinaryWriter(out).writeResult(catalog, new int[] {0, 1}, FilmProjection.ALL, null);
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 3);
+        assertThrows(EOFException.class, () -> new FilmBinaryReader(new ByteArrayInputStream(truncated)).read());
+    }
+
+    private static FilmBinaryReader.Result roundTrip(final FilmCatalog catalog, final int[] rows,
+                                                     final FilmProjection projection, final String nextCursor)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FilmBinaryWriter(out).writeResult(catalog, rows, projection, nextCursor);
+        return new FilmBinaryReader(new ByteArrayInputStream(out.toByteArray())).read();
+    }
+}
@@ -0,0 +1,95 @@
+package de.cyberport.core.utils;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmFacets;
+import de.cyberport.core.catalog.FilmProjection;
+import de.cyberport.core.catalog.FilmQuery;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author ritendra_singh
+ */
+class FilmJsonWriterTest {
+
+    private final FilmCatalog catalog = FilmCatalog.builder()
+            .add("Parasite", 2019, 4, 6, true, 8855)
+            .add("Amélie", 2001, 0, 5, false, 1200)
+            .build();
+
+    @Test
+    @DisplayName("Verify the rows are written in the given order and documented schema")
+    void verifyDocumentedSchema() throws IOException {
+        assertEquals("{\"result\":["
+                + "{\"title\":\"Amélie\",\"year\":\"2001\",\"awards\":0,\"nominations\":5,"
+                + "\"isBestPicture\":false,\"numberOfReferences\":1200},"
+                + "{\"title\":\"Parasite\",\"year\":\"2019\",\"awards\":4,\"nominations\":6,"
+                + "\"isBestPicture\":true,\"numberOfReferences\":8855}]}", write(new int[] {1, 0}));
+    }
+
+    @Test
+    @DisplayName("Verify an empty result is written as empty array")
+    void verifyEmptyResult() throws IOException {
+        assertEquals("{\"result\":[]}", write(new int[0]));
+    }
+
+    @Test
+    @DisplayName("Verify the cursor of the next page follows the result")
+    void verifyNextCursor() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FilmJsonWriter(out).writeResult(catalog, new int[0], "WUVBUn4yMDE5");
+        assertEquals("{\"result\":[],\"nextCursor\":\"WUVBUn4yMDE5\"}",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Verify the rows are restricted to the projected fields")
+    void verifyProjection() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FilmJsonWriter(out).writeResult(catalog, new int[] {1, 0}, FilmProjection.parse("title,year"), null);
+        assertEquals("{\"result\":[{\"title\":\"Amélie\",\"year\":\"2001\"},"
+                + "{\"title\":\"Parasite\",\"year\":\"2019\"}]}", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Verify a batch response maps every key to its result object")
+    void verifyKeyedResults() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FilmJsonWriter writer = new FilmJsonWriter(out);
+        writer.beginResults();
+        writer.writeResult("latest", catalog, new int[] {0}, FilmProjection.parse("title"), "WUVBUn4yMDE5");
+        writer.writeResult("none", catalog, new int[0], FilmProjection.ALL, null);
+        writer.endResults();
+        assertEquals("{\"results\":{\"latest\":{\"result\":[{\"title\":\"Parasite\"}],\"nextCursor\":\"WUVBUn4yMDE5\"},"
+                + "\"none\":{\"result\":[]}}}", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Verify the facets are written in the documented schema")
+    void verifyFacets() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FilmJsonWriter(out).writeFacets(FilmFacets.compute(catalog, FilmQuery.parse(name -> null)));
+        assertEquals("{\"count\":2,\"facets\":{\"year\":{\"2001\":1,\"2019\":1},\"awards\":{\"0\":1,\"4\":1},"
+                + "\"nominations\":{\"5\":1,\"6\":1},\"isBestPicture\":{\"true\":1,\"false\":1}},"
+                + "\"numberOfReferences\":{\"sum\":10055,\"average\":5027.5}}",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        out.reset();
+        new FilmJsonWriter(out).writeFacets(FilmFacets.compute(catalog, FilmQuery.parse(name -> "year".equals(name) ? "1900" : null)));
+        assertEquals("{\"count\":0,\"facets\":{\"year\":{},\"awards\":{},\"nominations\":{},"
+                + "\"isBestPicture\":{\"true\":0,\"false\":0}},\"numberOfReferences\":{\"sum\":0,\"average\":null}}",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private String write(final int[] rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FilmJsonWriter(out).writeResult(catalog, rows);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,89 @@
+package de.cyberport.core.utils;
+
+import de.cyberport.core.catalog.FilmCatalog;
+import de.cyberport.core.catalog.FilmCatalogBuilder;
+import de.cyberport.core.catalog.FilmQuery;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author ritendra_singh
+ */
+class FilmNdjsonWriterTest {
+
+    private final FilmCatalog catalog = FilmCatalog.builder()
+            .add("Parasite", 2019, 4, 6, true, 8855)
+            .add("Amélie", 2001, 0, 5, false, 1200)
+            .add("Wings", 1927, 2, 2, true, 17)
+            .build();
+
+    @Test
+    @DisplayName("Verify every film of the result is written on its own line, in result order")
+    void verifyOneFilmPerLine() throws IOException {
+        assertEquals("{\"title\":\"Amélie\",\"year\":\"2001\",\"awards\":0,\"nominations\":5,"
+                + "\"isBestPicture\":false,\"numberOfReferences\":1200}\n"
+                + "{\"title\":\"Parasite\",\"year\":\"2019\",\"awards\":4,\"nominations\":6,"
+                + "\"isBestPicture\":true,\"numberOfReferences\":8855}\n", write(catalog, "minYear", "2000"));
+    }
+
+    @Test
+    @DisplayName("Verify the lines are restricted to the projected fields and sorted as requested")
+    void verifyProjectionAndSort() throws IOException {
+        assertEquals("{\"title\":\"Wings\",\"year\":\"1927\"}\n"
+                        + "{\"title\":\"Amélie\",\"year\":\"2001\"}\n"
+                        + "{\"title\":\"Parasite\",\"year\":\"2019\"}\n",
+                write(catalog, "sortBy", "year", "fields", "title,year"));
+    }
+
+    @Test
+    @DisplayName("Verify an empty result writes nothing")
+    void verifyEmptyResult() throws IOException {
+        assertEquals("", write(catalog, "title", "nonExisting"));
+    }
+
+    @Test
+    @DisplayName("Verify the stream is flushed after every chunk of rows")
+    void verifyChunksAreFlushed() throws IOException {
+        FilmCatalogBuilder builder = FilmCatalog.builder();
+        for (int i = 0; i < FilmNdjsonWriter.CHUNK_ROWS * 2 + 1; i++) {
+            builder.add("Film " + i, 1927 + i % 93, i % 12, i % 15, false, i);
+        }
+        final int[] flushes = new int[1];
+        final int[] linesAtFlush = new int[3];
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                final String written = new String(toByteArray(), StandardCharsets.UTF_8);
+                linesAtFlush[flushes[0]++] = written.split("\n").length;
+            }
+        };
+        new FilmNdjsonWriter(out).writeResult(builder.build(), query());
+
+        assertEquals(3, flushes[0]);
+        assertEquals(FilmNdjsonWriter.CHUNK_ROWS, linesAtFlush[0]);
+        assertEquals(FilmNdjsonWriter.CHUNK_ROWS * 2, linesAtFlush[1]);
+        assertEquals(FilmNdjsonWriter.CHUNK_ROWS * 2 + 1, linesAtFlush[2]);
+    }
+
+    private static String write(final FilmCatalog catalog, final String... params) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FilmNdjsonWriter(out).writeResult(catalog, query(params));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static FilmQuery query(final String... params) {
+        final Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < params.length; i += 2) {
+            values.put(params[i], params[i + 1]);
+        }
+        return FilmQuery.parse(values::get);
+    }
+}
@@ -0,0 +1,108 @@
+package de.cyberport.core.utils;
+
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.jackrabbit.commons.JcrUtils;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.Calendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ritendra_singh
+ */
+@ExtendWith(AemContextExtension.class)
+class FilmPartitionsTest {
+
+    private static final String CONTAINER_PATH = "/content/oscars";
+
+    /**
+     * Backed by a repository, since the mocked resource resolver cannot move resources
+     */
+    private final AemContext context = new AemContext(ResourceResolverType.JCR_OAK);
+
+    @Test
+    @DisplayName("Verify year bounds of decade, year and other partition names")
+    void verifyYearBounds() {
+        assertEquals(1960, FilmPartitions.firstYear("", "1960s", Integer.MIN_VALUE));
+        assertEquals(1969, FilmPartitions.lastYear("", "1960s", Integer.MAX_VALUE));
+        assertEquals(1964, FilmPartitions.firstYear("1960s", "1964", 1960));
+        assertEquals(1964, FilmPartitions.lastYear("1960s", "1964", 1969));
+        assertEquals(1960, FilmPartitions.firstYear("1960s", "archive", 1960));
+        assertEquals(1969, FilmPartitions.lastYear("1960s", "archive", 1969));
+        assertEquals("1960s/1964", FilmPartitions.partitionPath(1964));
+        assertEquals("2010s/2019", FilmPartitions.partitionPath(2019));
+        assertEquals("0050s/0055", FilmPartitions.partitionPath(55));
+    }
+
+    @Test
+    @DisplayName("Verify digit names outside of a matching decade are not year partitions")
+    void verifyDigitNamesAreNotYears() {
+        assertEquals(Integer.MIN_VALUE, FilmPartitions.firstYear("", "19", Integer.MIN_VALUE));
+        assertEquals(Integer.MAX_VALUE, FilmPartitions.lastYear("", "19", Integer.MAX_VALUE));
+        assertEquals(Integer.MIN_VALUE, FilmPartitions.firstYear("", "1964", Integer.MIN_VALUE));
+        assertEquals(Integer.MAX_VALUE, FilmPartitions.lastYear("", "1964", Integer.MAX_VALUE));
+        assertEquals(1960, FilmPartitions.firstYear("1960s", "1974", 1960));
+        assertEquals(1969, FilmPartitions.lastYear("1960s", "64", 1969));
+        assertEquals(Integer.MIN_VALUE, FilmPartitions.firstYear("", "60s", Integer.MIN_VALUE));
+    }
+
+    @Test
+    @DisplayName("Verify migration moves every film of a flat container into its decade and year")
+    void verifyMigration() throws PersistenceException {
+        context.load().json("/oscars.json", CONTAINER_PATH);
+        Resource container = context.resourceResolver().getResource(CONTAINER_PATH);
+
+        assertEquals(1316, FilmPartitions.migrate(context.resourceResolver(), container));
+
+        container = context.resourceResolver().getResource(CONTAINER_PATH);
+        for (Resource child : container.getChildren()) {
+            assertFalse(FilmPartitions.isFilm(child), child.getPath());
+        }
+        Resource film = context.resourceResolver().getResource(CONTAINER_PATH + "/1960s/1964/0");
+        assertNotNull(film);
+        assertTrue(FilmPartitions.isFilm(film));
+        assertEquals("Zorba the Greek", film.getValueMap().get("title", String.class));
+        assertEquals(0, FilmPartitions.migrate(context.resourceResolver(), container));
+    }
+
+    @Test
+    @DisplayName("Verify migration keeps identifier, mixin types and created date of a film node")
+    void verifyMigrationKeepsNodeIdentity() throws PersistenceException, RepositoryException {
+        final Session session = context.resourceResolver().adaptTo(Session.class);
+        final Node container = JcrUtils.getOrCreateByPath(CONTAINER_PATH, "nt:unstructured", session);
+        final Node film = container.addNode("42", "nt:unstructured");
+        film.addMixin("mix:referenceable");
+        film.addMixin("mix:created");
+        film.setProperty("title", "Zorba the Greek");
+        film.setProperty("year", 1964L);
+        film.addNode("poster", "nt:unstructured").setProperty("alt", "Zorba");
+        session.save();
+        final String identifier = film.getIdentifier();
+        final Calendar created = film.getProperty("jcr:created").getDate();
+
+        assertEquals(1, FilmPartitions.migrate(context.resourceResolver(),
+                context.resourceResolver().getResource(CONTAINER_PATH)));
+
+        session.refresh(false);
+        assertFalse(session.nodeExists(CONTAINER_PATH + "/42"));
+        final Node moved = session.getNode(CONTAINER_PATH + "/1960s/1964/42");
+        assertEquals(identifier, moved.getIdentifier());
+        assertTrue(moved.isNodeType("mix:referenceable"));
+        assertTrue(moved.isNodeType("mix:created"));
+        assertEquals(created, moved.getProperty("jcr:created").getDate());
+        assertEquals("Zorba", moved.getNode("poster").getProperty("alt").getString());
+    }
+}